@@ -0,0 +1,103 @@
+/**
+ * 基于 Vector API 的 DES 数据并行内核
+ * 文件用途:
+ * 该文件使用 jdk.incubator.vector 实现 DESKernels：异或和字节到分组的转换每次处理一个硬件向量（AVX2 为 32 字节，AVX-512 为 64 字节），
+ * 64×64 位矩阵转置中跨度不小于向量长度的几步同时交换多个 long，其余几步与标量实现相同。
+ * 该文件需要 JDK 17 及以上和 --add-modules jdk.incubator.vector 编译，由 Maven 的 vector 配置在 JDK 17 及以上自动编译；
+ * 运行时只由 DESKernels 通过反射加载，没有加载该模块的 JVM 不会触及本类。
+ */
+package crypto;
+
+import java.nio.ByteOrder;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+final class VectorDESKernels implements DESKernels {
+
+    // 字节和 long 的首选向量形状，两者的总位数相同
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+
+    /**
+     * 构造函数
+     *
+     * @throws UnsupportedOperationException 当硬件向量短于 128 位或本机字节序不是小端序时抛出异常
+     */
+    VectorDESKernels() {
+        // reinterpretAsLongs 按本机字节序组合字节，只有小端序与 bytesToLong 一致
+        if (BYTES.vectorByteSize() < 16 || ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN) {
+            throw new UnsupportedOperationException("Vector API backend is not supported on this platform.");
+        }
+    }
+
+    @Override
+    public void xor(byte[] a, int aOff, byte[] b, int bOff, byte[] out, int outOff, int len) {
+        int i = 0;
+        for (int bound = BYTES.loopBound(len); i < bound; i += BYTES.length()) {
+            ByteVector.fromArray(BYTES, a, aOff + i)
+                    .lanewise(VectorOperators.XOR, ByteVector.fromArray(BYTES, b, bOff + i))
+                    .intoArray(out, outOff + i);
+        }
+        for (; i < len; i++) {
+            out[outOff + i] = (byte) (a[aOff + i] ^ b[bOff + i]);
+        }
+    }
+
+    @Override
+    public void loadBlocks(byte[] in, int inOff, long[] blocks, int count) {
+        int len = count * 8;
+        int i = 0;
+        for (int bound = BYTES.loopBound(len); i < bound; i += BYTES.length()) {
+            ByteVector.fromArray(BYTES, in, inOff + i).reinterpretAsLongs().intoArray(blocks, i / 8);
+        }
+        for (; i < len; i += 8) {
+            blocks[i / 8] = DES.bytesToLong(in, inOff + i);
+        }
+    }
+
+    @Override
+    public void storeBlocks(long[] blocks, byte[] out, int outOff, int count) {
+        int len = count * 8;
+        int i = 0;
+        for (int bound = BYTES.loopBound(len); i < bound; i += BYTES.length()) {
+            LongVector.fromArray(LONGS, blocks, i / 8).reinterpretAsBytes().intoArray(out, outOff + i);
+        }
+        for (; i < len; i += 8) {
+            DES.longToBytes(blocks[i / 8], out, outOff + i);
+        }
+    }
+
+    @Override
+    public void transpose(long[] a) {
+        int lanes = LONGS.length();
+        long mask = 0x00000000FFFFFFFFL;
+        for (int j = 32; j != 0; j >>= 1, mask ^= mask << j) {
+            if (j >= lanes) {
+                // 相互交换的两行相距 j，连续 lanes 行可以一起处理
+                LongVector m = LongVector.broadcast(LONGS, mask);
+                for (int k = 0; k < 64; k += 2 * j) {
+                    for (int l = k; l < k + j; l += lanes) {
+                        LongVector x = LongVector.fromArray(LONGS, a, l);
+                        LongVector y = LongVector.fromArray(LONGS, a, l + j);
+                        LongVector t = x.lanewise(VectorOperators.LSHR, j).lanewise(VectorOperators.XOR, y).and(m);
+                        y.lanewise(VectorOperators.XOR, t).intoArray(a, l + j);
+                        x.lanewise(VectorOperators.XOR, t.lanewise(VectorOperators.LSHL, j)).intoArray(a, l);
+                    }
+                }
+            } else {
+                for (int k = 0; k < 64; k = ((k | j) + 1) & ~j) {
+                    long t = ((a[k] >>> j) ^ a[k | j]) & mask;
+                    a[k | j] ^= t;
+                    a[k] ^= t << j;
+                }
+            }
+        }
+    }
+
+    @Override
+    public String name() {
+        return "Vector API (" + BYTES.vectorBitSize() + "-bit)";
+    }
+}
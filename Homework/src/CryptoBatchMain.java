@@ -0,0 +1,59 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import crypto.CryptoAlgorithm;
+import crypto.CryptoBatch;
+import crypto.DES;
+import crypto.RSA;
+
+/**
+ * 目录树批量加密、解密入口
+ * 文件用途:
+ * 在一个 JVM 中加密或解密整个目录树，代替在脚本中逐个文件调用，结束后输出文件数、数据量和总吞吐量。
+ * DES 的密钥为十进制整数，RSA 的密钥从 saveKey 保存的文件读取。
+ * 用法: java CryptoBatchMain encrypt|decrypt 源目录 目标目录 [DES|RSA（默认 DES）] [DES密钥（默认 2019216864）|RSA密钥文件]
+ *       [工作线程数（默认处理器个数）] [同时处理的文件数（默认 64）] [在途数据上限（默认 256 MB）] [RSA块大小（默认 64）]
+ */
+public class CryptoBatchMain {
+
+    /**
+     * 主函数，程序入口。
+     *
+     * @param args 命令行参数：操作、源目录、目标目录、算法、密钥、工作线程数、同时处理的文件数、在途数据上限（MB）和 RSA 块大小
+     * @throws IOException 如果读写文件出错或某个文件无法加密、解密
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || !(args[0].equals("encrypt") || args[0].equals("decrypt"))) {
+            System.err.println("用法: java CryptoBatchMain encrypt|decrypt 源目录 目标目录 [DES|RSA] [密钥] [工作线程数] [同时处理的文件数] [在途数据上限（MB）] [RSA块大小]");
+            System.exit(2);
+        }
+        boolean rsa = args.length > 3 && args[3].equalsIgnoreCase("RSA");
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+        int maxOpenFiles = args.length > 6 ? Integer.parseInt(args[6]) : 64;
+        long maxBytesInFlight = (args.length > 7 ? Long.parseLong(args[7]) : 256) << 20;
+        int blockSize = args.length > 8 ? Integer.parseInt(args[8]) : 64;
+
+        // 所有文件共用一个算法对象，密钥调度只计算一次
+        CryptoAlgorithm algorithm;
+        if (rsa) {
+            if (args.length <= 4) {
+                System.err.println("RSA 需要指定密钥文件");
+                System.exit(2);
+            }
+            algorithm = RSA.loadKey(args[4], blockSize);
+        } else {
+            algorithm = new DES(args.length > 4 ? Long.parseLong(args[4]) : 2019216864);
+        }
+
+        CryptoBatch batch = new CryptoBatch(algorithm, threads, maxOpenFiles, maxBytesInFlight);
+        CryptoBatch.Summary summary = args[0].equals("encrypt")
+                ? batch.encryptTree(Paths.get(args[1]), Paths.get(args[2]))
+                : batch.decryptTree(Paths.get(args[1]), Paths.get(args[2]));
+
+        System.out.printf("算法: %s，工作线程数: %d，同时处理的文件数: %d，在途数据上限: %d MB%n",
+                rsa ? "RSA" : "DES", threads, maxOpenFiles, maxBytesInFlight >> 20);
+        System.out.printf("文件数: %d，任务数: %d，读取: %.1f MB，写入: %.1f MB%n",
+                summary.files(), summary.tasks(), summary.bytesRead() / 1e6, summary.bytesWritten() / 1e6);
+        System.out.printf("耗时: %.3f s，吞吐量: %.1f MB/s，%.0f 个文件/s%n",
+                summary.elapsedNanos() / 1e9, summary.throughput(), summary.filesPerSecond());
+    }
+}
@@ -0,0 +1,130 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import crypto.CryptoClient;
+import crypto.CryptoServer;
+import crypto.LatencyHistogram;
+import crypto.RSA;
+
+/**
+ * 本地加密服务压力测试
+ * 文件用途:
+ * 以多个并发连接向 CryptoServer 持续发送加密请求，输出吞吐量以及 p50、p99、p99.9 延迟。
+ * 不指定端口时在本进程中启动一个服务，并同时输出服务端的平均合批大小。
+ * 用法: java CryptoLoadGenerator [DES|RSA] [并发连接数（默认 64）] [每个连接的请求数（默认 2000）] [请求大小（默认 64 字节）] [端口]
+ */
+public class CryptoLoadGenerator {
+
+    // DES 请求使用的密钥，所有连接相同，以便服务端合批
+    private static final long DES_KEY = 2019216864;
+
+    // 服务端 RSA 密钥的编号
+    private static final long RSA_KEY_ID = 1;
+
+    /**
+     * 主函数，程序入口。
+     *
+     * @param args 命令行参数：算法、并发连接数、每个连接的请求数、请求大小和端口
+     * @throws Exception 当连接或请求出错时抛出异常
+     */
+    public static void main(String[] args) throws Exception {
+        boolean rsa = args.length > 0 && args[0].equalsIgnoreCase("RSA");
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        int size = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+
+        CryptoServer server = null;
+        int port;
+        if (args.length > 4) {
+            port = Integer.parseInt(args[4]);
+        } else {
+            server = new CryptoServer(0);
+            server.registerRSA(RSA_KEY_ID, new RSA(1024, 64));
+            port = server.port();
+        }
+
+        try {
+            // 预热，使服务端完成 JIT 编译，结果不计入统计
+            run(rsa, port, connections, Math.max(1, requests / 10), size, new LatencyHistogram());
+            long batches = server != null ? server.batchCount() : 0;
+            long batchedRequests = server != null ? server.batchedRequestCount() : 0;
+
+            LatencyHistogram latency = new LatencyHistogram();
+            long start = System.nanoTime();
+            run(rsa, port, connections, requests, size, latency);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("算法: %s，并发连接数: %d，请求大小: %d 字节，请求数: %d%n",
+                    rsa ? "RSA" : "DES", connections, size, latency.count());
+            System.out.printf("吞吐量: %.0f 请求/秒%n", latency.count() / seconds);
+            System.out.printf("延迟(us): 平均 %.1f，p50 %.1f，p99 %.1f，p99.9 %.1f，最大 %.1f%n",
+                    latency.mean() / 1000, latency.percentile(50) / 1000.0, latency.percentile(99) / 1000.0,
+                    latency.percentile(99.9) / 1000.0, latency.max() / 1000.0);
+            if (server != null) {
+                System.out.printf("平均每批请求数: %.2f%n", (double) (server.batchedRequestCount() - batchedRequests)
+                        / Math.max(1, server.batchCount() - batches));
+            }
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    /**
+     * 每个连接一个线程，各发送 requests 个请求，记录每个请求的往返时间
+     *
+     * @param rsa         是否使用 RSA
+     * @param port        服务端口
+     * @param connections 并发连接数
+     * @param requests    每个连接的请求数
+     * @param size        请求大小
+     * @param latency     记录往返时间（纳秒）的直方图
+     * @throws Exception 当连接或请求出错时抛出异常
+     */
+    private static void run(boolean rsa, int port, int connections, int requests, int size,
+                            LatencyHistogram latency) throws Exception {
+        CountDownLatch ready = new CountDownLatch(connections);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < connections; i++) {
+            long seed = i;
+            Thread thread = new Thread(() -> {
+                byte[] data = new byte[size];
+                new Random(seed).nextBytes(data);
+                try (CryptoClient client = new CryptoClient("localhost", port)) {
+                    ready.countDown();
+                    go.await();
+                    for (int j = 0; j < requests; j++) {
+                        long start = System.nanoTime();
+                        if (rsa) {
+                            client.encryptRSA(RSA_KEY_ID, data);
+                        } else {
+                            client.encryptDES(DES_KEY, data);
+                        }
+                        latency.record(System.nanoTime() - start);
+                    }
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                    ready.countDown();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        // 所有连接建立后同时开始发送
+        ready.await();
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+}
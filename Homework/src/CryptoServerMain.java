@@ -0,0 +1,30 @@
+import java.io.IOException;
+import crypto.CryptoServer;
+import crypto.RSA;
+
+/**
+ * 本地加密服务入口
+ * 文件用途:
+ * 启动 CryptoServer 并一直运行，直到进程被终止。RSA 密钥从文件读取或新生成，注册为编号 1。
+ * 用法: java CryptoServerMain [端口（默认 7443）] [RSA密钥文件] [RSA块大小（默认 64）]
+ */
+public class CryptoServerMain {
+
+    /**
+     * 主函数，程序入口。
+     *
+     * @param args 命令行参数：端口、RSA密钥文件和 RSA 块大小
+     * @throws IOException          如果无法监听端口或读取密钥文件
+     * @throws InterruptedException 如果主线程被中断
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7443;
+        int blockSize = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        RSA rsa = args.length > 1 ? RSA.loadKey(args[1], blockSize) : new RSA(1024, blockSize);
+
+        CryptoServer server = new CryptoServer(port);
+        server.registerRSA(1, rsa);
+        System.out.println("加密服务已启动，端口: " + server.port());
+        Thread.currentThread().join();
+    }
+}
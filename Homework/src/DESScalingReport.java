@@ -0,0 +1,62 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import crypto.DES;
+
+/**
+ * DES 多核扩展性报告
+ * 文件用途:
+ * 使用 1 到 N 个线程的线程池分别加密、解密同一份数据，输出吞吐量、加速比和并行效率。
+ * 用法: java DESScalingReport [数据大小MB] [最大线程数]
+ */
+public class DESScalingReport {
+
+    // 每种线程数下重复测量的次数，取最快的一次
+    private static final int ROUNDS = 3;
+
+    /**
+     * 主函数，程序入口。
+     *
+     * @param args 命令行参数：数据大小（MB，默认 64）和最大线程数（默认为 CPU 核数）
+     */
+    public static void main(String[] args) {
+        int sizeMB = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        byte[] data = new byte[sizeMB << 20];
+        new Random(2019216864).nextBytes(data);
+
+        System.out.printf("数据大小: %d MB，CPU 核数: %d%n", sizeMB, Runtime.getRuntime().availableProcessors());
+        System.out.println("线程数\t加密(MB/s)\t解密(MB/s)\t加速比\t并行效率");
+
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                DES des = new DES(2019216864, pool, DES.DEFAULT_PARALLEL_THRESHOLD);
+                byte[] cipher = des.encrypt(data); // 预热
+
+                long encryptTime = Long.MAX_VALUE, decryptTime = Long.MAX_VALUE;
+                for (int i = 0; i < ROUNDS; i++) {
+                    long start = System.nanoTime();
+                    cipher = des.encrypt(data);
+                    long middle = System.nanoTime();
+                    des.decrypt(cipher);
+                    long end = System.nanoTime();
+                    encryptTime = Math.min(encryptTime, middle - start);
+                    decryptTime = Math.min(decryptTime, end - middle);
+                }
+
+                double encryptRate = sizeMB / (encryptTime / 1e9);
+                double decryptRate = sizeMB / (decryptTime / 1e9);
+                if (threads == 1) {
+                    baseline = encryptRate;
+                }
+                double speedup = encryptRate / baseline;
+                System.out.printf("%d\t%.1f\t\t%.1f\t\t%.2f\t%.0f%%%n",
+                        threads, encryptRate, decryptRate, speedup, speedup / threads * 100);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/**
+ * 异步加密、解密接口
+ * 文件用途:
+ * 该文件在 CryptoAlgorithm 之上提供异步接口：encryptAsync、decryptAsync 在指定的线程池中执行，返回 CompletableFuture；
+ * encrypt、decrypt 将一个 Flow.Publisher 的每条消息分别加密、解密，按原顺序发布结果。
+ * 两种接口都限制排队深度，且都不阻塞调用线程，可以在事件循环线程中使用。
+ * CompletableFuture 接口在已有 maxQueued 个操作未完成时直接返回以 RejectedExecutionException 完成的结果，
+ * 生产者据此放慢速度或稍后重试，RSA 处理不过来时也不会堆满内存；
+ * Flow 接口每个订阅最多向上游请求 maxQueued 条尚未交给下游的消息，下游不请求时上游随之停止。
+ * 算法对象由多个线程同时调用，DES、RSA 等不可变的算法可以直接使用。
+ */
+package crypto;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+public final class AsyncCipher {
+
+    // 被包装的算法
+    private final CryptoAlgorithm algorithm;
+
+    // 执行加密、解密的线程池
+    private final Executor executor;
+
+    // 排队深度上限
+    private final int maxQueued;
+
+    // CompletableFuture 接口的排队额度
+    private final Semaphore queue;
+
+    /**
+     * 构造函数，在公共 ForkJoinPool 中执行，每个处理器最多排队 4 个操作
+     *
+     * @param algorithm 被包装的算法，必须可以被多个线程同时调用
+     */
+    public AsyncCipher(CryptoAlgorithm algorithm) {
+        this(algorithm, ForkJoinPool.commonPool(), 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param algorithm 被包装的算法，必须可以被多个线程同时调用
+     * @param executor  执行加密、解密的线程池
+     * @param maxQueued 排队深度上限，包括正在执行的操作
+     */
+    public AsyncCipher(CryptoAlgorithm algorithm, Executor executor, int maxQueued) {
+        if (maxQueued <= 0) {
+            throw new IllegalArgumentException("Queue depth must be positive.");
+        }
+        this.algorithm = algorithm;
+        this.executor = executor;
+        this.maxQueued = maxQueued;
+        this.queue = new Semaphore(maxQueued);
+    }
+
+    /**
+     * 异步加密，不阻塞调用线程
+     *
+     * @param data 待加密的字节数组
+     * @return 加密结果；已有 maxQueued 个操作未完成时以 RejectedExecutionException 完成，
+     *         算法抛出异常或线程池拒绝执行时以该异常完成
+     */
+    public CompletableFuture<byte[]> encryptAsync(byte[] data) {
+        return submit(algorithm::encrypt, data);
+    }
+
+    /**
+     * 异步解密，不阻塞调用线程
+     *
+     * @param data 待解密的字节数组
+     * @return 解密结果；已有 maxQueued 个操作未完成时以 RejectedExecutionException 完成，
+     *         算法抛出异常或线程池拒绝执行时以该异常完成
+     */
+    public CompletableFuture<byte[]> decryptAsync(byte[] data) {
+        return submit(algorithm::decrypt, data);
+    }
+
+    /**
+     * 逐条加密 source 发布的消息，按原顺序发布密文。
+     * 每次订阅返回的 Publisher 都会订阅一次 source；任何一条消息加密失败时取消 source 并以该异常结束。
+     *
+     * @param source 明文消息的发布者
+     * @return 密文消息的发布者
+     */
+    public Flow.Publisher<byte[]> encrypt(Flow.Publisher<byte[]> source) {
+        return subscriber -> source.subscribe(new Pipe(algorithm::encrypt, subscriber));
+    }
+
+    /**
+     * 逐条解密 source 发布的消息，按原顺序发布明文。
+     * 每次订阅返回的 Publisher 都会订阅一次 source；任何一条消息解密失败时取消 source 并以该异常结束。
+     *
+     * @param source 密文消息的发布者
+     * @return 明文消息的发布者
+     */
+    public Flow.Publisher<byte[]> decrypt(Flow.Publisher<byte[]> source) {
+        return subscriber -> source.subscribe(new Pipe(algorithm::decrypt, subscriber));
+    }
+
+    /**
+     * 当前 CompletableFuture 接口中未完成的操作数
+     *
+     * @return 未完成的操作数
+     */
+    public int queued() {
+        return maxQueued - queue.availablePermits();
+    }
+
+    /**
+     * 占用排队额度后提交操作，操作完成时归还；没有额度时不等待，直接拒绝
+     */
+    private CompletableFuture<byte[]> submit(UnaryOperator<byte[]> operation, byte[] data) {
+        if (!queue.tryAcquire()) {
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("Queue depth limit of " + maxQueued + " reached."));
+        }
+        CompletableFuture<byte[]> result = run(operation, data);
+        result.whenComplete((value, error) -> queue.release());
+        return result;
+    }
+
+    /**
+     * 在线程池中执行操作，线程池拒绝时返回以该异常完成的结果
+     */
+    private CompletableFuture<byte[]> run(UnaryOperator<byte[]> operation, byte[] data) {
+        try {
+            return CompletableFuture.supplyAsync(() -> operation.apply(data), executor);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 一次订阅：作为上游的订阅者接收消息并提交到线程池，作为下游的 Subscription 按请求数依次发布结果。
+     * 已向上游请求但未交给下游的消息不超过 maxQueued 条，下游不请求时上游随之停止。
+     * 所有发给下游的信号都在 drain 中串行发出。
+     */
+    private final class Pipe implements Flow.Subscriber<byte[]>, Flow.Subscription {
+        private final UnaryOperator<byte[]> operation;
+        private final Flow.Subscriber<? super byte[]> downstream;
+
+        // 按上游顺序排列的结果，包括尚未完成的
+        private final Queue<CompletableFuture<byte[]>> pending = new ConcurrentLinkedQueue<>();
+
+        // 下游尚未满足的请求数，Long.MAX_VALUE 表示不限
+        private final AtomicLong demand = new AtomicLong();
+
+        // drain 的重入计数，保证同一时间只有一个线程发出信号
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private volatile Flow.Subscription upstream;
+        private volatile boolean done; // 上游已结束
+        private volatile Throwable error; // 上游或某条消息的错误
+        private volatile boolean cancelled; // 下游已取消
+        private boolean terminated; // 已向下游发出 onComplete 或 onError，只在 drain 中访问
+
+        Pipe(UnaryOperator<byte[]> operation, Flow.Subscriber<? super byte[]> downstream) {
+            this.operation = operation;
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            if (upstream != null) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+            downstream.onSubscribe(this);
+            if (!cancelled) {
+                subscription.request(maxQueued);
+            }
+        }
+
+        @Override
+        public void onNext(byte[] item) {
+            if (done || cancelled || error != null) {
+                return;
+            }
+            CompletableFuture<byte[]> result = run(operation, item);
+            pending.offer(result);
+            result.whenComplete((value, e) -> drain());
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (done) {
+                return;
+            }
+            error = throwable;
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("Request count must be positive."));
+                return;
+            }
+            demand.getAndAccumulate(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            upstream.cancel();
+            drain();
+        }
+
+        /**
+         * 以 e 结束并取消上游
+         */
+        private void fail(Throwable e) {
+            if (error == null) {
+                error = e;
+            }
+            upstream.cancel();
+            drain();
+        }
+
+        /**
+         * 依次发布已完成且下游已请求的结果，每发布一条向上游再请求一条。
+         * 错误立即发给下游，上游结束时等待队列中的结果发布完后再发 onComplete
+         */
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                while (!terminated) {
+                    if (cancelled) {
+                        pending.clear();
+                        break;
+                    }
+                    Throwable e = error;
+                    if (e != null) {
+                        terminated = true;
+                        pending.clear();
+                        downstream.onError(e);
+                        break;
+                    }
+
+                    CompletableFuture<byte[]> head = pending.peek();
+                    if (head == null) {
+                        if (done) {
+                            terminated = true;
+                            downstream.onComplete();
+                        }
+                        break;
+                    }
+                    if (!head.isDone() || demand.get() == 0) {
+                        break;
+                    }
+
+                    pending.poll();
+                    byte[] value;
+                    try {
+                        value = head.join();
+                    } catch (CompletionException failure) {
+                        error = failure.getCause() != null ? failure.getCause() : failure;
+                        upstream.cancel();
+                        continue;
+                    }
+                    if (demand.get() != Long.MAX_VALUE) {
+                        demand.decrementAndGet();
+                    }
+                    downstream.onNext(value);
+                    upstream.request(1);
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
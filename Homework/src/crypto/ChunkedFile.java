@@ -0,0 +1,430 @@
+/**
+ * 可随机访问的分块加密文件
+ * 文件用途:
+ * 该文件实现了一种分块加密文件格式：明文按固定大小分块，每块用 DES 的 CTR 模式独立加密，文件末尾附有各块的索引。
+ * CTR 模式不需要填充，密文与明文等长，数据流中任意一段都可以单独解密，
+ * 因此 decryptRange 只读取并解密所请求的区间涉及的那几块中的数据，不必解密整个文件。
+ * 既可以所有块使用同一个 DES 密钥，也可以每块使用一个随机 DES 密钥，用 RSA 加密后保存在索引中。
+ * 文件格式，所有整数均为大端序：
+ *   头部（32 字节）：[8 字节标识 "HFUTCHK1"][int 块大小][int 标志位][long 明文长度][long 初始计数器]
+ *   数据：各块密文依次排列，除最后一块外每块的长度都等于块大小
+ *   索引：每块一项，[long 密文在文件中的偏移量][int 密文长度][RSA 加密的该块密钥，仅 RSA 模式]，各项长度相同
+ *   尾部（24 字节）：[long 索引偏移量][int 块数][int 每项索引的长度][8 字节标识 "HFUTIDX1"]
+ * 初始计数器每次加密随机生成，同一个密钥多次加密时不会重复使用密钥流。
+ */
+package crypto;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ChunkedFile {
+
+    // 默认的块大小（字节）
+    public static final int DEFAULT_CHUNK_SIZE = 64 << 10;
+
+    // 头部和尾部的标识
+    private static final byte[] HEADER_MAGIC = "HFUTCHK1".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FOOTER_MAGIC = "HFUTIDX1".getBytes(StandardCharsets.US_ASCII);
+
+    // 头部和尾部的长度
+    private static final int HEADER_SIZE = 32;
+    private static final int FOOTER_SIZE = 24;
+
+    // 标志位：每块的密钥用 RSA 加密后保存在索引中
+    private static final int FLAG_RSA_KEYS = 1;
+
+    // 每项索引中偏移量和长度占用的字节数
+    private static final int ENTRY_FIXED_SIZE = 12;
+
+    // 所有块共用的 DES，RSA 模式下为 null
+    private final DES des;
+
+    // 加密、解密每块密钥的 RSA，DES 模式下为 null
+    private final RSA rsa;
+
+    // 块大小（字节）
+    private final int chunkSize;
+
+    // 初始计数器和块密钥的随机数生成器
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * 解析后的头部和尾部
+     */
+    private static final class Layout {
+        int chunkSize; // 块大小
+        int flags; // 标志位
+        long length; // 明文长度
+        long counter; // 初始计数器
+        long indexOffset; // 索引偏移量
+        int chunkCount; // 块数
+        int entrySize; // 每项索引的长度
+    }
+
+    /**
+     * 构造函数，所有块使用同一个 DES 密钥，块大小为 DEFAULT_CHUNK_SIZE
+     *
+     * @param key 一个long类型的密钥
+     */
+    public ChunkedFile(long key) {
+        this(key, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * 构造函数，所有块使用同一个 DES 密钥
+     *
+     * @param key       一个long类型的密钥
+     * @param chunkSize 块大小，必须是8的正整数倍
+     */
+    public ChunkedFile(long key, int chunkSize) {
+        this(new DES(key), null, chunkSize);
+    }
+
+    /**
+     * 构造函数，每块使用一个随机 DES 密钥并用 RSA 加密后保存，块大小为 DEFAULT_CHUNK_SIZE
+     *
+     * @param rsa 加密、解密块密钥的 RSA，明文块大小至少为 8 字节
+     */
+    public ChunkedFile(RSA rsa) {
+        this(rsa, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * 构造函数，每块使用一个随机 DES 密钥并用 RSA 加密后保存
+     *
+     * @param rsa       加密、解密块密钥的 RSA，明文块大小至少为 8 字节
+     * @param chunkSize 块大小，必须是8的正整数倍
+     */
+    public ChunkedFile(RSA rsa, int chunkSize) {
+        this(null, rsa, chunkSize);
+        if (rsa.plainBlockSize() < 8) {
+            throw new IllegalArgumentException("RSA block size must be at least 8 bytes.");
+        }
+    }
+
+    private ChunkedFile(DES des, RSA rsa, int chunkSize) {
+        if (chunkSize <= 0 || chunkSize % 8 != 0) {
+            throw new IllegalArgumentException("Chunk size must be a positive multiple of 8 bytes.");
+        }
+        this.des = des;
+        this.rsa = rsa;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 获取加密时使用的块大小
+     *
+     * @return 块大小（字节）
+     */
+    public int chunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * 加密文件：写入头部后按块流式加密，最后追加索引和尾部
+     *
+     * @param inputFilePath  待加密的文件路径
+     * @param outputFilePath 加密后的文件路径
+     * @throws IOException 文件读写错误
+     */
+    public void encryptFile(String inputFilePath, String outputFilePath) throws IOException {
+        Path inputFile = Paths.get(inputFilePath);
+        Path outputFile = Paths.get(outputFilePath);
+        long length = Files.size(inputFile);
+        long counter = random.nextLong();
+        int chunkCount = (int) ((length + chunkSize - 1) / chunkSize);
+        int entrySize = ENTRY_FIXED_SIZE + (rsa != null ? rsa.encryptOutputSize(8) : 0);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(HEADER_MAGIC).putInt(chunkSize).putInt(rsa != null ? FLAG_RSA_KEYS : 0).putLong(length).putLong(counter);
+        byte[] headerBytes = header.array();
+
+        // RSA 模式下依次生成各块的密钥，加密后的密钥写入索引
+        List<byte[]> wrappedKeys = new ArrayList<>();
+        DES[] chunkDES = {des};
+        long[] position = {0};
+        boolean[] headerWritten = {false};
+
+        int pipelineChunk = FilePipeline.chunkSize(8);
+        FilePipeline.process(getClass().getSimpleName(), inputFile, outputFile, pipelineChunk, HEADER_SIZE + pipelineChunk,
+                (in, inOff, len, out, outOff, last) -> {
+                    int headerLength = 0;
+                    if (!headerWritten[0]) {
+                        System.arraycopy(headerBytes, 0, out, outOff, HEADER_SIZE);
+                        headerLength = HEADER_SIZE;
+                        headerWritten[0] = true;
+                    }
+                    int done = 0;
+                    while (done < len) {
+                        long pos = position[0];
+                        if (rsa != null && pos % chunkSize == 0) {
+                            long key = random.nextLong();
+                            wrappedKeys.add(wrapKey(key));
+                            chunkDES[0] = new DES(key);
+                        }
+                        // 每次处理到当前块的末尾为止
+                        int n = (int) Math.min(len - done, chunkSize - pos % chunkSize);
+                        chunkDES[0].cryptCTR(counter, pos, in, inOff + done, n, out, outOff + headerLength + done);
+                        done += n;
+                        position[0] += n;
+                    }
+                    return headerLength + len;
+                });
+        if (position[0] != length) {
+            throw new IOException("Input file changed during encryption.");
+        }
+
+        // 追加索引和尾部
+        try (FileChannel channel = FileChannel.open(outputFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            if (!headerWritten[0]) {
+                // 输入文件为空时流水线可能不调用处理函数
+                writeFully(channel, ByteBuffer.wrap(headerBytes));
+            }
+            long indexOffset = HEADER_SIZE + length;
+            ByteBuffer index = ByteBuffer.allocate(Math.max(1, Math.min(chunkCount, 4096)) * entrySize);
+            for (int i = 0; i < chunkCount; i++) {
+                index.putLong(HEADER_SIZE + (long) i * chunkSize)
+                        .putInt((int) Math.min(chunkSize, length - (long) i * chunkSize));
+                if (rsa != null) {
+                    index.put(wrappedKeys.get(i));
+                }
+                if (!index.hasRemaining()) {
+                    index.flip();
+                    writeFully(channel, index);
+                    index.clear();
+                }
+            }
+            index.flip();
+            writeFully(channel, index);
+
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+            footer.putLong(indexOffset).putInt(chunkCount).putInt(entrySize).put(FOOTER_MAGIC);
+            footer.flip();
+            writeFully(channel, footer);
+        }
+    }
+
+    /**
+     * 解密整个文件
+     *
+     * @param inputFilePath  待解密的文件路径
+     * @param outputFilePath 解密后的文件路径，可以与输入文件相同，此时先写入临时文件，完成后替换原文件
+     * @throws IOException 文件读写错误或文件格式错误
+     */
+    public void decryptFile(String inputFilePath, String outputFilePath) throws IOException {
+        Path inputFile = Paths.get(inputFilePath);
+        Path outputFile = Paths.get(outputFilePath);
+        Path temp = FilePipeline.sameFileTemp(inputFile, outputFile);
+        try {
+            decryptFile(inputFile, temp != null ? temp : outputFile);
+            if (temp != null) {
+                FilePipeline.replace(temp, outputFile);
+            }
+        } finally {
+            if (temp != null) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * 解密整个文件，输入和输出不能是同一个文件
+     */
+    private void decryptFile(Path inputFile, Path outputFile) throws IOException {
+        try (FileChannel in = FileChannel.open(inputFile, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(outputFile, StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Layout layout = readLayout(in);
+            int step = Math.max(1, FilePipeline.CHUNK_SIZE / layout.chunkSize) * layout.chunkSize;
+            byte[] buffer = new byte[(int) Math.min(step, Math.max(1, layout.length))];
+            for (long position = 0; position < layout.length; position += step) {
+                int len = (int) Math.min(step, layout.length - position);
+                decryptRange(in, layout, position, buffer, 0, len);
+                writeFully(out, ByteBuffer.wrap(buffer, 0, len));
+            }
+        }
+    }
+
+    /**
+     * 解密文件中明文的一段，只读取并解密这一段涉及的块中的数据
+     *
+     * @param filePath 加密后的文件路径
+     * @param offset   明文中的起始偏移量
+     * @param length   长度
+     * @return 解密后的数据
+     * @throws IOException 文件读写错误或文件格式错误
+     * @throws IllegalArgumentException 当区间超出明文范围时抛出异常
+     */
+    public byte[] decryptRange(String filePath, long offset, int length) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            Layout layout = readLayout(channel);
+            if (offset < 0 || length < 0 || offset > layout.length - length) {
+                throw new IllegalArgumentException("Offset or length is out of range.");
+            }
+            byte[] data = new byte[length];
+            decryptRange(channel, layout, offset, data, 0, length);
+            return data;
+        }
+    }
+
+    /**
+     * 获取加密文件中明文的长度
+     *
+     * @param filePath 加密后的文件路径
+     * @return 明文长度
+     * @throws IOException 文件读写错误或文件格式错误
+     */
+    public long length(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            return readLayout(channel).length;
+        }
+    }
+
+    /**
+     * 逐块读取并解密明文中 [offset, offset + len) 的数据
+     *
+     * @param channel 加密文件
+     * @param layout  文件的头部和尾部
+     * @param offset  明文中的起始偏移量
+     * @param out     输出字节数组
+     * @param outOff  输出起始偏移量
+     * @param len     长度
+     * @throws IOException 文件读写错误或文件格式错误
+     */
+    private void decryptRange(FileChannel channel, Layout layout, long offset, byte[] out, int outOff, int len)
+            throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(layout.entrySize);
+        int done = 0;
+        while (done < len) {
+            long position = offset + done;
+            int chunk = (int) (position / layout.chunkSize);
+            int inChunk = (int) (position % layout.chunkSize);
+            int n = Math.min(len - done, layout.chunkSize - inChunk);
+
+            // 读取该块的索引项
+            entry.clear();
+            readFully(channel, entry, layout.indexOffset + (long) chunk * layout.entrySize);
+            long chunkOffset = entry.getLong(0);
+            int chunkLength = entry.getInt(8);
+            if (chunkOffset < HEADER_SIZE || chunkLength < inChunk + n || chunkOffset > layout.indexOffset - chunkLength) {
+                throw new IOException("Invalid chunk index entry: " + chunk);
+            }
+
+            // 只读取这一块中需要的部分，原地解密
+            readFully(channel, ByteBuffer.wrap(out, outOff + done, n), chunkOffset + inChunk);
+            chunkDES(layout, entry).cryptCTR(layout.counter, position, out, outOff + done, n, out, outOff + done);
+            done += n;
+        }
+    }
+
+    /**
+     * 获取解密一块使用的 DES
+     *
+     * @param layout 文件的头部和尾部
+     * @param entry  该块的索引项
+     * @return DES对象
+     * @throws IOException 当文件与本对象的模式不一致时抛出异常
+     */
+    private DES chunkDES(Layout layout, ByteBuffer entry) throws IOException {
+        boolean rsaKeys = (layout.flags & FLAG_RSA_KEYS) != 0;
+        if (rsaKeys != (rsa != null)) {
+            throw new IOException(rsaKeys ? "File chunk keys are wrapped with RSA." : "File is encrypted with a DES key.");
+        }
+        if (rsa == null) {
+            return des;
+        }
+        byte[] wrappedKey = Arrays.copyOfRange(entry.array(), ENTRY_FIXED_SIZE, layout.entrySize);
+        // RSA 解密会去掉前导 0，按大端序数值还原块密钥
+        return new DES(new BigInteger(1, rsa.decrypt(wrappedKey)).longValue());
+    }
+
+    /**
+     * 用 RSA 加密一块的密钥
+     *
+     * @param key 块密钥
+     * @return 加密后的密钥
+     */
+    private byte[] wrapKey(long key) {
+        byte[] keyBytes = new byte[8];
+        for (int i = 0; i < 8; i++) {
+            keyBytes[i] = (byte) (key >>> (56 - 8 * i));
+        }
+        return rsa.encrypt(keyBytes);
+    }
+
+    /**
+     * 读取并检查头部和尾部
+     *
+     * @param channel 加密文件
+     * @return 文件的头部和尾部
+     * @throws IOException 文件读写错误或文件格式错误
+     */
+    private static Layout readLayout(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE + FOOTER_SIZE) {
+            throw new IOException("Not a chunked encrypted file.");
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0);
+        ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+        readFully(channel, footer, size - FOOTER_SIZE);
+        if (!Arrays.equals(Arrays.copyOf(header.array(), 8), HEADER_MAGIC)
+                || !Arrays.equals(Arrays.copyOfRange(footer.array(), 16, 24), FOOTER_MAGIC)) {
+            throw new IOException("Not a chunked encrypted file.");
+        }
+
+        Layout layout = new Layout();
+        layout.chunkSize = header.getInt(8);
+        layout.flags = header.getInt(12);
+        layout.length = header.getLong(16);
+        layout.counter = header.getLong(24);
+        layout.indexOffset = footer.getLong(0);
+        layout.chunkCount = footer.getInt(8);
+        layout.entrySize = footer.getInt(12);
+
+        if (layout.chunkSize <= 0 || layout.chunkSize % 8 != 0 || layout.length < 0
+                || layout.indexOffset != HEADER_SIZE + layout.length
+                || layout.chunkCount != (layout.length + layout.chunkSize - 1) / layout.chunkSize
+                || layout.entrySize < ENTRY_FIXED_SIZE
+                || (long) layout.chunkCount * layout.entrySize != size - FOOTER_SIZE - layout.indexOffset) {
+            throw new IOException("Invalid chunked file header.");
+        }
+        return layout;
+    }
+
+    /**
+     * 从 position 开始读满缓冲区
+     *
+     * @throws EOFException 当文件提前结束时抛出异常
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of chunked file.");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * 写出缓冲区中的全部数据
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * 增量加密、解密上下文
+ * 文件用途:
+ * 该文件实现了按 update/doFinal 方式增量处理数据的上下文，适用于长度未知的数据流。
+ * 每次 update 只要凑够完整的分组就立即输出，不足一个分组的数据留在固定大小的缓冲区中；
+ * doFinal 处理剩余数据，加密时进行填充，解密时去除填充。
+ * 解密时最后一个完整分组要等到 doFinal 才处理，因为只有它含有填充。
+ * 上下文不是线程安全的，每个数据流使用各自的上下文；doFinal 之后可以继续用于下一条消息。
+ */
+package crypto;
+
+import java.util.Arrays;
+
+public final class CipherContext {
+
+    // 执行加密、解密的算法
+    private final CryptoAlgorithm algorithm;
+
+    // 为 true 时解密，否则加密
+    private final boolean decrypt;
+
+    // 输入分组大小
+    private final int blockSize;
+
+    // 尚未处理的输入，不超过一个分组
+    private final byte[] carry;
+
+    // carry 中的有效数据长度
+    private int carryLength;
+
+    /**
+     * 构造函数，由 CryptoAlgorithm.newEncryptContext 和 newDecryptContext 调用
+     *
+     * @param algorithm 执行加密、解密的算法，必须支持分块处理
+     * @param decrypt   为 true 时解密，否则加密
+     */
+    CipherContext(CryptoAlgorithm algorithm, boolean decrypt) {
+        this.algorithm = algorithm;
+        this.decrypt = decrypt;
+        this.blockSize = decrypt ? algorithm.cipherBlockSize() : algorithm.plainBlockSize();
+        if (blockSize <= 0) {
+            throw new UnsupportedOperationException(algorithm.getClass().getSimpleName() + " does not support chunked processing.");
+        }
+        this.carry = new byte[blockSize];
+    }
+
+    /**
+     * 处理一段输入，输出其中已经凑够的完整分组
+     *
+     * @param in     输入字节数组
+     * @param inOff  输入起始偏移量
+     * @param len    输入长度
+     * @param out    输出字节数组，至少要有 updateOutputSize(len) 个字节的空间
+     * @param outOff 输出起始偏移量
+     * @return 写入 out 的字节数
+     */
+    public int update(byte[] in, int inOff, int len, byte[] out, int outOff) {
+        int process = processLength(len);
+        int written = 0;
+
+        // 先用输入补满缓冲区中的分组并处理
+        if (process > 0 && carryLength > 0) {
+            int fill = blockSize - carryLength;
+            System.arraycopy(in, inOff, carry, carryLength, fill);
+            written += chunk(carry, 0, blockSize, out, outOff, false);
+            inOff += fill;
+            len -= fill;
+            process -= blockSize;
+            carryLength = 0;
+        }
+
+        // 其余完整分组直接从输入处理，不经过缓冲区
+        if (process > 0) {
+            written += chunk(in, inOff, process, out, outOff + written, false);
+            inOff += process;
+            len -= process;
+        }
+
+        System.arraycopy(in, inOff, carry, carryLength, len);
+        carryLength += len;
+        return written;
+    }
+
+    /**
+     * 处理一段输入，返回其中已经凑够的完整分组的输出
+     *
+     * @param in 输入字节数组
+     * @return 输出字节数组，可能为空
+     */
+    public byte[] update(byte[] in) {
+        byte[] out = new byte[updateOutputSize(in.length)];
+        int written = update(in, 0, in.length, out, 0);
+        return written == out.length ? out : Arrays.copyOf(out, written);
+    }
+
+    /**
+     * 处理缓冲区中剩余的数据，加密时进行填充，解密时去除填充，然后重置上下文
+     *
+     * @param out    输出字节数组，至少要有 finalOutputSize() 个字节的空间
+     * @param outOff 输出起始偏移量
+     * @return 写入 out 的字节数
+     */
+    public int doFinal(byte[] out, int outOff) {
+        try {
+            return chunk(carry, 0, carryLength, out, outOff, true);
+        } finally {
+            carryLength = 0;
+        }
+    }
+
+    /**
+     * 处理缓冲区中剩余的数据并返回输出，然后重置上下文
+     *
+     * @return 输出字节数组
+     */
+    public byte[] doFinal() {
+        byte[] out = new byte[finalOutputSize()];
+        int written = doFinal(out, 0);
+        return written == out.length ? out : Arrays.copyOf(out, written);
+    }
+
+    /**
+     * 下一次 update 输入 len 个字节时输出的最大长度
+     *
+     * @param len 输入长度
+     * @return 输出的最大长度（字节）
+     */
+    public int updateOutputSize(int len) {
+        int process = processLength(len);
+        return decrypt ? process : process / blockSize * algorithm.cipherBlockSize();
+    }
+
+    /**
+     * 现在调用 doFinal 时输出的最大长度
+     *
+     * @return 输出的最大长度（字节）
+     */
+    public int finalOutputSize() {
+        return decrypt ? algorithm.decryptOutputSize(carryLength) : algorithm.encryptOutputSize(carryLength);
+    }
+
+    /**
+     * 计算再输入 len 个字节后可以立即处理的长度。
+     * 加密时处理全部完整分组；解密时至少留下一个字节，使最后一个完整分组留到 doFinal 处理。
+     *
+     * @param len 输入长度
+     * @return 可以处理的长度，是分组大小的整数倍
+     */
+    private int processLength(int len) {
+        int available = carryLength + len;
+        if (decrypt) {
+            return available == 0 ? 0 : (available - 1) / blockSize * blockSize;
+        }
+        return available / blockSize * blockSize;
+    }
+
+    /**
+     * 调用算法的分块加密或解密
+     */
+    private int chunk(byte[] in, int inOff, int len, byte[] out, int outOff, boolean last) {
+        return decrypt
+                ? algorithm.decryptChunk(in, inOff, len, out, outOff, last)
+                : algorithm.encryptChunk(in, inOff, len, out, outOff, last);
+    }
+}
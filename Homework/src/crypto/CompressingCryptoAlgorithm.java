@@ -0,0 +1,519 @@
+/**
+ * 先压缩再加密的算法包装
+ * 文件用途:
+ * 该文件实现了 CryptoAlgorithm 的装饰器：加密前先用 Deflate 压缩数据，解密后再解压，密文本身无法压缩，压缩只能在加密之前进行。
+ * 日志、文本等容易压缩的数据变小后，RSA 需要的模幂次数随之减少，DES 则减少了读写磁盘的数据量。
+ * 数据按 frameSize 字节分帧，每帧独立压缩，帧头中记录该帧是否压缩；压缩后节省不到 1/16 的帧按原样保存，
+ * 已经压缩过或随机的数据不会因此变大或白白耗费解压时间。
+ * 交给被包装算法加密的数据由若干帧依次组成，每帧格式为 [1 字节标志][int 原始长度][int 保存的长度][数据]，均为大端序，
+ * 标志为 0 表示原样保存，为 1 表示 Deflate 压缩。
+ * 被包装算法解密时会去掉分组开头的 0 字节（RSA）时，每个明文分组的第一个字节固定为 1，其余字节才是帧数据，
+ * 保证各分组解密后长度不变。
+ * 被包装算法支持分块处理时，加密、解密文件都按帧流式进行，内存占用与文件大小无关。
+ */
+package crypto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public class CompressingCryptoAlgorithm extends CryptoAlgorithm {
+
+    // 默认的帧大小（字节）
+    public static final int DEFAULT_FRAME_SIZE = 256 << 10;
+
+    // 解密时接受的最大帧长度，防止损坏的帧头导致分配过大的数组
+    private static final int MAX_FRAME_SIZE = 16 << 20;
+
+    // Deflate 的最大压缩比（zlib 文档给出的理论上限），解密时拒绝超过该比例的帧
+    private static final int MAX_DEFLATE_RATIO = 1032;
+
+    // 帧头长度
+    private static final int FRAME_HEADER = 9;
+
+    // 帧标志
+    private static final byte FRAME_RAW = 0;
+    private static final byte FRAME_DEFLATE = 1;
+
+    // 每个明文分组开头的保护字节
+    private static final byte GUARD = 1;
+
+    // 被包装的算法
+    private final CryptoAlgorithm delegate;
+
+    // 压缩级别，0 到 9
+    private final int level;
+
+    // 帧大小（字节）
+    private final int frameSize;
+
+    /**
+     * 构造函数，使用最快的压缩级别和 DEFAULT_FRAME_SIZE
+     *
+     * @param delegate 被包装的算法
+     */
+    public CompressingCryptoAlgorithm(CryptoAlgorithm delegate) {
+        this(delegate, Deflater.BEST_SPEED, DEFAULT_FRAME_SIZE);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param delegate  被包装的算法
+     * @param level     压缩级别，0 到 9，见 Deflater
+     * @param frameSize 帧大小（字节），1 到 16 MB
+     */
+    public CompressingCryptoAlgorithm(CryptoAlgorithm delegate, int level, int frameSize) {
+        if (level < 0 || level > 9) {
+            throw new IllegalArgumentException("Compression level must be between 0 and 9.");
+        }
+        if (frameSize <= 0 || frameSize > MAX_FRAME_SIZE) {
+            throw new IllegalArgumentException("Frame size must be between 1 and " + MAX_FRAME_SIZE + " bytes.");
+        }
+        this.delegate = delegate;
+        this.level = level;
+        this.frameSize = frameSize;
+    }
+
+    @Override
+    public byte[] encrypt(byte[] data) {
+        ByteArrayOutputStream plain = new ByteArrayOutputStream(data.length / 2 + FRAME_HEADER);
+        try (OutputStream out = guard(plain)) {
+            compress(data, 0, data.length, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // 写入内存不会出错
+        }
+        return delegate.encrypt(plain.toByteArray());
+    }
+
+    /**
+     * 解密后解压
+     *
+     * @param data 待解密的数据
+     * @return 解密并解压后的数据
+     * @throws IllegalArgumentException 当帧格式错误或压缩数据损坏时抛出异常
+     */
+    @Override
+    public byte[] decrypt(byte[] data) {
+        byte[] plain = delegate.decrypt(data);
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream(plain.length * 2);
+        try (OutputStream out = unguard(new FrameDecoder(decompressed))) {
+            out.write(plain);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return decompressed.toByteArray();
+    }
+
+    /**
+     * 加密 len 字节明文后密文的最大长度，即所有帧都原样保存时的长度
+     *
+     * @param len 明文长度
+     * @return 密文的最大长度（字节）
+     */
+    @Override
+    public int encryptOutputSize(int len) {
+        long framed = len + (long) (len / frameSize + 1) * FRAME_HEADER;
+        if (delegate.stripsLeadingZeros()) {
+            int payload = delegate.plainBlockSize() - 1;
+            framed += (framed + payload - 1) / payload;
+        }
+        return delegate.encryptOutputSize((int) Math.min(Integer.MAX_VALUE, framed));
+    }
+
+    /**
+     * 解密 len 字节密文后明文的最大长度。Deflate 的压缩比不超过 MAX_DEFLATE_RATIO，因此这是一个很宽松的上界，
+     * 写入调用者缓冲区时按实际长度检查空间，不要求预留这么多
+     *
+     * @param len 密文长度
+     * @return 明文的最大长度（字节），超过 int 范围时为 Integer.MAX_VALUE
+     */
+    @Override
+    public int decryptOutputSize(int len) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) delegate.decryptOutputSize(len) * MAX_DEFLATE_RATIO);
+    }
+
+    /**
+     * 解密 in 中的数据并写入 out。解压后的长度事先无法确定，先解密到临时数组，再检查 out 的剩余空间
+     *
+     * @param in     密文字节数组
+     * @param inOff  密文起始偏移量
+     * @param len    密文长度
+     * @param out    明文字节数组
+     * @param outOff 明文起始偏移量
+     * @return 写入 out 的字节数
+     * @throws IllegalArgumentException 当偏移量、长度越界，输出空间不足或数据损坏时抛出异常
+     */
+    @Override
+    public int decrypt(byte[] in, int inOff, int len, byte[] out, int outOff) {
+        if (inOff < 0 || len < 0 || inOff > in.length - len) {
+            throw new IllegalArgumentException("Offset or length is out of range.");
+        }
+        byte[] plain = decrypt(Arrays.copyOfRange(in, inOff, inOff + len));
+        if (outOff < 0 || outOff > out.length - plain.length) {
+            throw new IllegalArgumentException("Output buffer is too small.");
+        }
+        System.arraycopy(plain, 0, out, outOff, plain.length);
+        return plain.length;
+    }
+
+    /**
+     * 解密 in 的 position 到 limit 之间的全部数据，结果从 out 的 position 开始写入。
+     * 先解密到临时数组，out 的剩余空间不足时抛出异常，两者的 position 都不变
+     *
+     * @param in  密文缓冲区
+     * @param out 明文缓冲区
+     * @return 写入 out 的字节数
+     * @throws IllegalArgumentException 当输出空间不足或数据损坏时抛出异常
+     */
+    @Override
+    public int decrypt(ByteBuffer in, ByteBuffer out) {
+        byte[] data = new byte[in.remaining()];
+        in.duplicate().get(data);
+        byte[] plain = decrypt(data);
+        if (out.remaining() < plain.length) {
+            throw new IllegalArgumentException("Output buffer is too small.");
+        }
+        in.position(in.limit());
+        out.put(plain);
+        return plain.length;
+    }
+
+    /**
+     * 加密文件：按帧读取、压缩后流式加密
+     *
+     * @param inputFilePath  待加密的文件路径
+     * @param outputFilePath 加密后的文件路径
+     * @throws IOException 文件读写错误
+     */
+    @Override
+    public void encryptFile(String inputFilePath, String outputFilePath) throws IOException {
+        if (delegate.plainBlockSize() <= 0) {
+            Files.write(Paths.get(outputFilePath), encrypt(Files.readAllBytes(Paths.get(inputFilePath))));
+            return;
+        }
+
+        try (InputStream in = Files.newInputStream(Paths.get(inputFilePath));
+             OutputStream file = Files.newOutputStream(Paths.get(outputFilePath));
+             OutputStream out = guard(new CipherOutputStream(delegate.newEncryptContext(), file))) {
+            byte[] raw = new byte[frameSize];
+            byte[] frame = new byte[FRAME_HEADER + frameSize];
+            Deflater deflater = new Deflater(level, true);
+            try {
+                int len;
+                while ((len = in.readNBytes(raw, 0, frameSize)) > 0) {
+                    out.write(frame, 0, encodeFrame(deflater, raw, 0, len, frame));
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * 解密文件：流式解密后按帧解压
+     *
+     * @param inputFilePath  待解密的文件路径
+     * @param outputFilePath 解密后的文件路径
+     * @throws IOException 文件读写错误
+     * @throws IllegalArgumentException 当帧格式错误或压缩数据损坏时抛出异常
+     */
+    @Override
+    public void decryptFile(String inputFilePath, String outputFilePath) throws IOException {
+        if (delegate.cipherBlockSize() <= 0) {
+            Files.write(Paths.get(outputFilePath), decrypt(Files.readAllBytes(Paths.get(inputFilePath))));
+            return;
+        }
+
+        CipherContext context = delegate.newDecryptContext();
+        try (InputStream in = Files.newInputStream(Paths.get(inputFilePath));
+             OutputStream file = Files.newOutputStream(Paths.get(outputFilePath));
+             OutputStream out = unguard(new FrameDecoder(file))) {
+            byte[] cipher = new byte[FilePipeline.chunkSize(delegate.cipherBlockSize())];
+            // 上下文中可能留有上一次的最后一个分组，输出长度可能超过本次输入
+            byte[] plain = new byte[cipher.length + delegate.cipherBlockSize()];
+            int len;
+            while ((len = in.readNBytes(cipher, 0, cipher.length)) > 0) {
+                out.write(plain, 0, context.update(cipher, 0, len, plain, 0));
+            }
+            out.write(context.doFinal());
+        }
+    }
+
+    /**
+     * 将数据分帧压缩后写入 out
+     *
+     * @param data 数据
+     * @param off  起始偏移量
+     * @param len  长度
+     * @param out  帧的输出
+     * @throws IOException 写入错误
+     */
+    private void compress(byte[] data, int off, int len, OutputStream out) throws IOException {
+        byte[] frame = new byte[FRAME_HEADER + Math.min(frameSize, len)];
+        Deflater deflater = new Deflater(level, true);
+        try {
+            for (int done = 0; done < len; done += frameSize) {
+                int n = Math.min(frameSize, len - done);
+                out.write(frame, 0, encodeFrame(deflater, data, off + done, n, frame));
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 压缩一帧。压缩后节省不到 1/16 时原样保存
+     *
+     * @param deflater 压缩器
+     * @param raw      原始数据
+     * @param off      起始偏移量
+     * @param len      长度
+     * @param frame    帧的输出，至少 FRAME_HEADER + len 字节
+     * @return 帧的长度
+     */
+    private static int encodeFrame(Deflater deflater, byte[] raw, int off, int len, byte[] frame) {
+        deflater.reset();
+        deflater.setInput(raw, off, len);
+        deflater.finish();
+        int limit = len - len / 16;
+        int stored = 0;
+        while (!deflater.finished() && stored < limit) {
+            stored += deflater.deflate(frame, FRAME_HEADER + stored, limit - stored);
+        }
+
+        byte flag = FRAME_DEFLATE;
+        if (!deflater.finished()) {
+            flag = FRAME_RAW;
+            stored = len;
+            System.arraycopy(raw, off, frame, FRAME_HEADER, len);
+        }
+        frame[0] = flag;
+        writeInt(frame, 1, len);
+        writeInt(frame, 5, stored);
+        return FRAME_HEADER + stored;
+    }
+
+    /**
+     * 被包装算法会去掉分组开头的 0 字节时，在每个明文分组开头插入保护字节
+     *
+     * @param out 下一级输出
+     * @return 帧数据的输出
+     */
+    private OutputStream guard(OutputStream out) {
+        return delegate.stripsLeadingZeros() ? new GuardOutputStream(out, delegate.plainBlockSize(), false) : out;
+    }
+
+    /**
+     * 被包装算法会去掉分组开头的 0 字节时，去掉每个明文分组开头的保护字节
+     *
+     * @param out 下一级输出
+     * @return 解密后明文的输出
+     */
+    private OutputStream unguard(OutputStream out) {
+        return delegate.stripsLeadingZeros() ? new GuardOutputStream(out, delegate.plainBlockSize(), true) : out;
+    }
+
+    /**
+     * 按大端序写入一个 int
+     */
+    private static void writeInt(byte[] data, int off, int value) {
+        data[off] = (byte) (value >>> 24);
+        data[off + 1] = (byte) (value >>> 16);
+        data[off + 2] = (byte) (value >>> 8);
+        data[off + 3] = (byte) value;
+    }
+
+    /**
+     * 按大端序读取一个 int
+     */
+    private static int readInt(byte[] data, int off) {
+        return ((data[off] & 0xFF) << 24) | ((data[off + 1] & 0xFF) << 16)
+                | ((data[off + 2] & 0xFF) << 8) | (data[off + 3] & 0xFF);
+    }
+
+    /**
+     * 将写入的数据用 CipherContext 加密后写入下一级输出，关闭时输出最后一块
+     */
+    private static final class CipherOutputStream extends OutputStream {
+        private final CipherContext context;
+        private final OutputStream out;
+
+        CipherOutputStream(CipherContext context, OutputStream out) {
+            this.context = context;
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            byte[] encrypted = new byte[context.updateOutputSize(len)];
+            out.write(encrypted, 0, context.update(b, off, len, encrypted, 0));
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.write(context.doFinal());
+            out.flush();
+        }
+    }
+
+    /**
+     * 插入或去掉每个明文分组开头的保护字节
+     */
+    private static final class GuardOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final int blockSize; // 明文分组大小，含保护字节
+        private final boolean remove; // 为 true 时去掉保护字节，否则插入
+        private int position; // 当前分组中已经输出的字节数
+
+        GuardOutputStream(OutputStream out, int blockSize, boolean remove) {
+            if (blockSize < 2) {
+                throw new IllegalArgumentException("Block size must be at least 2 bytes.");
+            }
+            this.out = out;
+            this.blockSize = blockSize;
+            this.remove = remove;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int end = off + len;
+            while (off < end) {
+                if (position == 0) {
+                    if (remove) {
+                        if (b[off++] != GUARD) {
+                            throw new IllegalArgumentException("Invalid block guard.");
+                        }
+                    } else {
+                        out.write(GUARD);
+                    }
+                    position = 1;
+                    continue;
+                }
+                int n = Math.min(end - off, blockSize - position);
+                out.write(b, off, n);
+                off += n;
+                position = (position + n) % blockSize;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * 解析帧并解压后写入下一级输出，不完整的帧留在缓冲区中等待后续数据
+     */
+    private static final class FrameDecoder extends OutputStream {
+        private final OutputStream out;
+        private final Inflater inflater = new Inflater(true);
+        private byte[] buffer = new byte[FRAME_HEADER];
+        private int length; // buffer 中的有效数据长度
+        private byte[] raw = new byte[0]; // 解压输出
+
+        FrameDecoder(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int end = off + len;
+            while (off < end) {
+                // 先凑齐帧头，再按帧头中的长度凑齐整帧
+                int need = length < FRAME_HEADER ? FRAME_HEADER : FRAME_HEADER + readInt(buffer, 5);
+                int n = Math.min(end - off, need - length);
+                System.arraycopy(b, off, buffer, length, n);
+                length += n;
+                off += n;
+
+                if (length == FRAME_HEADER && need == FRAME_HEADER) {
+                    int rawLength = readInt(buffer, 1);
+                    int stored = readInt(buffer, 5);
+                    if ((buffer[0] != FRAME_RAW && buffer[0] != FRAME_DEFLATE) || rawLength < 0 || rawLength > MAX_FRAME_SIZE
+                            || stored < 0 || stored > MAX_FRAME_SIZE || (buffer[0] == FRAME_RAW && stored != rawLength)
+                            || (long) stored * MAX_DEFLATE_RATIO < rawLength) {
+                        throw new IllegalArgumentException("Invalid compressed frame header.");
+                    }
+                    if (buffer.length < FRAME_HEADER + stored) {
+                        byte[] larger = new byte[FRAME_HEADER + stored];
+                        System.arraycopy(buffer, 0, larger, 0, FRAME_HEADER);
+                        buffer = larger;
+                    }
+                }
+                if (length >= FRAME_HEADER && length == FRAME_HEADER + readInt(buffer, 5)) {
+                    decodeFrame();
+                    length = 0;
+                }
+            }
+        }
+
+        /**
+         * 输出 buffer 中的一整帧
+         */
+        private void decodeFrame() throws IOException {
+            int rawLength = readInt(buffer, 1);
+            int stored = readInt(buffer, 5);
+            if (buffer[0] == FRAME_RAW) {
+                out.write(buffer, FRAME_HEADER, stored);
+                return;
+            }
+
+            if (raw.length < rawLength) {
+                raw = new byte[rawLength];
+            }
+            inflater.reset();
+            inflater.setInput(buffer, FRAME_HEADER, stored);
+            int inflated = 0;
+            try {
+                while (inflated < rawLength && !inflater.finished()) {
+                    int n = inflater.inflate(raw, inflated, rawLength - inflated);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    inflated += n;
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalArgumentException("Corrupted compressed frame.", e);
+            }
+            if (inflated != rawLength || !inflater.finished()) {
+                throw new IllegalArgumentException("Corrupted compressed frame.");
+            }
+            out.write(raw, 0, rawLength);
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            if (length != 0) {
+                throw new IllegalArgumentException("Truncated compressed frame.");
+            }
+            out.close();
+        }
+    }
+}
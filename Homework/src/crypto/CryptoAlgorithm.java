@@ -4,20 +4,42 @@
  * 创建时间: 2023-05-06
  * 文件用途:
  * 该文件定义了加密算法的抽象类 CryptoAlgorithm，提供了加密字符串、解密字节数组为字符串,加密文件、解密文件等等功能、以及加密，解密抽象方法的声明。
+ * 子类实现分块加密、解密方法后，加密、解密文件时按块流式处理，内存占用与文件大小无关；
+ * 也可以将文件按窗口映射到内存，直接在映射区之间加密、解密。
+ * 除返回新数组的 encrypt、decrypt 外，还提供写入调用者缓冲区的重载，配合 encryptOutputSize、decryptOutputSize 复用缓冲区，不必每次调用都分配结果数组；
+ * DES 的分组处理本身也不分配内存，RSA 的模幂运算仍会为每块创建 BigInteger。
+ * 长度未知的数据流可以通过 newEncryptContext、newDecryptContext 创建的 CipherContext 增量处理。
+ * 需要运行时指标时，可以用 InstrumentedCryptoAlgorithm 包装任意算法。
  */
 package crypto;
 
 // 导入 java io 和 nio 库
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * 加密算法抽象类
  */
 public abstract class CryptoAlgorithm {
 
+    // 映射文件时每个窗口的目标大小（字节），实际大小会向下取整为分组大小的整数倍
+    private static final int MAP_WINDOW_SIZE = 1 << 26;
+
+    // 密钥文件的 POSIX 权限，只有所有者可以读写
+    private static final Set<PosixFilePermission> KEY_FILE_PERMISSIONS = PosixFilePermissions.fromString("rw-------");
+
     /**
      * 加密函数抽象方法，留给子类实现
      *
@@ -34,6 +56,311 @@ public abstract class CryptoAlgorithm {
      */
     public abstract byte[] decrypt(byte[] data);
 
+    /**
+     * 加密 len 字节明文后密文的最大长度，用于预先分配输出缓冲区
+     *
+     * @param len 明文长度
+     * @return 密文的最大长度（字节）
+     */
+    public int encryptOutputSize(int len) {
+        if (plainBlockSize() <= 0) {
+            throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support output size queries.");
+        }
+        return (len / plainBlockSize() + 1) * cipherBlockSize();
+    }
+
+    /**
+     * 解密 len 字节密文后明文的最大长度，用于预先分配输出缓冲区
+     *
+     * @param len 密文长度
+     * @return 明文的最大长度（字节）
+     */
+    public int decryptOutputSize(int len) {
+        return len;
+    }
+
+    /**
+     * 加密 in 中的数据并写入 out，out 中至少要有 encryptOutputSize(len) 个字节的空间。
+     * 支持分块加密的算法直接在两个数组之间处理，不分配新的数组；输入和输出区域不能部分重叠。
+     *
+     * @param in     明文字节数组
+     * @param inOff  明文起始偏移量
+     * @param len    明文长度
+     * @param out    密文字节数组
+     * @param outOff 密文起始偏移量
+     * @return 写入 out 的字节数
+     * @throws IllegalArgumentException 当偏移量、长度越界或输出空间不足时抛出异常
+     */
+    public int encrypt(byte[] in, int inOff, int len, byte[] out, int outOff) {
+        checkRange(in, inOff, len);
+        checkRange(out, outOff, encryptOutputSize(len));
+        if (plainBlockSize() > 0) {
+            return encryptChunk(in, inOff, len, out, outOff, true);
+        }
+
+        byte[] encryptedData = encrypt(Arrays.copyOfRange(in, inOff, inOff + len));
+        System.arraycopy(encryptedData, 0, out, outOff, encryptedData.length);
+        return encryptedData.length;
+    }
+
+    /**
+     * 解密 in 中的数据并写入 out，out 中至少要有 decryptOutputSize(len) 个字节的空间。
+     * 支持分块解密的算法直接在两个数组之间处理，不分配新的数组；输入和输出区域不能部分重叠。
+     *
+     * @param in     密文字节数组
+     * @param inOff  密文起始偏移量
+     * @param len    密文长度
+     * @param out    明文字节数组
+     * @param outOff 明文起始偏移量
+     * @return 写入 out 的字节数
+     * @throws IllegalArgumentException 当偏移量、长度越界或输出空间不足时抛出异常
+     */
+    public int decrypt(byte[] in, int inOff, int len, byte[] out, int outOff) {
+        checkRange(in, inOff, len);
+        checkRange(out, outOff, decryptOutputSize(len));
+        if (cipherBlockSize() > 0) {
+            return decryptChunk(in, inOff, len, out, outOff, true);
+        }
+
+        byte[] decryptedData = decrypt(Arrays.copyOfRange(in, inOff, inOff + len));
+        System.arraycopy(decryptedData, 0, out, outOff, decryptedData.length);
+        return decryptedData.length;
+    }
+
+    /**
+     * 加密 in 的 position 到 limit 之间的全部数据，结果从 out 的 position 开始写入，两者的 position 都会前移。
+     * 支持堆内缓冲区和直接缓冲区，out 中至少要有 encryptOutputSize(in.remaining()) 个字节的剩余空间。
+     *
+     * @param in  明文缓冲区
+     * @param out 密文缓冲区
+     * @return 写入 out 的字节数
+     * @throws IllegalArgumentException 当输出空间不足时抛出异常
+     */
+    public int encrypt(ByteBuffer in, ByteBuffer out) {
+        if (out.remaining() < encryptOutputSize(in.remaining())) {
+            throw new IllegalArgumentException("Output buffer is too small.");
+        }
+        int start = out.position();
+        if (plainBlockSize() > 0) {
+            encryptChunk(in, out, true);
+        } else {
+            byte[] data = new byte[in.remaining()];
+            in.get(data);
+            out.put(encrypt(data));
+        }
+        return out.position() - start;
+    }
+
+    /**
+     * 解密 in 的 position 到 limit 之间的全部数据，结果从 out 的 position 开始写入，两者的 position 都会前移。
+     * 支持堆内缓冲区和直接缓冲区，out 中至少要有 decryptOutputSize(in.remaining()) 个字节的剩余空间。
+     *
+     * @param in  密文缓冲区
+     * @param out 明文缓冲区
+     * @return 写入 out 的字节数
+     * @throws IllegalArgumentException 当输出空间不足时抛出异常
+     */
+    public int decrypt(ByteBuffer in, ByteBuffer out) {
+        if (out.remaining() < decryptOutputSize(in.remaining())) {
+            throw new IllegalArgumentException("Output buffer is too small.");
+        }
+        int start = out.position();
+        if (cipherBlockSize() > 0) {
+            decryptChunk(in, out, true);
+        } else {
+            byte[] data = new byte[in.remaining()];
+            in.get(data);
+            out.put(decrypt(data));
+        }
+        return out.position() - start;
+    }
+
+    /**
+     * 创建增量加密上下文，按 update/doFinal 方式加密长度未知的数据流
+     *
+     * @return 新的加密上下文
+     * @throws UnsupportedOperationException 当算法不支持分块加密时抛出异常
+     */
+    public CipherContext newEncryptContext() {
+        return new CipherContext(this, false);
+    }
+
+    /**
+     * 创建增量解密上下文，按 update/doFinal 方式解密长度未知的数据流
+     *
+     * @return 新的解密上下文
+     * @throws UnsupportedOperationException 当算法不支持分块解密时抛出异常
+     */
+    public CipherContext newDecryptContext() {
+        return new CipherContext(this, true);
+    }
+
+    /**
+     * 检查数组区间是否越界
+     *
+     * @param array  字节数组
+     * @param offset 起始偏移量
+     * @param len    长度
+     * @throws IllegalArgumentException 当区间越界时抛出异常
+     */
+    private static void checkRange(byte[] array, int offset, int len) {
+        if (offset < 0 || len < 0 || offset > array.length - len) {
+            throw new IllegalArgumentException("Offset or length is out of range.");
+        }
+    }
+
+    /**
+     * 明文分组大小，按该大小的整数倍切分明文时各块可以独立加密。
+     * 返回 0 表示不支持分块加密，加密、解密文件时将一次性读入整个文件。
+     *
+     * @return 明文分组大小（字节）
+     */
+    protected int plainBlockSize() {
+        return 0;
+    }
+
+    /**
+     * 密文分组大小，按该大小的整数倍切分密文时各块可以独立解密。
+     *
+     * @return 密文分组大小（字节）
+     */
+    protected int cipherBlockSize() {
+        return 0;
+    }
+
+    /**
+     * 解密时是否会去掉每个明文分组开头的 0 字节，即开头为 0 的分组解密后比加密前短
+     *
+     * @return 会去掉时返回 true
+     */
+    boolean stripsLeadingZeros() {
+        return false;
+    }
+
+    /**
+     * 分块加密。将 in 中的一块明文加密后写入 out。
+     * 除最后一块外，len 必须是 plainBlockSize() 的整数倍；依次加密各块并拼接结果，与一次性调用 encrypt 的结果相同。
+     *
+     * @param in     明文字节数组
+     * @param inOff  明文起始偏移量
+     * @param len    明文长度
+     * @param out    密文字节数组，至少能容纳 (len / plainBlockSize() + 1) * cipherBlockSize() 个字节
+     * @param outOff 密文起始偏移量
+     * @param last   是否为最后一块
+     * @return 写入 out 的字节数
+     */
+    protected int encryptChunk(byte[] in, int inOff, int len, byte[] out, int outOff, boolean last) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support chunked encryption.");
+    }
+
+    /**
+     * 分块解密。将 in 中的一块密文解密后写入 out。
+     * 除最后一块外，len 必须是 cipherBlockSize() 的整数倍；依次解密各块并拼接结果，与一次性调用 decrypt 的结果相同。
+     *
+     * @param in     密文字节数组
+     * @param inOff  密文起始偏移量
+     * @param len    密文长度
+     * @param out    明文字节数组，至少能容纳 len 个字节
+     * @param outOff 明文起始偏移量
+     * @param last   是否为最后一块
+     * @return 写入 out 的字节数
+     */
+    protected int decryptChunk(byte[] in, int inOff, int len, byte[] out, int outOff, boolean last) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support chunked decryption.");
+    }
+
+
+    /**
+     * 分块加密 ByteBuffer 中的数据，读取 in 的 position 到 limit 之间的全部数据，结果从 out 的 position 开始写入。
+     * 默认实现对堆内缓冲区直接使用其底层数组，否则每次将若干个分组复制到堆内数组后调用 encryptChunk，子类可以覆盖此方法直接读写缓冲区。
+     *
+     * @param in   明文缓冲区，除最后一块外剩余长度必须是 plainBlockSize() 的整数倍
+     * @param out  密文缓冲区
+     * @param last 是否为最后一块
+     */
+    protected void encryptChunk(ByteBuffer in, ByteBuffer out, boolean last) {
+        if (in.hasArray() && out.hasArray() && !out.isReadOnly()) {
+            int len = in.remaining();
+            int written = encryptChunk(in.array(), in.arrayOffset() + in.position(), len,
+                    out.array(), out.arrayOffset() + out.position(), last);
+            in.position(in.position() + len);
+            out.position(out.position() + written);
+            return;
+        }
+
+        int step = plainBlockSize() * 64;
+        byte[] input = new byte[Math.min(step, in.remaining())];
+        byte[] output = new byte[(input.length / plainBlockSize() + 1) * cipherBlockSize()];
+        do {
+            int len = Math.min(step, in.remaining());
+            in.get(input, 0, len);
+            out.put(output, 0, encryptChunk(input, 0, len, output, 0, last && !in.hasRemaining()));
+        } while (in.hasRemaining());
+    }
+
+    /**
+     * 分块解密 ByteBuffer 中的数据，读取 in 的 position 到 limit 之间的全部数据，结果从 out 的 position 开始写入。
+     * 默认实现对堆内缓冲区直接使用其底层数组，否则每次将若干个分组复制到堆内数组后调用 decryptChunk，子类可以覆盖此方法直接读写缓冲区。
+     *
+     * @param in   密文缓冲区，除最后一块外剩余长度必须是 cipherBlockSize() 的整数倍
+     * @param out  明文缓冲区
+     * @param last 是否为最后一块
+     */
+    protected void decryptChunk(ByteBuffer in, ByteBuffer out, boolean last) {
+        if (in.hasArray() && out.hasArray() && !out.isReadOnly()) {
+            int len = in.remaining();
+            int written = decryptChunk(in.array(), in.arrayOffset() + in.position(), len,
+                    out.array(), out.arrayOffset() + out.position(), last);
+            in.position(in.position() + len);
+            out.position(out.position() + written);
+            return;
+        }
+
+        int step = cipherBlockSize() * 64;
+        byte[] input = new byte[Math.min(step, in.remaining())];
+        byte[] output = new byte[input.length];
+        do {
+            int len = Math.min(step, in.remaining());
+            in.get(input, 0, len);
+            out.put(output, 0, decryptChunk(input, 0, len, output, 0, last && !in.hasRemaining()));
+        } while (in.hasRemaining());
+    }
+
+    /**
+     * 计算映射文件时每个窗口的大小
+     *
+     * @param blockSize 分组大小
+     * @return 不超过 MAP_WINDOW_SIZE 的分组大小的最大整数倍，至少为一个分组
+     */
+    static int mapWindowSize(int blockSize) {
+        return Math.max(1, MAP_WINDOW_SIZE / blockSize) * blockSize;
+    }
+
+    /**
+     * 写入密钥文件。文件系统支持 POSIX 权限时，文件以 rw-------（0600）创建，只有所有者可以读写；
+     * 文件已存在时先将权限收紧为 rw-------，再截断并写入，密钥不会写进其他用户可读的文件。
+     *
+     * @param filePath 密钥文件路径，已存在时会被覆盖
+     * @param data     文件内容，从 position 写到 limit
+     * @throws IOException 文件写入错误
+     */
+    static void writeKeyFile(String filePath, ByteBuffer data) throws IOException {
+        Path path = Paths.get(filePath);
+        FileAttribute<?>[] attributes = {};
+        if (path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            attributes = new FileAttribute<?>[]{PosixFilePermissions.asFileAttribute(KEY_FILE_PERMISSIONS)};
+            if (Files.exists(path)) {
+                Files.setPosixFilePermissions(path, KEY_FILE_PERMISSIONS);
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(path, EnumSet.of(StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), attributes)) {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+    }
 
     /**
      * 加密字符串
@@ -66,6 +393,14 @@ public abstract class CryptoAlgorithm {
      * @throws IOException 文件读写错误
      */
     public void encryptFile(String inputFilePath, String outputFilePath) throws IOException {
+        // 支持分块加密时按块流式处理
+        if (plainBlockSize() > 0) {
+            int chunkSize = FilePipeline.chunkSize(plainBlockSize());
+            int outputSize = (chunkSize / plainBlockSize() + 1) * cipherBlockSize();
+            FilePipeline.process(getClass().getSimpleName(), Paths.get(inputFilePath), Paths.get(outputFilePath), chunkSize, outputSize, this::encryptChunk);
+            return;
+        }
+
         // 读取待加密文件的数据
         Path inputFile = Paths.get(inputFilePath);
         byte[] inputData = Files.readAllBytes(inputFile);
@@ -84,6 +419,13 @@ public abstract class CryptoAlgorithm {
      * @throws IOException 文件读写错误
      */
     public void decryptFile(String inputFilePath, String outputFilePath) throws IOException {
+        // 支持分块解密时按块流式处理
+        if (cipherBlockSize() > 0) {
+            int chunkSize = FilePipeline.chunkSize(cipherBlockSize());
+            FilePipeline.process(getClass().getSimpleName(), Paths.get(inputFilePath), Paths.get(outputFilePath), chunkSize, chunkSize, this::decryptChunk);
+            return;
+        }
+
         // 读取待解密文件的数据
         Path inputFile = Paths.get(inputFilePath);
         byte[] encryptedData = Files.readAllBytes(inputFile);
@@ -93,4 +435,87 @@ public abstract class CryptoAlgorithm {
         Path outputFile = Paths.get(outputFilePath);
         Files.write(outputFile, decryptedData);
     }
+
+    /**
+     * 以内存映射方式加密文件。
+     * 输入和输出文件按窗口映射到内存，直接在两个映射区之间加密，不经过堆内的中间数组。
+     *
+     * @param inputFilePath  待加密的文件路径
+     * @param outputFilePath 加密后的文件路径
+     * @throws IOException 文件读写错误
+     */
+    public void encryptFileMapped(String inputFilePath, String outputFilePath) throws IOException {
+        mapFile(Paths.get(inputFilePath), Paths.get(outputFilePath), false);
+    }
+
+    /**
+     * 以内存映射方式解密文件。
+     * 输入和输出文件按窗口映射到内存，直接在两个映射区之间解密，不经过堆内的中间数组。
+     *
+     * @param inputFilePath  待解密的文件路径
+     * @param outputFilePath 解密后的文件路径
+     * @throws IOException 文件读写错误
+     */
+    public void decryptFileMapped(String inputFilePath, String outputFilePath) throws IOException {
+        mapFile(Paths.get(inputFilePath), Paths.get(outputFilePath), true);
+    }
+
+    /**
+     * 逐个窗口映射输入、输出文件并加密或解密。
+     * 输出窗口按最大可能长度映射，处理完成后再将输出文件截断为实际长度。
+     * 输入和输出是同一个文件时先写入同目录下的临时文件，完成后替换原文件；不创建第二个文件的原地处理见 DES.encryptFileInPlace。
+     *
+     * @param inputFile  输入文件
+     * @param outputFile 输出文件，已存在时会被覆盖，可以与输入文件相同
+     * @param decrypt    为 true 时解密，否则加密
+     * @throws IOException 文件读写错误
+     */
+    private void mapFile(Path inputFile, Path outputFile, boolean decrypt) throws IOException {
+        int blockSize = decrypt ? cipherBlockSize() : plainBlockSize();
+        if (blockSize <= 0) {
+            throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support chunked processing.");
+        }
+
+        Path temp = FilePipeline.sameFileTemp(inputFile, outputFile);
+        try {
+            mapWindows(inputFile, temp != null ? temp : outputFile, mapWindowSize(blockSize), decrypt);
+            if (temp != null) {
+                FilePipeline.replace(temp, outputFile);
+            }
+        } finally {
+            if (temp != null) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * 逐个窗口映射并处理，输入和输出不能是同一个文件
+     */
+    private void mapWindows(Path inputFile, Path outputFile, long window, boolean decrypt) throws IOException {
+        try (FileChannel in = FileChannel.open(inputFile, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(outputFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long inPosition = 0, outPosition = 0;
+            do {
+                int len = (int) Math.min(window, size - inPosition);
+                boolean last = inPosition + len >= size;
+                int outputSize = decrypt ? len : (len / plainBlockSize() + 1) * cipherBlockSize();
+
+                MappedByteBuffer source = in.map(FileChannel.MapMode.READ_ONLY, inPosition, len);
+                MappedByteBuffer target = out.map(FileChannel.MapMode.READ_WRITE, outPosition, outputSize);
+                if (decrypt) {
+                    decryptChunk(source, target, last);
+                } else {
+                    encryptChunk(source, target, last);
+                }
+
+                inPosition += len;
+                outPosition += target.position();
+            } while (inPosition < size);
+
+            out.truncate(outPosition);
+        }
+    }
 }
@@ -0,0 +1,552 @@
+/**
+ * 目录树批量加密、解密
+ * 文件用途:
+ * 该文件实现了在一个 JVM 中批量加密、解密整个目录树：遍历源目录，按相同的相对路径写入目标目录，
+ * 所有文件共用一个算法对象和一组固定数量的工作线程，不必为每个文件启动 JVM、计算密钥调度。
+ * 小于 PACK_BYTES 的文件打包成共享任务，由一个工作线程依次处理，减少任务调度的开销；
+ * 算法支持分块处理时，大于一段的文件切分成若干段，由多个工作线程分别读取、加密并写入输出文件的对应位置；
+ * 其余文件各自作为一个任务，通过 encryptFile、decryptFile 流式处理。
+ * 同时处理的文件数和在途数据量（已读入或排队等待处理的字节数）都有上限，遍历线程在达到上限时等待，
+ * 因此内存占用与目录中的文件数和文件大小无关。每个输出文件与单独调用 encryptFile、decryptFile 的结果相同。
+ */
+package crypto;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public final class CryptoBatch {
+
+    // 小于该大小的文件打包成共享任务（字节），每个打包任务的数据量也以此为目标
+    static final int PACK_BYTES = 1 << 20;
+
+    // 每个打包任务最多包含的文件数
+    private static final int PACK_FILES = 256;
+
+    // 大文件切分后每段的目标大小（字节），实际大小会向下取整为分组大小的整数倍
+    static final int SEGMENT_SIZE = 8 << 20;
+
+    // 每个小文件至少计入在途数据的字节数，限制排队中的空文件和极小文件的个数
+    private static final int MIN_FILE_CHARGE = 4 << 10;
+
+    // 通过 encryptFile、decryptFile 流式处理的文件计入在途数据的字节数，即 FilePipeline 的四块缓冲区
+    private static final int PIPELINE_CHARGE = 4 * FilePipeline.CHUNK_SIZE;
+
+    // 使用的算法，所有工作线程共用
+    private final CryptoAlgorithm algorithm;
+
+    // 工作线程数
+    private final int threads;
+
+    // 同时处理的文件数上限，每个文件占用一个输入和一个输出文件句柄
+    private final int maxOpenFiles;
+
+    // 在途数据量上限（字节）
+    private final long maxBytesInFlight;
+
+    /**
+     * 批量处理的统计结果
+     */
+    public static final class Summary {
+        private final long files;
+        private final long tasks;
+        private final long bytesRead;
+        private final long bytesWritten;
+        private final long elapsedNanos;
+
+        Summary(long files, long tasks, long bytesRead, long bytesWritten, long elapsedNanos) {
+            this.files = files;
+            this.tasks = tasks;
+            this.bytesRead = bytesRead;
+            this.bytesWritten = bytesWritten;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return 处理的文件数
+         */
+        public long files() {
+            return files;
+        }
+
+        /**
+         * @return 提交给工作线程的任务数
+         */
+        public long tasks() {
+            return tasks;
+        }
+
+        /**
+         * @return 读取的字节数
+         */
+        public long bytesRead() {
+            return bytesRead;
+        }
+
+        /**
+         * @return 写入的字节数
+         */
+        public long bytesWritten() {
+            return bytesWritten;
+        }
+
+        /**
+         * @return 总耗时（纳秒），包括遍历目录的时间
+         */
+        public long elapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return 按读取字节数计算的吞吐量（MB/s）
+         */
+        public double throughput() {
+            return elapsedNanos == 0 ? 0 : bytesRead / 1e6 / (elapsedNanos / 1e9);
+        }
+
+        /**
+         * @return 每秒处理的文件数
+         */
+        public double filesPerSecond() {
+            return elapsedNanos == 0 ? 0 : files / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d files, %d tasks, %d bytes read, %d bytes written in %.3f s (%.1f MB/s, %.0f files/s)",
+                    files, tasks, bytesRead, bytesWritten, elapsedNanos / 1e9, throughput(), filesPerSecond());
+        }
+    }
+
+    /**
+     * 构造函数，每个处理器一个工作线程，最多同时处理 64 个文件，在途数据不超过 256 MB
+     *
+     * @param algorithm 使用的算法，必须可以被多个线程同时调用
+     */
+    public CryptoBatch(CryptoAlgorithm algorithm) {
+        this(algorithm, Runtime.getRuntime().availableProcessors(), 64, 256L << 20);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param algorithm        使用的算法，必须可以被多个线程同时调用
+     * @param threads          工作线程数
+     * @param maxOpenFiles     同时处理的文件数上限，一个打包任务同一时间只处理其中一个文件
+     * @param maxBytesInFlight 在途数据量上限（字节），单个任务超过上限时独占全部额度
+     */
+    public CryptoBatch(CryptoAlgorithm algorithm, int threads, int maxOpenFiles, long maxBytesInFlight) {
+        if (threads <= 0 || maxOpenFiles <= 0 || maxBytesInFlight <= 0) {
+            throw new IllegalArgumentException("Threads, open files and bytes in flight must be positive.");
+        }
+        this.algorithm = algorithm;
+        this.threads = threads;
+        this.maxOpenFiles = maxOpenFiles;
+        this.maxBytesInFlight = maxBytesInFlight;
+    }
+
+    /**
+     * 加密 source 下的所有普通文件，按相同的相对路径写入 target，已存在的文件会被覆盖。
+     * source 是普通文件时直接加密为 target。
+     *
+     * @param source 源目录或文件
+     * @param target 目标目录或文件，不能位于 source 之内
+     * @return 统计结果
+     * @throws IOException 遍历目录、读写文件出错或某个文件无法加密时抛出，异常信息中包含出错的文件；
+     *                     第一个错误发生后不再提交新的任务，已经开始的任务仍会完成
+     */
+    public Summary encryptTree(Path source, Path target) throws IOException {
+        return new Run(true).process(source, target);
+    }
+
+    /**
+     * 解密 source 下的所有普通文件，按相同的相对路径写入 target，已存在的文件会被覆盖。
+     * source 是普通文件时直接解密为 target。
+     *
+     * @param source 源目录或文件
+     * @param target 目标目录或文件，不能位于 source 之内
+     * @return 统计结果
+     * @throws IOException 遍历目录、读写文件出错或某个文件无法解密时抛出，异常信息中包含出错的文件；
+     *                     第一个错误发生后不再提交新的任务，已经开始的任务仍会完成
+     */
+    public Summary decryptTree(Path source, Path target) throws IOException {
+        return new Run(false).process(source, target);
+    }
+
+    /**
+     * 一次批量处理的状态
+     */
+    private final class Run {
+        private final boolean encrypt;
+
+        // 输入、输出的分组大小，不支持分块处理时为 0
+        private final int inBlock;
+        private final int outBlock;
+
+        // 大文件切分后每段的大小，不能切分时为 0。RSA 解密后各块长度不定，无法预先确定输出位置，不切分
+        private final int segment;
+
+        // 在途数据额度，以 KB 为单位
+        private final int budgetUnits;
+        private final Semaphore budget;
+
+        // 同时处理的文件数额度
+        private final Semaphore openFiles = new Semaphore(maxOpenFiles);
+
+        private final ExecutorService workers;
+
+        private final AtomicLong files = new AtomicLong();
+        private final AtomicLong bytesRead = new AtomicLong();
+        private final AtomicLong bytesWritten = new AtomicLong();
+        private final AtomicReference<IOException> failure = new AtomicReference<>();
+        private long tasks;
+
+        // 正在打包的小文件，依次为源文件和目标文件
+        private List<Path> pack = new ArrayList<>();
+        private long packBytes;
+
+        Run(boolean encrypt) {
+            this.encrypt = encrypt;
+            this.inBlock = encrypt ? algorithm.plainBlockSize() : algorithm.cipherBlockSize();
+            this.outBlock = encrypt ? algorithm.cipherBlockSize() : algorithm.plainBlockSize();
+            boolean splittable = inBlock > 0 && (encrypt || !algorithm.stripsLeadingZeros());
+            this.segment = splittable ? Math.max(1, SEGMENT_SIZE / inBlock) * inBlock : 0;
+            this.budgetUnits = (int) Math.min(Integer.MAX_VALUE, Math.max(1, maxBytesInFlight >> 10));
+            this.budget = new Semaphore(budgetUnits);
+
+            AtomicInteger count = new AtomicInteger();
+            this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "crypto-batch-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        /**
+         * 遍历 source 并等待所有任务完成
+         */
+        Summary process(Path source, Path target) throws IOException {
+            Path from = source.toAbsolutePath().normalize();
+            Path to = target.toAbsolutePath().normalize();
+            if (to.startsWith(from)) {
+                throw new IllegalArgumentException("Target must not be inside the source directory.");
+            }
+
+            long start = System.nanoTime();
+            try {
+                if (!Files.isDirectory(from) && to.getParent() != null) {
+                    Files.createDirectories(to.getParent());
+                }
+                Files.walkFileTree(from, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                        Files.createDirectories(to.resolve(from.relativize(dir)));
+                        return failure.get() == null ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                        if (attrs.isRegularFile()) {
+                            schedule(file, to.resolve(from.relativize(file)), attrs.size());
+                        }
+                        return failure.get() == null ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+                    }
+                });
+                flushPack();
+            } finally {
+                awaitWorkers();
+            }
+
+            IOException e = failure.get();
+            if (e != null) {
+                throw e;
+            }
+            return new Summary(files.get(), tasks, bytesRead.get(), bytesWritten.get(), System.nanoTime() - start);
+        }
+
+        /**
+         * 按大小将文件加入打包任务、切分或单独提交
+         */
+        private void schedule(Path file, Path out, long size) throws IOException {
+            if (segment > 0 && size > segment) {
+                flushPack();
+                split(file, out, size);
+            } else if (size >= PACK_BYTES) {
+                flushPack();
+                long charge = inBlock > 0 ? Math.min(size, PIPELINE_CHARGE) : size;
+                submit(charge, true, () -> {
+                    if (failure.get() == null) {
+                        processFile(file, out, size);
+                    }
+                });
+            } else {
+                pack.add(file);
+                pack.add(out);
+                packBytes += Math.max(size, MIN_FILE_CHARGE);
+                if (pack.size() >= 2 * PACK_FILES || packBytes >= PACK_BYTES) {
+                    flushPack();
+                }
+            }
+        }
+
+        /**
+         * 提交正在打包的小文件
+         */
+        private void flushPack() throws IOException {
+            if (pack.isEmpty()) {
+                return;
+            }
+            List<Path> paths = pack;
+            pack = new ArrayList<>();
+            long charge = packBytes;
+            packBytes = 0;
+            submit(charge, true, () -> {
+                for (int i = 0; i < paths.size() && failure.get() == null; i += 2) {
+                    processSmallFile(paths.get(i), paths.get(i + 1));
+                }
+            });
+        }
+
+        /**
+         * 将大文件切分成若干段分别提交，各段共用一对文件通道，最后完成的一段负责关闭
+         */
+        private void split(Path file, Path out, long size) throws IOException {
+            int count = (int) ((size + segment - 1) / segment);
+            acquire(openFiles, 1);
+            SplitFile split;
+            try {
+                split = new SplitFile(file, out, count);
+            } catch (IOException | RuntimeException e) {
+                openFiles.release();
+                throw e;
+            }
+
+            int submitted = 0;
+            try {
+                for (; submitted < count && failure.get() == null; submitted++) {
+                    long position = (long) submitted * segment;
+                    int len = (int) Math.min(segment, size - position);
+                    boolean last = submitted == count - 1;
+                    submit(len, false, () -> {
+                        try {
+                            if (failure.get() == null) {
+                                processSegment(split, position, len, last);
+                            }
+                        } finally {
+                            split.complete();
+                        }
+                    });
+                }
+            } finally {
+                // 没有提交的各段也要计入，保证通道被关闭
+                for (; submitted < count; submitted++) {
+                    split.complete();
+                }
+            }
+        }
+
+        /**
+         * 占用额度后提交任务，任务结束时归还额度。出错的任务记录第一个错误，之后排队的任务自行跳过
+         *
+         * @param bytes    计入在途数据的字节数
+         * @param holdFile 是否占用一个同时处理的文件数额度
+         * @param task     任务
+         */
+        private void submit(long bytes, boolean holdFile, Task task) throws IOException {
+            int units = (int) Math.min(budgetUnits, Math.max(1, (bytes + 1023) >> 10));
+            acquire(budget, units);
+            if (holdFile) {
+                try {
+                    acquire(openFiles, 1);
+                } catch (IOException e) {
+                    budget.release(units);
+                    throw e;
+                }
+            }
+            tasks++;
+
+            workers.execute(() -> {
+                try {
+                    task.run();
+                } catch (IOException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    budget.release(units);
+                    if (holdFile) {
+                        openFiles.release();
+                    }
+                }
+            });
+        }
+
+        /**
+         * 在遍历线程中等待额度
+         */
+        private void acquire(Semaphore semaphore, int permits) throws IOException {
+            try {
+                semaphore.acquire(permits);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Batch processing was interrupted.");
+            }
+        }
+
+        /**
+         * 等待已提交的任务全部完成。被中断时取消排队中的任务
+         */
+        private void awaitWorkers() throws IOException {
+            workers.shutdown();
+            try {
+                while (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                    // 继续等待
+                }
+            } catch (InterruptedException e) {
+                workers.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Batch processing was interrupted.");
+            }
+        }
+
+        /**
+         * 一次性读入、处理并写出一个小文件
+         */
+        private void processSmallFile(Path file, Path out) throws IOException {
+            try {
+                byte[] data = Files.readAllBytes(file);
+                byte[] result = encrypt ? algorithm.encrypt(data) : algorithm.decrypt(data);
+                Files.write(out, result);
+                record(data.length, result.length);
+            } catch (IOException | RuntimeException e) {
+                throw failed(file, e);
+            }
+        }
+
+        /**
+         * 通过 encryptFile、decryptFile 流式处理一个文件
+         */
+        private void processFile(Path file, Path out, long size) throws IOException {
+            try {
+                if (encrypt) {
+                    algorithm.encryptFile(file.toString(), out.toString());
+                } else {
+                    algorithm.decryptFile(file.toString(), out.toString());
+                }
+                record(size, Files.size(out));
+            } catch (IOException | RuntimeException e) {
+                throw failed(file, e);
+            }
+        }
+
+        /**
+         * 处理大文件从 position 开始的 len 字节，结果写入输出文件的对应位置
+         */
+        private void processSegment(SplitFile split, long position, int len, boolean last) throws IOException {
+            try {
+                byte[] input = new byte[len];
+                ByteBuffer buffer = ByteBuffer.wrap(input);
+                while (buffer.hasRemaining()) {
+                    if (split.in.read(buffer, position + buffer.position()) < 0) {
+                        throw new IOException("Input file changed during processing.");
+                    }
+                }
+
+                byte[] output = new byte[(len / inBlock + 1) * outBlock];
+                int written = encrypt
+                        ? algorithm.encryptChunk(input, 0, len, output, 0, last)
+                        : algorithm.decryptChunk(input, 0, len, output, 0, last);
+                long outPosition = position / inBlock * outBlock;
+                buffer = ByteBuffer.wrap(output, 0, written);
+                while (buffer.hasRemaining()) {
+                    split.out.write(buffer, outPosition + buffer.position());
+                }
+                bytesRead.addAndGet(len);
+                bytesWritten.addAndGet(written);
+            } catch (IOException | RuntimeException e) {
+                throw failed(split.file, e);
+            }
+        }
+
+        /**
+         * 记录一个处理完的文件
+         */
+        private void record(long read, long written) {
+            files.incrementAndGet();
+            bytesRead.addAndGet(read);
+            bytesWritten.addAndGet(written);
+        }
+
+        /**
+         * 包装出错文件的异常
+         */
+        private IOException failed(Path file, Exception e) {
+            return new IOException("Failed to " + (encrypt ? "encrypt " : "decrypt ") + file + ": " + e.getMessage(), e);
+        }
+
+        /**
+         * 切分处理的大文件，各段共用输入、输出通道
+         */
+        private final class SplitFile {
+            final Path file;
+            final FileChannel in;
+            final FileChannel out;
+            private final AtomicInteger pending; // 尚未完成的段数
+
+            SplitFile(Path file, Path target, int segments) throws IOException {
+                this.file = file;
+                this.pending = new AtomicInteger(segments);
+                this.in = FileChannel.open(file, StandardOpenOption.READ);
+                try {
+                    this.out = FileChannel.open(target, StandardOpenOption.CREATE,
+                            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                } catch (IOException e) {
+                    in.close();
+                    throw e;
+                }
+            }
+
+            /**
+             * 一段处理完成，最后一段完成时关闭通道并归还文件数额度
+             */
+            void complete() throws IOException {
+                if (pending.decrementAndGet() != 0) {
+                    return;
+                }
+                try {
+                    try {
+                        in.close();
+                    } finally {
+                        out.close();
+                    }
+                    if (failure.get() == null) {
+                        files.incrementAndGet();
+                    }
+                } finally {
+                    openFiles.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * 工作线程执行的任务
+     */
+    private interface Task {
+        void run() throws IOException;
+    }
+}
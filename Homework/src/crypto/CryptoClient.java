@@ -0,0 +1,130 @@
+/**
+ * 本地加密服务客户端
+ * 文件用途:
+ * 该文件实现了 CryptoServer 的客户端，按 CryptoServer 中说明的长度前缀协议发送请求并读取响应。
+ * 一个客户端对应一个连接，同一时刻只有一个请求在进行；需要并发时使用多个客户端。
+ */
+package crypto;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+public class CryptoClient implements AutoCloseable {
+
+    // 与服务的连接
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    /**
+     * 构造函数，连接到服务
+     *
+     * @param host 主机名
+     * @param port 端口
+     * @throws IOException 如果无法连接
+     */
+    public CryptoClient(String host, int port) throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    /**
+     * DES 加密
+     *
+     * @param key  一个long类型的密钥
+     * @param data 要加密的数据
+     * @return 与 DES.encrypt 相同的密文
+     * @throws IOException 如果与服务通信时发生IO异常
+     */
+    public byte[] encryptDES(long key, byte[] data) throws IOException {
+        return call(CryptoServer.OP_ENCRYPT, CryptoServer.ALG_DES, key, data);
+    }
+
+    /**
+     * DES 解密
+     *
+     * @param key  一个long类型的密钥
+     * @param data 要解密的数据
+     * @return 与 DES.decrypt 相同的明文
+     * @throws IOException 如果与服务通信时发生IO异常
+     */
+    public byte[] decryptDES(long key, byte[] data) throws IOException {
+        return call(CryptoServer.OP_DECRYPT, CryptoServer.ALG_DES, key, data);
+    }
+
+    /**
+     * 使用服务上注册的 RSA 密钥加密
+     *
+     * @param keyId 密钥编号
+     * @param data  要加密的数据
+     * @return 与 RSA.encrypt 相同的密文
+     * @throws IOException 如果与服务通信时发生IO异常
+     */
+    public byte[] encryptRSA(long keyId, byte[] data) throws IOException {
+        return call(CryptoServer.OP_ENCRYPT, CryptoServer.ALG_RSA, keyId, data);
+    }
+
+    /**
+     * 使用服务上注册的 RSA 密钥解密
+     *
+     * @param keyId 密钥编号
+     * @param data  要解密的数据
+     * @return 与 RSA.decrypt 相同的明文
+     * @throws IOException 如果与服务通信时发生IO异常
+     */
+    public byte[] decryptRSA(long keyId, byte[] data) throws IOException {
+        return call(CryptoServer.OP_DECRYPT, CryptoServer.ALG_RSA, keyId, data);
+    }
+
+    /**
+     * 发送一个请求并等待响应
+     *
+     * @param operation 操作
+     * @param algorithm 算法
+     * @param key       DES 密钥或 RSA 密钥编号
+     * @param data      数据
+     * @return 结果
+     * @throws IOException 如果与服务通信时发生IO异常或响应格式错误
+     * @throws IllegalArgumentException 如果服务拒绝了请求，例如密文长度错误
+     */
+    public synchronized byte[] call(byte operation, byte algorithm, long key, byte[] data) throws IOException {
+        if (data.length > CryptoServer.MAX_FRAME - CryptoServer.REQUEST_HEADER) {
+            throw new IllegalArgumentException("Data is too large: " + data.length + " bytes.");
+        }
+        out.writeInt(CryptoServer.REQUEST_HEADER + data.length);
+        out.writeByte(operation);
+        out.writeByte(algorithm);
+        out.writeLong(key);
+        out.write(data);
+        out.flush();
+
+        int length = in.readInt();
+        if (length < 1 || length > CryptoServer.MAX_FRAME) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+        byte status = in.readByte();
+        byte[] result = new byte[length - 1];
+        in.readFully(result);
+        if (status != CryptoServer.STATUS_OK) {
+            throw new IllegalArgumentException(new String(result, StandardCharsets.UTF_8));
+        }
+        return result;
+    }
+
+    /**
+     * 关闭连接
+     *
+     * @throws IOException 如果关闭时发生IO异常
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,316 @@
+/**
+ * 运行时指标
+ * 文件用途:
+ * 该文件实现了加密、解密的运行时指标：按算法和操作分别统计调用次数、处理的字节数和分组数以及耗时分布。
+ * 计数使用 LongAdder，多个线程同时记录时不会争用同一个变量；耗时记录在 LatencyHistogram 中。
+ * 指标默认关闭，可以通过系统属性 -Dcrypto.metrics=true 或 setEnabled 打开；关闭时各处只多读一个 volatile 变量。
+ * 打开后第一次记录某个算法的某个操作时，对应的统计会注册为 MXBean（crypto:type=CryptoMetrics,algorithm=...,operation=...），
+ * 可以用 JConsole 等 JMX 工具查看，也可以通过 get、all 直接查询。
+ * 除 InstrumentedCryptoAlgorithm 记录的整体调用外，RSA 记录每块模幂的耗时，文件流水线记录每块读、写文件的耗时；
+ * 这些调用经由 InstrumentedCryptoAlgorithm 转发时，同样记录在包装时指定的算法名称下。
+ */
+package crypto;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+public final class CryptoMetrics {
+
+    /**
+     * 统计的操作
+     */
+    public enum Operation {
+        ENCRYPT, // 加密一段数据
+        DECRYPT, // 解密一段数据
+        ENCRYPT_FILE, // 加密一个文件
+        DECRYPT_FILE, // 解密一个文件
+        ENCRYPT_BLOCK, // 加密单个分组，例如 RSA 每块的模幂
+        DECRYPT_BLOCK, // 解密单个分组，例如 RSA 每块的 CRT 模幂
+        FILE_READ, // 文件流水线读取一块数据
+        FILE_WRITE // 文件流水线写入一块数据
+    }
+
+    /**
+     * 单个统计的 JMX 接口，耗时以微秒为单位
+     */
+    public interface StatsMXBean {
+        String getAlgorithm();
+
+        String getOperation();
+
+        long getCalls();
+
+        long getBytes();
+
+        long getBlocks();
+
+        double getMeanLatencyMicros();
+
+        double getP50LatencyMicros();
+
+        double getP99LatencyMicros();
+
+        double getP999LatencyMicros();
+
+        double getMaxLatencyMicros();
+
+        void reset();
+    }
+
+    /**
+     * 一个算法的一个操作的统计
+     */
+    public static final class Stats implements StatsMXBean {
+        private final String algorithm;
+        private final Operation operation;
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder blocks = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private Stats(String algorithm, Operation operation) {
+            this.algorithm = algorithm;
+            this.operation = operation;
+        }
+
+        /**
+         * 记录一次调用
+         *
+         * @param bytes  处理的字节数
+         * @param blocks 处理的分组数
+         * @param nanos  耗时（纳秒）
+         */
+        public void record(long bytes, long blocks, long nanos) {
+            this.bytes.add(bytes);
+            this.blocks.add(blocks);
+            latency.record(nanos);
+        }
+
+        /**
+         * 耗时分布（纳秒）
+         *
+         * @return 耗时直方图
+         */
+        public LatencyHistogram latency() {
+            return latency;
+        }
+
+        @Override
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        @Override
+        public String getOperation() {
+            return operation.name();
+        }
+
+        @Override
+        public long getCalls() {
+            return latency.count();
+        }
+
+        @Override
+        public long getBytes() {
+            return bytes.sum();
+        }
+
+        @Override
+        public long getBlocks() {
+            return blocks.sum();
+        }
+
+        @Override
+        public double getMeanLatencyMicros() {
+            return latency.mean() / 1000;
+        }
+
+        @Override
+        public double getP50LatencyMicros() {
+            return latency.percentile(50) / 1000.0;
+        }
+
+        @Override
+        public double getP99LatencyMicros() {
+            return latency.percentile(99) / 1000.0;
+        }
+
+        @Override
+        public double getP999LatencyMicros() {
+            return latency.percentile(99.9) / 1000.0;
+        }
+
+        @Override
+        public double getMaxLatencyMicros() {
+            return latency.max() / 1000.0;
+        }
+
+        @Override
+        public void reset() {
+            bytes.reset();
+            blocks.reset();
+            latency.reset();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s.%s calls=%d bytes=%d blocks=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus",
+                    algorithm, operation, getCalls(), getBytes(), getBlocks(), getMeanLatencyMicros(),
+                    getP50LatencyMicros(), getP99LatencyMicros(), getMaxLatencyMicros());
+        }
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    // 是否记录指标
+    private static volatile boolean enabled = Boolean.getBoolean("crypto.metrics");
+
+    // 算法名称 -> 按 Operation 序号排列的统计，第一次记录时创建
+    private static final ConcurrentMap<String, AtomicReferenceArray<Stats>> REGISTRY = new ConcurrentHashMap<>();
+
+    // InstrumentedCryptoAlgorithm 转发调用期间当前线程使用的算法名称，未转发时为 null
+    private static final ThreadLocal<String> SCOPE = new ThreadLocal<>();
+
+    private CryptoMetrics() {
+    }
+
+    /**
+     * 是否记录指标
+     *
+     * @return 打开时返回 true
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 打开或关闭指标记录，已有的统计会保留
+     *
+     * @param enabled 为 true 时打开
+     */
+    public static void setEnabled(boolean enabled) {
+        CryptoMetrics.enabled = enabled;
+    }
+
+    /**
+     * 查询统计
+     *
+     * @param algorithm 算法名称，例如 "RSA"
+     * @param operation 操作
+     * @return 统计，尚未记录过时返回 null
+     */
+    public static Stats get(String algorithm, Operation operation) {
+        AtomicReferenceArray<Stats> operations = REGISTRY.get(algorithm);
+        return operations == null ? null : operations.get(operation.ordinal());
+    }
+
+    /**
+     * 查询全部统计
+     *
+     * @return 已经记录过的全部统计
+     */
+    public static Collection<Stats> all() {
+        List<Stats> all = new ArrayList<>();
+        for (AtomicReferenceArray<Stats> operations : REGISTRY.values()) {
+            for (int i = 0; i < operations.length(); i++) {
+                Stats stats = operations.get(i);
+                if (stats != null) {
+                    all.add(stats);
+                }
+            }
+        }
+        return all;
+    }
+
+    /**
+     * 清空全部统计
+     */
+    public static void reset() {
+        for (Stats stats : all()) {
+            stats.reset();
+        }
+    }
+
+    /**
+     * 取得统计，不存在时创建并注册为 MXBean
+     *
+     * @param algorithm 算法名称
+     * @param operation 操作
+     * @return 统计
+     */
+    public static Stats stats(String algorithm, Operation operation) {
+        AtomicReferenceArray<Stats> operations = REGISTRY.computeIfAbsent(algorithm,
+                name -> new AtomicReferenceArray<>(OPERATIONS.length));
+        Stats stats = operations.get(operation.ordinal());
+        if (stats == null) {
+            Stats created = new Stats(algorithm, operation);
+            if (operations.compareAndSet(operation.ordinal(), null, created)) {
+                register(created);
+                return created;
+            }
+            stats = operations.get(operation.ordinal());
+        }
+        return stats;
+    }
+
+    /**
+     * 指标打开时取得统计，供热点路径在循环之前调用一次
+     *
+     * @param algorithm 算法名称
+     * @param operation 操作
+     * @return 统计，指标关闭时返回 null
+     */
+    static Stats statsIfEnabled(String algorithm, Operation operation) {
+        if (!enabled) {
+            return null;
+        }
+        String scoped = SCOPE.get();
+        return stats(scoped != null ? scoped : algorithm, operation);
+    }
+
+    /**
+     * 在当前线程上改用 name 作为 statsIfEnabled 的算法名称，直到调用 exitScope。
+     * 被包装的算法在内部记录的指标因此归入包装时指定的名称
+     *
+     * @param name 算法名称
+     * @return 之前使用的名称，交给 exitScope 恢复
+     */
+    static String enterScope(String name) {
+        String previous = SCOPE.get();
+        SCOPE.set(name);
+        return previous;
+    }
+
+    /**
+     * 恢复 enterScope 之前使用的算法名称
+     *
+     * @param previous enterScope 的返回值
+     */
+    static void exitScope(String previous) {
+        if (previous == null) {
+            SCOPE.remove();
+        } else {
+            SCOPE.set(previous);
+        }
+    }
+
+    /**
+     * 将统计注册为 MXBean，注册失败时只影响 JMX 查看，不影响记录
+     */
+    private static void register(Stats stats) {
+        try {
+            ObjectName name = new ObjectName("crypto:type=CryptoMetrics,algorithm=" + ObjectName.quote(stats.algorithm)
+                    + ",operation=" + stats.operation.name());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(stats, name);
+        } catch (JMException | SecurityException e) {
+            // 同名的 MXBean 已由其他类加载器注册，或没有 JMX 权限
+        }
+    }
+}
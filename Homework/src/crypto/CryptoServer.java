@@ -0,0 +1,486 @@
+/**
+ * 本地加密服务
+ * 文件用途:
+ * 该文件实现了一个只监听本机回环地址的加密服务，多个短生命周期的进程可以共用一个已经预热、JIT 编译完成的 JVM，
+ * 不必各自承担 JVM 启动和密钥调度的开销。
+ * 每个连接由一个线程处理：运行在 JDK 21 及以上时通过反射使用虚拟线程，否则退回到按需创建的平台线程。
+ * 协议使用长度前缀分帧，所有整数均为大端序：
+ *   请求：[int 长度][byte 操作][byte 算法][long 密钥][数据]，长度为其后所有字节数；
+ *         操作为 OP_ENCRYPT 或 OP_DECRYPT，算法为 ALG_DES 或 ALG_RSA；
+ *         DES 的密钥字段即 64 位密钥，RSA 的密钥字段为 registerRSA 注册的密钥编号。
+ *   响应：[int 长度][byte 状态][数据]，状态为 STATUS_OK 时数据为结果，为 STATUS_ERROR 时为 UTF-8 编码的错误信息。
+ *   处理请求时的任何运行时异常都以 STATUS_ERROR 响应返回，连接保持可用；只有帧长度非法或连接异常时才断开连接。
+ * 同一连接上的请求按顺序处理，客户端可以连续发送多个请求再依次读取响应。
+ * 不超过 BATCH_LIMIT 字节的请求按算法、操作和密钥放入 RequestBatcher 合批：
+ * DES 加密、解密和 RSA 加密将一批请求按分组对齐拼接后只调用一次引擎，结果与逐个调用完全相同；
+ * RSA 解密每块的明文长度不固定，无法从拼接的结果中拆分，同一批内逐个解密，只共用同一个 RSA 对象。
+ */
+package crypto;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class CryptoServer implements AutoCloseable {
+
+    // 操作
+    public static final byte OP_ENCRYPT = 1;
+    public static final byte OP_DECRYPT = 2;
+
+    // 算法
+    public static final byte ALG_DES = 1;
+    public static final byte ALG_RSA = 2;
+
+    // 响应状态
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_ERROR = 1;
+
+    // 请求中长度之后、数据之前的字节数：操作、算法和密钥
+    static final int REQUEST_HEADER = 10;
+
+    // 单个帧的最大长度，超过时断开连接
+    public static final int MAX_FRAME = 64 << 20;
+
+    // 数据不超过该字节数的请求参与合批，更大的请求单独处理
+    public static final int BATCH_LIMIT = 16 << 10;
+
+    // 每批最多包含的数据字节数
+    private static final int MAX_BATCH_BYTES = 1 << 20;
+
+    // 监听的套接字
+    private final ServerSocket serverSocket;
+
+    // 处理连接的执行器，每个连接一个线程
+    private final ExecutorService connectionExecutor;
+
+    // 继续处理队列中剩余请求的工作线程
+    private final ExecutorService batchExecutor;
+
+    // 当前打开的连接，关闭服务时一起关闭
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    // DES 密钥调度缓存
+    private final DESKeyScheduleCache desKeys;
+
+    // 已注册的 RSA 密钥，编号 -> RSA对象
+    private final ConcurrentMap<Long, RSA> rsaKeys = new ConcurrentHashMap<>();
+
+    // 各算法、各操作的合批队列，密钥 -> 队列，按 index(algorithm, operation) 排列；队列空闲时移除
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final ConcurrentMap<Long, RequestBatcher>[] batchers = new ConcurrentMap[4];
+
+    // 处理的批数和其中的请求数
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedRequests = new LongAdder();
+
+    private volatile boolean closed;
+
+    /**
+     * 构造函数，在本机回环地址上监听并开始接受连接
+     *
+     * @param port 端口，为 0 时由系统分配
+     * @throws IOException 如果无法监听端口
+     */
+    public CryptoServer(int port) throws IOException {
+        this(port, new DESKeyScheduleCache(4096));
+    }
+
+    /**
+     * 构造函数，在本机回环地址上监听并开始接受连接
+     *
+     * @param port    端口，为 0 时由系统分配
+     * @param desKeys DES 密钥调度缓存
+     * @throws IOException 如果无法监听端口
+     */
+    public CryptoServer(int port, DESKeyScheduleCache desKeys) throws IOException {
+        this.desKeys = desKeys;
+        for (int i = 0; i < batchers.length; i++) {
+            batchers[i] = new ConcurrentHashMap<>();
+        }
+
+        serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        connectionExecutor = newThreadPerTaskExecutor("crypto-server-connection");
+        AtomicInteger workers = new AtomicInteger();
+        batchExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "crypto-server-batch-" + workers.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Thread acceptor = new Thread(this::accept, "crypto-server-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * 注册一个 RSA 密钥，客户端以编号引用
+     *
+     * @param id  密钥编号
+     * @param rsa RSA对象，决定加密时的块大小
+     */
+    public void registerRSA(long id, RSA rsa) {
+        rsaKeys.put(id, rsa);
+    }
+
+    /**
+     * 获取监听的端口
+     *
+     * @return 端口
+     */
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * 合批处理的批数
+     *
+     * @return 批数
+     */
+    public long batchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * 合批处理的请求数，除以批数即平均每批的请求数
+     *
+     * @return 请求数
+     */
+    public long batchedRequestCount() {
+        return batchedRequests.sum();
+    }
+
+    /**
+     * 停止接受连接并关闭所有连接
+     *
+     * @throws IOException 如果关闭套接字时发生IO异常
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        for (Socket socket : connections) {
+            socket.close();
+        }
+        connectionExecutor.shutdown();
+        batchExecutor.shutdown();
+    }
+
+    /**
+     * 接受连接，每个连接交给一个线程处理
+     */
+    private void accept() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                // 服务关闭时 accept 抛出异常
+                continue;
+            }
+            connections.add(socket);
+            try {
+                connectionExecutor.execute(() -> serve(socket));
+            } catch (RuntimeException e) {
+                close(socket);
+            }
+        }
+    }
+
+    /**
+     * 处理一个连接上的所有请求，直到客户端关闭连接
+     *
+     * @param socket 连接
+     */
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return; // 客户端关闭了连接
+                }
+                if (length < REQUEST_HEADER || length > MAX_FRAME) {
+                    throw new IOException("Invalid frame length: " + length);
+                }
+                byte operation = in.readByte();
+                byte algorithm = in.readByte();
+                long key = in.readLong();
+                byte[] data = new byte[length - REQUEST_HEADER];
+                in.readFully(data);
+
+                byte status = STATUS_OK;
+                byte[] result;
+                try {
+                    result = handle(operation, algorithm, key, data);
+                } catch (RuntimeException e) {
+                    // 数据无效或引擎出错都只影响这一个请求
+                    status = STATUS_ERROR;
+                    String message = e.getMessage() != null ? e.getMessage() : e.toString();
+                    result = message.getBytes(StandardCharsets.UTF_8);
+                }
+
+                out.writeInt(1 + result.length);
+                out.writeByte(status);
+                out.write(result);
+                // 客户端已经连续发送的请求处理完后再一起发送响应
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // 连接异常断开或帧格式错误，只影响这一个连接
+        } finally {
+            close(socket);
+        }
+    }
+
+    /**
+     * 处理一个请求
+     *
+     * @param operation 操作
+     * @param algorithm 算法
+     * @param key       DES 密钥或 RSA 密钥编号
+     * @param data      数据
+     * @return 结果
+     */
+    private byte[] handle(byte operation, byte algorithm, long key, byte[] data) {
+        if (operation != OP_ENCRYPT && operation != OP_DECRYPT) {
+            throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+        if (algorithm != ALG_DES && algorithm != ALG_RSA) {
+            throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+        }
+        RSA rsa = null;
+        if (algorithm == ALG_RSA) {
+            rsa = rsaKeys.get(key);
+            if (rsa == null) {
+                throw new IllegalArgumentException("Unknown RSA key: " + key);
+            }
+        }
+
+        boolean encrypt = operation == OP_ENCRYPT;
+        if (data.length > BATCH_LIMIT) {
+            // 大请求本身已经足以分摊调用开销，直接处理
+            CryptoAlgorithm algorithmObject = rsa != null ? rsa : desKeys.des(key);
+            return encrypt ? algorithmObject.encrypt(data) : algorithmObject.decrypt(data);
+        }
+
+        // 队列可能在 computeIfAbsent 之后恰好变为空闲并被移除，此时请求仍由这个队列处理，只是不能与新队列中的请求合批
+        ConcurrentMap<Long, RequestBatcher> map = batchers[index(algorithm, operation)];
+        RSA batchRSA = rsa;
+        RequestBatcher batcher = map.computeIfAbsent(key, k -> {
+            RequestBatcher.Processor processor = batchRSA != null
+                    ? (encrypt ? batch -> rsaEncrypt(batchRSA, batch) : batch -> rsaDecrypt(batchRSA, batch))
+                    : (encrypt ? batch -> desEncrypt(desKeys.des(k), batch) : batch -> desDecrypt(desKeys.des(k), batch));
+            return new RequestBatcher(batch -> {
+                batches.increment();
+                batchedRequests.add(batch.size());
+                processor.process(batch);
+            }, batchExecutor, MAX_BATCH_BYTES, idle -> map.remove(k, idle));
+        });
+
+        try {
+            return batcher.submit(data).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(String.valueOf(cause), cause);
+        }
+    }
+
+    /**
+     * 合批加密 DES 请求：各请求分别填充后首尾相接，整体按 ECB 加密一次，再按各自的长度切分
+     *
+     * @param des   DES对象
+     * @param batch 一批请求
+     */
+    static void desEncrypt(DES des, List<RequestBatcher.Request> batch) {
+        int total = 0;
+        for (RequestBatcher.Request request : batch) {
+            total += request.data.length / 8 * 8 + 8;
+        }
+
+        byte[] buffer = new byte[total];
+        int offset = 0;
+        for (RequestBatcher.Request request : batch) {
+            int full = request.data.length / 8 * 8;
+            System.arraycopy(request.data, 0, buffer, offset, full);
+            long padded = DES.pkcs5PadBlock(request.data, full, request.data.length - full);
+            DES.longToBytes(padded, buffer, offset + full);
+            offset += full + 8;
+        }
+
+        des.encryptChunk(buffer, 0, total, buffer, 0, false);
+
+        offset = 0;
+        for (RequestBatcher.Request request : batch) {
+            int length = request.data.length / 8 * 8 + 8;
+            request.result.complete(Arrays.copyOfRange(buffer, offset, offset + length));
+            offset += length;
+        }
+    }
+
+    /**
+     * 合批解密 DES 请求：长度合法的请求首尾相接整体解密一次，再按各自的长度切分并去除填充
+     *
+     * @param des   DES对象
+     * @param batch 一批请求
+     */
+    static void desDecrypt(DES des, List<RequestBatcher.Request> batch) {
+        int total = 0;
+        for (RequestBatcher.Request request : batch) {
+            if (request.data.length == 0 || request.data.length % 8 != 0) {
+                request.result.completeExceptionally(
+                        new IllegalArgumentException("Data length must be a positive multiple of 8 bytes."));
+            } else {
+                total += request.data.length;
+            }
+        }
+
+        byte[] buffer = new byte[total];
+        int offset = 0;
+        for (RequestBatcher.Request request : batch) {
+            if (!request.result.isDone()) {
+                System.arraycopy(request.data, 0, buffer, offset, request.data.length);
+                offset += request.data.length;
+            }
+        }
+
+        des.decryptChunk(buffer, 0, total, buffer, 0, false);
+
+        offset = 0;
+        for (RequestBatcher.Request request : batch) {
+            if (request.result.isDone()) {
+                continue;
+            }
+            int length = request.data.length;
+            try {
+                int paddingSize = DES.pkcs5PaddingSize(buffer, offset + length - 8);
+                request.result.complete(Arrays.copyOfRange(buffer, offset, offset + length - paddingSize));
+            } catch (IllegalArgumentException e) {
+                request.result.completeExceptionally(e);
+            }
+            offset += length;
+        }
+    }
+
+    /**
+     * 合批加密 RSA 请求：各请求按块对齐首尾相接，不足一块的最后一块在高位补 0，
+     * 表示的整数不变，密文与单独加密相同；整体加密一次后按各自的块数切分
+     *
+     * @param rsa   RSA对象
+     * @param batch 一批请求
+     */
+    static void rsaEncrypt(RSA rsa, List<RequestBatcher.Request> batch) {
+        int plainBlockSize = rsa.plainBlockSize();
+        int cipherBlockSize = rsa.cipherBlockSize();
+        int totalBlocks = 0;
+        for (RequestBatcher.Request request : batch) {
+            totalBlocks += (request.data.length + plainBlockSize - 1) / plainBlockSize;
+        }
+
+        byte[] buffer = new byte[totalBlocks * plainBlockSize];
+        int offset = 0;
+        for (RequestBatcher.Request request : batch) {
+            int length = request.data.length;
+            int full = length / plainBlockSize * plainBlockSize;
+            System.arraycopy(request.data, 0, buffer, offset, full);
+            offset += full;
+            if (full < length) {
+                System.arraycopy(request.data, full, buffer, offset + plainBlockSize - (length - full), length - full);
+                offset += plainBlockSize;
+            }
+        }
+
+        byte[] encrypted = new byte[totalBlocks * cipherBlockSize];
+        rsa.encryptChunk(buffer, 0, buffer.length, encrypted, 0, true);
+
+        offset = 0;
+        for (RequestBatcher.Request request : batch) {
+            int length = (request.data.length + plainBlockSize - 1) / plainBlockSize * cipherBlockSize;
+            request.result.complete(Arrays.copyOfRange(encrypted, offset, offset + length));
+            offset += length;
+        }
+    }
+
+    /**
+     * 解密一批 RSA 请求，逐个解密
+     *
+     * @param rsa   RSA对象
+     * @param batch 一批请求
+     */
+    static void rsaDecrypt(RSA rsa, List<RequestBatcher.Request> batch) {
+        for (RequestBatcher.Request request : batch) {
+            try {
+                request.result.complete(rsa.decrypt(request.data));
+            } catch (RuntimeException e) {
+                request.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 合批队列在 batchers 中的下标
+     */
+    private static int index(byte algorithm, byte operation) {
+        return (algorithm - 1) * 2 + (operation - 1);
+    }
+
+    /**
+     * 关闭连接并从 connections 中移除
+     */
+    private void close(Socket socket) {
+        connections.remove(socket);
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // 忽略关闭时的异常
+        }
+    }
+
+    /**
+     * 创建每个任务一个线程的执行器。JDK 21 及以上使用虚拟线程；
+     * 项目按 Java 11 编译，因此通过反射调用，在更早的 JDK 上退回到按需创建、空闲回收的守护平台线程
+     *
+     * @param name 平台线程的名称
+     * @return 执行器
+     */
+    static ExecutorService newThreadPerTaskExecutor(String name) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // 没有虚拟线程，或在 JDK 19、20 上未启用预览功能
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -6,45 +6,31 @@
  * 该文件实现了 DES 对称加密算法，提供了加密和解密函数。
  * DES 加密算法是一种经典的对称加密算法，可用于数据加密等领域。
  * 该实现支持 PKCS5 填充和去填充，能够加密任意长度的数据。
+ * 数据超过并行阈值时按段拆分，在线程池中多核并行加密、解密。
+ * 密钥可以连同子密钥一起保存到文件，加载时以内存映射方式读取，不必重新计算密钥调度。
+ * 密钥调度保存在不可变的 DESKeySchedule 中，对象的所有字段在构造后都不再修改，位切片的临时数组由每个线程各自持有，
+ * 因此一个 DES 对象可以同时被多个线程使用，多个 DES 对象也可以共用同一个密钥调度。
+ * 轮函数之外的异或、分组转换和位矩阵转置由 DESKernels 完成，加载了 jdk.incubator.vector 模块时使用 Vector API。
  */
 package crypto;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 public class DES extends CryptoAlgorithm {
 
-    // PC-1置换表（密钥调度）
-    //静态常量，PC-1置换表用于初始密钥的置换。
-    private static final int[] PC1 = {
-            57, 49, 41, 33, 25, 17, 9,
-            1, 58, 50, 42, 34, 26, 18,
-            10, 2, 59, 51, 43, 35, 27,
-            19, 11, 3, 60, 52, 44, 36,
-            63, 55, 47, 39, 31, 23, 15,
-            7, 62, 54, 46, 38, 30, 22,
-            14, 6, 61, 53, 45, 37, 29,
-            21, 13, 5, 28, 20, 12, 4
-    };
-
-    // PC-2置换表（密钥调度）
-    //静态常量，PC-2置换表用于生成子密钥。
-    private static final int[] PC2 = {
-            14, 17, 11, 24, 1, 5,
-            3, 28, 15, 6, 21, 10,
-            23, 19, 12, 4, 26, 8,
-            16, 7, 27, 20, 13, 2,
-            41, 52, 31, 37, 47, 55,
-            30, 40, 51, 45, 33, 48,
-            44, 49, 39, 56, 34, 53,
-            46, 42, 50, 36, 29, 32
-    };
-
-    // 移位表
-    //静态常量，移位表定义了每个轮次密钥左移的位数。
-    private static final int[] SHIFTS = {
-            1, 1, 2, 2, 2, 2, 2, 2, 1, 2, 2, 2, 2, 2, 2, 1
-    };
-
     // 初始置换表
     //静态常量，初始置换表用于数据的初始置换。
     private static final int[] IP = {
@@ -71,19 +57,6 @@ public class DES extends CryptoAlgorithm {
             33, 1, 41, 9, 49, 17, 57, 25
     };
 
-    // 扩展表
-    //静态常量，扩展表用于将32位数据扩展为48位。
-    private static final int[] E = {
-            32, 1, 2, 3, 4, 5,
-            4, 5, 6, 7, 8, 9,
-            8, 9, 10, 11, 12, 13,
-            12, 13, 14, 15, 16, 17,
-            16, 17, 18, 19, 20, 21,
-            20, 21, 22, 23, 24, 25,
-            24, 25, 26, 27, 28, 29,
-            28, 29, 30, 31, 32, 1
-    };
-
     // S盒
     //静态常量，S盒用于数据的非线性变换。
     private static final int[][][] S = {
@@ -146,10 +119,65 @@ public class DES extends CryptoAlgorithm {
             19, 13, 30, 6, 22, 11, 4, 25
     };
 
-    private long key; // 私有变量，用来保存密钥。
+    // SP盒
+    // 静态常量，将S盒替代与P置换合并后的查表结果，SP[i][v] 为第 i 个S盒输入6位 v 时经P置换后的32位输出。
+    private static final int[][] SP = new int[8][64];
+
+    // 按字节索引的初始置换表
+    // 静态常量，IP_TABLE[j][b] 为 long 中第 j 个字节取值 b 时经初始置换后的结果，8次查表异或即可完成初始置换。
+    private static final long[][] IP_TABLE = new long[8][256];
+
+    // 按字节索引的逆初始置换表
+    // 静态常量，含义同 IP_TABLE，用于逆初始置换。
+    private static final long[][] FP_TABLE = new long[8][256];
+
+    static {
+        // 由S盒和P置换表生成SP盒
+        for (int i = 0; i < 8; i++) {
+            for (int v = 0; v < 64; v++) {
+                SP[i][v] = pBoxPermutation(sBox(i, v) << (28 - 4 * i));
+            }
+        }
+
+        // 置换只是位的重新排列，因此可以按字节拆分后分别置换，再将结果异或起来
+        for (int j = 0; j < 8; j++) {
+            for (int b = 0; b < 256; b++) {
+                IP_TABLE[j][b] = permute((long) b << (8 * j), IP);
+                FP_TABLE[j][b] = permute((long) b << (8 * j), IIP);
+            }
+        }
+    }
+
+    // 密钥调度
+    private final DESKeySchedule schedule;
+
+    // 按查表引擎布局存放的子密钥，即 schedule.roundKeys()
+    private final int[] roundKeys;
+
+    // 位切片后端，数据量达到 BITSLICE_THRESHOLD 字节时以 64 个分组为一批使用
+    private final DESBitslice bitslice;
+
+    // 使用位切片后端的最小数据长度（字节），即 64 个分组
+    private static final int BITSLICE_THRESHOLD = DESBitslice.BLOCKS * 8;
+
+    // 默认的并行阈值（字节），数据长度达到该值时按段并行处理
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 18;
+
+    // 并行处理时每段的大小（字节），能放入二级缓存，且是位切片批次大小的整数倍
+    private static final int SEGMENT_SIZE = 1 << 15;
+
+    // cryptCTR 每次生成的密钥流长度（字节），是位切片批次大小的整数倍
+    private static final int CTR_STEP = 1 << 12;
+
+    // 密钥文件的标识 "DESK"，以及标识、标志位和密钥的总长度
+    private static final int KEY_FILE_MAGIC = 0x4445534B;
+    private static final int KEY_FILE_HEADER = 4 + 1 + 8;
+
+    // 并行处理使用的线程池
+    private final Executor executor;
 
-    // 存储子密钥的数组。
-    private long[] subKeys = new long[16]; // 私有变量，用于存储生成的16个子密钥。
+    // 并行阈值（字节）
+    private final int parallelThreshold;
 
     /**
      * DES算法的构造函数，用于初始化DES对象的密钥
@@ -157,8 +185,116 @@ public class DES extends CryptoAlgorithm {
      * @param key 一个long类型的密钥
      */
     public DES(long key) {
-        this.key = key;
-        generateSubKeys();
+        this(key, ForkJoinPool.commonPool(), DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * DES算法的构造函数，指定并行处理使用的线程池和并行阈值
+     *
+     * @param key               一个long类型的密钥
+     * @param executor          并行处理使用的线程池
+     * @param parallelThreshold 数据长度达到该值（字节）时按段并行处理，Integer.MAX_VALUE 表示始终单线程处理
+     */
+    public DES(long key, Executor executor, int parallelThreshold) {
+        this(new DESKeySchedule(key), executor, parallelThreshold);
+    }
+
+    /**
+     * DES算法的构造函数，使用已经计算好的密钥调度
+     *
+     * @param schedule 密钥调度，可以与其他 DES 对象共用
+     */
+    public DES(DESKeySchedule schedule) {
+        this(schedule, ForkJoinPool.commonPool(), DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * DES算法的构造函数，使用已经计算好的密钥调度，并指定并行处理使用的线程池和并行阈值
+     *
+     * @param schedule          密钥调度，可以与其他 DES 对象共用
+     * @param executor          并行处理使用的线程池
+     * @param parallelThreshold 数据长度达到该值（字节）时按段并行处理，Integer.MAX_VALUE 表示始终单线程处理
+     */
+    public DES(DESKeySchedule schedule, Executor executor, int parallelThreshold) {
+        this.schedule = schedule;
+        this.roundKeys = schedule.roundKeys();
+        this.bitslice = schedule.bitslice();
+        this.executor = executor;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * 获取密钥调度
+     *
+     * @return 密钥调度
+     */
+    public DESKeySchedule keySchedule() {
+        return schedule;
+    }
+
+    /**
+     * 获取异或、分组转换和位矩阵转置当前使用的实现，"scalar" 或 "Vector API (N-bit)"
+     *
+     * @return 实现的名称
+     */
+    public static String kernels() {
+        return DESKernels.INSTANCE.name();
+    }
+
+    /**
+     * 将密钥保存到文件。
+     * 文件格式：[4 字节标识 "DESK"][1 字节，是否包含子密钥][8 字节密钥][16 个 8 字节子密钥（可选）]，均为大端序。
+     * 支持 POSIX 权限的文件系统上以 rw-------（0600）创建，已存在的文件也先收紧为该权限再写入。
+     *
+     * @param filePath    密钥文件路径，已存在时会被覆盖
+     * @param withSubKeys 是否同时保存子密钥，保存后加载时不必重新计算密钥调度
+     * @throws IOException 文件写入错误
+     */
+    public void saveKey(String filePath, boolean withSubKeys) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(KEY_FILE_HEADER + (withSubKeys ? 16 * 8 : 0));
+        buffer.putInt(KEY_FILE_MAGIC).put((byte) (withSubKeys ? 1 : 0)).putLong(schedule.key());
+        if (withSubKeys) {
+            for (long subKey : schedule.subKeys()) {
+                buffer.putLong(subKey);
+            }
+        }
+        buffer.flip();
+
+        writeKeyFile(filePath, buffer);
+    }
+
+    /**
+     * 以内存映射方式从文件加载密钥。文件中包含子密钥时直接使用，否则根据密钥重新计算。
+     *
+     * @param filePath 密钥文件路径
+     * @return 使用该密钥的DES对象
+     * @throws IOException 文件读取错误或文件格式不正确
+     */
+    public static DES loadKey(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size != KEY_FILE_HEADER && size != KEY_FILE_HEADER + 16 * 8) {
+                throw new IOException("Invalid DES key file.");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != KEY_FILE_MAGIC) {
+                throw new IOException("Invalid DES key file.");
+            }
+            boolean withSubKeys = buffer.get() != 0;
+            if (withSubKeys != (size > KEY_FILE_HEADER)) {
+                throw new IOException("Invalid DES key file.");
+            }
+            long key = buffer.getLong();
+            if (!withSubKeys) {
+                return new DES(key);
+            }
+
+            long[] subKeys = new long[16];
+            for (int i = 0; i < 16; i++) {
+                subKeys[i] = buffer.getLong();
+            }
+            return new DES(new DESKeySchedule(key, subKeys));
+        }
     }
 
     /**
@@ -168,7 +304,7 @@ public class DES extends CryptoAlgorithm {
      * @param offset 起始偏移量
      * @return long类型的数据
      */
-    private static long bytesToLong(byte[] bytes, int offset) {
+    static long bytesToLong(byte[] bytes, int offset) {
         long value = 0; // 初始化为 0 的 long 型变量，用于存储转换结果
 
         // 遍历 byte 数组的一个部分（从 offset 开始的 8 个字节）
@@ -188,7 +324,7 @@ public class DES extends CryptoAlgorithm {
      * @param table 置换表
      * @return 置换后的结果
      */
-    private static long permute(long block, int[] table) {
+    static long permute(long block, int[] table) {
         long result = 0; // 初始化结果为 0
 
         // 遍历整个置换表
@@ -214,7 +350,7 @@ public class DES extends CryptoAlgorithm {
      * @param bytes  存储转换结果的字节数组
      * @param offset 转换结果在字节数组中的偏移量位置
      */
-    private static void longToBytes(long value, byte[] bytes, int offset) {
+    static void longToBytes(long value, byte[] bytes, int offset) {
         for (int i = 0; i < 8; i++) {
             // 将 long 值右移 i * 8 位，然后通过与运算 (& 0xFF) 取出低 8 位的字节值
             bytes[offset + i] = (byte) ((value >>> (8 * i)) & 0xFF);
@@ -228,16 +364,8 @@ public class DES extends CryptoAlgorithm {
      * @return 加密后的数据
      */
     public byte[] encrypt(byte[] data) {
-        byte[] paddedData = pkcs5Pad(data); // 对数据进行PKCS5填充
-        byte[] encryptedData = new byte[paddedData.length]; // 创建一个和填充后的数据长度一样的字节数组
-
-        // 逐个分组加密数据
-        for (int i = 0; i < paddedData.length; i += 8) {
-            long block = bytesToLong(paddedData, i); // 将8个字节转换成一个long类型的数据块
-            long encryptedBlock = encryptBlock(block); // 对数据块进行加密
-            longToBytes(encryptedBlock, encryptedData, i); // 将加密后的数据块存入字节数组中
-        }
-
+        byte[] encryptedData = new byte[encryptOutputSize(data.length)]; // 创建一个和填充后的数据长度一样的字节数组
+        encryptChunk(data, 0, data.length, encryptedData, 0, true); // 逐个分组加密数据，只对最后一个分组进行PKCS5填充
         return encryptedData;
     }
 
@@ -254,35 +382,470 @@ public class DES extends CryptoAlgorithm {
         }
 
         byte[] decryptedData = new byte[encryptedData.length]; // 创建一个和加密后的数据长度一样的字节数组
+        cryptBlocks(encryptedData, 0, encryptedData.length, decryptedData, 0, true); // 逐个分组解密数据
+        return pkcs5Unpad(decryptedData); // 对解密后的数据进行PKCS5去填充
+    }
 
-        // 逐个分组解密数据
-        for (int i = 0; i < encryptedData.length; i += 8) {
-            long block = bytesToLong(encryptedData, i); // 将8个字节转换成一个long类型的数据块
-            long decryptedBlock = decryptBlock(block); // 对数据块进行解密
-            longToBytes(decryptedBlock, decryptedData, i); // 将解密后的数据块存入字节数组中
+    /**
+     * CBC 模式加密：每个明文分组先与前一个密文分组（第一个分组与 IV）异或再加密，数据经过PKCS5填充。
+     * 每个分组依赖前一个分组的密文，只能逐个分组串行加密。
+     *
+     * @param data 待加密的数据
+     * @param iv   8字节初始向量
+     * @return 加密后的数据
+     */
+    public byte[] encryptCBC(byte[] data, byte[] iv) {
+        long previous = bytesToLong(checkIV(iv), 0);
+        int fullLength = data.length - data.length % 8; // 完整分组的总长度
+        byte[] encryptedData = new byte[fullLength + 8];
+
+        for (int i = 0; i < fullLength; i += 8) {
+            previous = encryptBlock(bytesToLong(data, i) ^ previous);
+            longToBytes(previous, encryptedData, i);
         }
 
+        // 对最后不足一个分组的数据进行PKCS5填充
+        previous = encryptBlock(pkcs5PadBlock(data, fullLength, data.length - fullLength) ^ previous);
+        longToBytes(previous, encryptedData, fullLength);
+
+        return encryptedData;
+    }
+
+    /**
+     * CBC 模式解密：先对全部分组做分组解密，再与前一个密文分组异或。
+     * 各分组的解密互不依赖，因此与 decrypt 一样使用位切片后端并按段并行处理。
+     *
+     * @param encryptedData 待解密的数据
+     * @param iv            8字节初始向量
+     * @return 解密后的数据
+     * @throws IllegalArgumentException 当数据长度不是8的倍数时抛出异常
+     */
+    public byte[] decryptCBC(byte[] encryptedData, byte[] iv) {
+        checkIV(iv);
+        if (encryptedData.length % 8 != 0 || encryptedData.length == 0) {
+            throw new IllegalArgumentException("Data length must be a multiple of 8 bytes.");
+        }
+
+        byte[] decryptedData = new byte[encryptedData.length];
+        cryptBlocks(encryptedData, 0, encryptedData.length, decryptedData, 0, true);
+
+        // 与前一个密文分组异或，第一个分组与 IV 异或
+        DESKernels.INSTANCE.xor(decryptedData, 0, iv, 0, decryptedData, 0, 8);
+        DESKernels.INSTANCE.xor(decryptedData, 8, encryptedData, 0, decryptedData, 8, decryptedData.length - 8);
+
         return pkcs5Unpad(decryptedData); // 对解密后的数据进行PKCS5去填充
     }
 
     /**
-     * 对数据进行PKCS5填充
+     * CTR 模式加密：将 IV 视为 64 位大端计数器，第 i 个分组与计数器 IV + i 的加密结果异或。
+     * 不需要填充，密文与明文等长；密钥流各分组互不依赖，使用位切片后端并按段并行生成。
+     *
+     * @param data 待加密的数据
+     * @param iv   8字节初始计数器
+     * @return 加密后的数据
+     */
+    public byte[] encryptCTR(byte[] data, byte[] iv) {
+        long counter = Long.reverseBytes(bytesToLong(checkIV(iv), 0)); // 按大端序读取计数器
+        byte[] output = new byte[(data.length + 7) & ~7];
+
+        // 生成全部计数器分组，原地加密得到密钥流
+        for (int i = 0; i < output.length; i += 8) {
+            longToBytes(Long.reverseBytes(counter++), output, i);
+        }
+        cryptBlocks(output, 0, output.length, output, 0, false);
+
+        // 密钥流与数据异或，去掉最后一个分组中多余的密钥流
+        DESKernels.INSTANCE.xor(output, 0, data, 0, output, 0, data.length);
+        return output.length == data.length ? output : Arrays.copyOf(output, data.length);
+    }
+
+    /**
+     * CTR 模式解密，与加密完全相同。
+     *
+     * @param encryptedData 待解密的数据
+     * @param iv            8字节初始计数器
+     * @return 解密后的数据
+     */
+    public byte[] decryptCTR(byte[] encryptedData, byte[] iv) {
+        return encryptCTR(encryptedData, iv);
+    }
+
+    /**
+     * CTR 模式加密或解密数据流中从 position 开始的一段，结果与 encryptCTR 对整个数据流加密后的对应部分相同，
+     * 因此可以只处理数据流中间的任意一段，不必从头开始。密钥流每次生成 CTR_STEP 字节，in 和 out 可以是同一数组。
+     *
+     * @param counter  初始计数器，即 encryptCTR 中按大端序读取的 IV
+     * @param position 这一段第一个字节在数据流中的偏移量
+     * @param in       输入字节数组
+     * @param inOff    输入起始偏移量
+     * @param len      长度
+     * @param out      输出字节数组
+     * @param outOff   输出起始偏移量
+     */
+    void cryptCTR(long counter, long position, byte[] in, int inOff, int len, byte[] out, int outOff) {
+        long block = counter + (position >>> 3); // 第一个字节所在分组的计数器
+        int skip = (int) (position & 7); // 第一个分组中跳过的密钥流字节数
+        byte[] keystream = new byte[Math.min(CTR_STEP, (skip + len + 7) & ~7)];
+
+        for (int done = 0; done < len; skip = 0) {
+            int n = Math.min(keystream.length, (skip + len - done + 7) & ~7);
+            for (int i = 0; i < n; i += 8) {
+                longToBytes(Long.reverseBytes(block++), keystream, i);
+            }
+            cryptBlocks(keystream, 0, n, keystream, 0, false);
+
+            int take = Math.min(n - skip, len - done);
+            DESKernels.INSTANCE.xor(in, inOff + done, keystream, skip, out, outOff + done, take);
+            done += take;
+        }
+    }
+
+    /**
+     * 检查初始向量的长度
+     *
+     * @param iv 初始向量
+     * @return 初始向量本身
+     * @throws IllegalArgumentException 当初始向量不是8个字节时抛出异常
+     */
+    private static byte[] checkIV(byte[] iv) {
+        if (iv == null || iv.length != 8) {
+            throw new IllegalArgumentException("IV must be 8 bytes.");
+        }
+        return iv;
+    }
+
+    @Override
+    protected int plainBlockSize() {
+        return 8;
+    }
+
+    @Override
+    protected int cipherBlockSize() {
+        return 8;
+    }
+
+    /**
+     * 分块加密，只对最后一块进行PKCS5填充
+     *
+     * @param in     明文字节数组
+     * @param inOff  明文起始偏移量
+     * @param len    明文长度，除最后一块外必须是8的倍数
+     * @param out    密文字节数组
+     * @param outOff 密文起始偏移量
+     * @param last   是否为最后一块
+     * @return 写入 out 的字节数
+     */
+    @Override
+    protected int encryptChunk(byte[] in, int inOff, int len, byte[] out, int outOff, boolean last) {
+        int fullLength = len - len % 8; // 完整分组的总长度
+        if (!last && fullLength != len) {
+            throw new IllegalArgumentException("Data length must be a multiple of 8 bytes.");
+        }
+        cryptBlocks(in, inOff, fullLength, out, outOff, false);
+        if (!last) {
+            return len;
+        }
+
+        // 对剩余不足一个分组的数据进行PKCS5填充后加密
+        long block = pkcs5PadBlock(in, inOff + fullLength, len - fullLength);
+        longToBytes(encryptBlock(block), out, outOff + fullLength);
+        return fullLength + 8;
+    }
+
+    /**
+     * 分块解密，只对最后一块去除PKCS5填充
+     *
+     * @param in     密文字节数组
+     * @param inOff  密文起始偏移量
+     * @param len    密文长度，必须是8的倍数
+     * @param out    明文字节数组
+     * @param outOff 明文起始偏移量
+     * @param last   是否为最后一块
+     * @return 写入 out 的字节数
+     */
+    @Override
+    protected int decryptChunk(byte[] in, int inOff, int len, byte[] out, int outOff, boolean last) {
+        if (len % 8 != 0 || (last && len == 0)) {
+            throw new IllegalArgumentException("Data length must be a multiple of 8 bytes.");
+        }
+        cryptBlocks(in, inOff, len, out, outOff, true);
+        if (!last) {
+            return len;
+        }
+        return len - pkcs5PaddingSize(out, outOff + len - 8); // 去除最后一个分组中的填充
+    }
+
+    /**
+     * 逐个分组加密或解密数据，数据足够长时先用位切片后端每次处理 64 个分组
+     *
+     * @param in      输入字节数组
+     * @param inOff   输入起始偏移量
+     * @param len     输入长度，必须是8的倍数
+     * @param out     输出字节数组
+     * @param outOff  输出起始偏移量
+     * @param decrypt 为 true 时解密，否则加密
+     */
+    private void cryptBlocks(byte[] in, int inOff, int len, byte[] out, int outOff, boolean decrypt) {
+        if (len >= parallelThreshold && len > SEGMENT_SIZE) {
+            cryptSegments(in, inOff, len, out, outOff, decrypt);
+            return;
+        }
+
+        int i = 0;
+
+        if (DESBitslice.SUPPORTED && len >= BITSLICE_THRESHOLD) {
+            DESBitslice.Workspace workspace = DESBitslice.WORKSPACE.get();
+            long[] blocks = workspace.blocks;
+            for (; i + BITSLICE_THRESHOLD <= len; i += BITSLICE_THRESHOLD) {
+                DESKernels.INSTANCE.loadBlocks(in, inOff + i, blocks, blocks.length);
+                bitslice.crypt(blocks, decrypt, workspace);
+                DESKernels.INSTANCE.storeBlocks(blocks, out, outOff + i, blocks.length);
+            }
+            Reference.reachabilityFence(schedule); // 位切片掩码同样会被 Cleaner 清零
+        }
+
+        // 逐个分组处理剩余的数据
+        for (; i < len; i += 8) {
+            long block = bytesToLong(in, inOff + i); // 将8个字节转换成一个long类型的数据块
+            block = decrypt ? decryptBlock(block) : encryptBlock(block); // 对数据块进行加密或解密
+            longToBytes(block, out, outOff + i); // 将处理后的数据块存入字节数组中
+        }
+    }
+
+    /**
+     * 将数据按 SEGMENT_SIZE 拆分成段，在线程池中并行加密或解密。
+     * 各分组互不依赖，每段直接写入输出数组中对应的位置。
+     *
+     * @param in      输入字节数组
+     * @param inOff   输入起始偏移量
+     * @param len     输入长度，必须是8的倍数
+     * @param out     输出字节数组
+     * @param outOff  输出起始偏移量
+     * @param decrypt 为 true 时解密，否则加密
+     */
+    private void cryptSegments(byte[] in, int inOff, int len, byte[] out, int outOff, boolean decrypt) {
+        int segments = (len + SEGMENT_SIZE - 1) / SEGMENT_SIZE;
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[segments];
+        for (int i = 0; i < segments; i++) {
+            int start = i * SEGMENT_SIZE;
+            int length = Math.min(SEGMENT_SIZE, len - start);
+            tasks[i] = CompletableFuture.runAsync(
+                    () -> cryptBlocks(in, inOff + start, length, out, outOff + start, decrypt), executor);
+        }
+
+        try {
+            CompletableFuture.allOf(tasks).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 分块加密 ByteBuffer 中的数据，直接按 long 读写缓冲区，不经过中间字节数组
      *
-     * @param data 待填充的数据
-     * @return 填充后的数据
+     * @param in   明文缓冲区，读取 position 到 limit 之间的全部数据
+     * @param out  密文缓冲区，从 position 开始写入
+     * @param last 是否为最后一块，只对最后一块进行PKCS5填充
      */
-    private byte[] pkcs5Pad(byte[] data) {
-        int blockSize = 8; // 定义分组大小为8
-        int paddingSize = blockSize - (data.length % blockSize); // 计算需要填充的字节数
-        byte[] paddedData = Arrays.copyOf(data, data.length + paddingSize); // 创建一个新的字节数组，长度是原数组长度+需要填充的字节数
+    @Override
+    protected void encryptChunk(ByteBuffer in, ByteBuffer out, boolean last) {
+        int len = in.remaining();
+        int fullLength = len - len % 8; // 完整分组的总长度
+        if (!last && fullLength != len) {
+            throw new IllegalArgumentException("Data length must be a multiple of 8 bytes.");
+        }
+        cryptBlocks(in, fullLength, out, false);
+        if (!last) {
+            return;
+        }
 
-        // 对新数组的后paddingSize个字节进行填充，填充的
-        // 值为paddingSize
-        for (int i = 0; i < paddingSize; i++) {
-            paddedData[data.length + i] = (byte) paddingSize;
+        // 对剩余不足一个分组的数据进行PKCS5填充后加密，填充值即填充的字节数
+        int remaining = len - fullLength;
+        long block = 0;
+        for (int i = 0; i < 8; i++) {
+            long value = i < remaining ? in.get() & 0xFF : 8 - remaining;
+            block |= value << (8 * i);
         }
+        putLong(out, encryptBlock(block));
+    }
 
-        return paddedData;
+    /**
+     * 分块解密 ByteBuffer 中的数据，直接按 long 读写缓冲区，不经过中间字节数组
+     *
+     * @param in   密文缓冲区，读取 position 到 limit 之间的全部数据
+     * @param out  明文缓冲区，从 position 开始写入
+     * @param last 是否为最后一块，只对最后一块去除PKCS5填充
+     */
+    @Override
+    protected void decryptChunk(ByteBuffer in, ByteBuffer out, boolean last) {
+        int len = in.remaining();
+        if (len % 8 != 0 || (last && len == 0)) {
+            throw new IllegalArgumentException("Data length must be a multiple of 8 bytes.");
+        }
+        cryptBlocks(in, len, out, true);
+        if (last) {
+            // 重新读出最后一个分组，直接在输出缓冲区中检查并去除填充
+            out.position(out.position() - 8);
+            long block = getLong(out);
+            out.position(out.position() - pkcs5PaddingSize(block));
+        }
+    }
+
+    /**
+     * 逐个分组加密或解密 ByteBuffer 中的数据，数据足够长时先用位切片后端每次处理 64 个分组。
+     * in 和 out 可以是同一块内存的两个视图，此时原地处理。
+     *
+     * @param in      输入缓冲区，从 position 开始读取
+     * @param len     输入长度，必须是8的倍数
+     * @param out     输出缓冲区，从 position 开始写入
+     * @param decrypt 为 true 时解密，否则加密
+     */
+    private void cryptBlocks(ByteBuffer in, int len, ByteBuffer out, boolean decrypt) {
+        int i = 0;
+
+        if (DESBitslice.SUPPORTED && len >= BITSLICE_THRESHOLD) {
+            DESBitslice.Workspace workspace = DESBitslice.WORKSPACE.get();
+            long[] blocks = workspace.blocks;
+            for (; i + BITSLICE_THRESHOLD <= len; i += BITSLICE_THRESHOLD) {
+                for (int j = 0; j < blocks.length; j++) {
+                    blocks[j] = getLong(in);
+                }
+                bitslice.crypt(blocks, decrypt, workspace);
+                for (int j = 0; j < blocks.length; j++) {
+                    putLong(out, blocks[j]);
+                }
+            }
+            Reference.reachabilityFence(schedule); // 位切片掩码同样会被 Cleaner 清零
+        }
+
+        // 逐个分组处理剩余的数据
+        for (; i < len; i += 8) {
+            long block = getLong(in);
+            putLong(out, decrypt ? decryptBlock(block) : encryptBlock(block));
+        }
+    }
+
+    /**
+     * 从缓冲区读取8个字节，与 bytesToLong 一样按小端序组成 long，与缓冲区本身的字节序无关
+     *
+     * @param buffer 缓冲区
+     * @return long类型的数据
+     */
+    private static long getLong(ByteBuffer buffer) {
+        long value = buffer.getLong();
+        return buffer.order() == ByteOrder.LITTLE_ENDIAN ? value : Long.reverseBytes(value);
+    }
+
+    /**
+     * 将 long 按小端序写入缓冲区，与 longToBytes 一致
+     *
+     * @param buffer 缓冲区
+     * @param value  要写入的 long 值
+     */
+    private static void putLong(ByteBuffer buffer, long value) {
+        buffer.putLong(buffer.order() == ByteOrder.LITTLE_ENDIAN ? value : Long.reverseBytes(value));
+    }
+
+    /**
+     * 原地加密文件，不创建第二个文件。
+     * 完整的分组按窗口映射到内存后原地加密，末尾不足一个分组的数据填充后加密并写在文件末尾，文件长度增加 1 到 8 个字节。
+     *
+     * @param filePath 待加密的文件路径
+     * @throws IOException 文件读写错误
+     */
+    public void encryptFileInPlace(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long fullLength = size - size % 8;
+            cryptInPlace(channel, fullLength, false);
+
+            // 读取末尾不足一个分组的数据，填充加密后写回
+            ByteBuffer tail = ByteBuffer.allocate((int) (size - fullLength));
+            while (tail.hasRemaining()) {
+                if (channel.read(tail, fullLength + tail.position()) < 0) {
+                    break;
+                }
+            }
+            tail.flip();
+            ByteBuffer encryptedTail = ByteBuffer.allocate(8);
+            encryptChunk(tail, encryptedTail, true);
+            encryptedTail.flip();
+            while (encryptedTail.hasRemaining()) {
+                channel.write(encryptedTail, fullLength + encryptedTail.position());
+            }
+        }
+    }
+
+    /**
+     * 原地解密文件，不创建第二个文件。
+     * 全部分组按窗口映射到内存后原地解密，检查最后一个分组中的填充后按填充的字节数截断文件。
+     *
+     * @param filePath 待解密的文件路径
+     * @throws IOException 文件读写错误
+     * @throws IllegalArgumentException 当文件长度不是8的倍数或为空时抛出异常；
+     *                                  填充无效（例如密钥错误）时重新加密、恢复原来的密文后抛出异常
+     */
+    public void decryptFileInPlace(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size % 8 != 0 || size == 0) {
+                throw new IllegalArgumentException("Data length must be a multiple of 8 bytes.");
+            }
+            cryptInPlace(channel, size, true);
+
+            // 去除填充
+            ByteBuffer padding = ByteBuffer.allocate(8);
+            while (padding.hasRemaining()) {
+                if (channel.read(padding, size - 8 + padding.position()) < 0) {
+                    throw new EOFException("File changed during decryption.");
+                }
+            }
+            int paddingSize;
+            try {
+                paddingSize = pkcs5PaddingSize(padding.array(), 0);
+            } catch (IllegalArgumentException e) {
+                cryptInPlace(channel, size, false); // ECB 的各分组互不依赖，重新加密即可恢复原文件
+                throw e;
+            }
+            channel.truncate(size - paddingSize);
+        }
+    }
+
+    /**
+     * 将文件开头的 length 个字节按窗口映射到内存后原地加密或解密
+     *
+     * @param channel 以读写方式打开的文件通道
+     * @param length  要处理的长度，必须是8的倍数
+     * @param decrypt 为 true 时解密，否则加密
+     * @throws IOException 文件读写错误
+     */
+    private void cryptInPlace(FileChannel channel, long length, boolean decrypt) throws IOException {
+        long window = mapWindowSize(8);
+        for (long position = 0; position < length; position += window) {
+            int len = (int) Math.min(window, length - position);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, len);
+            cryptBlocks(buffer.duplicate(), len, buffer, decrypt);
+        }
+    }
+
+    /**
+     * 对最后不足一个分组的数据进行PKCS5填充，直接得到填充后的分组，不复制整个数据
+     *
+     * @param data      数据所在的字节数组
+     * @param offset    剩余数据的起始偏移量
+     * @param remaining 剩余数据的长度，0 到 7
+     * @return 与 bytesToLong 字节序相同的填充后的分组，填充值即填充的字节数
+     */
+    static long pkcs5PadBlock(byte[] data, int offset, int remaining) {
+        long block = 0;
+        for (int i = 0; i < 8; i++) {
+            long value = i < remaining ? data[offset + i] & 0xFF : 8 - remaining;
+            block |= value << (8 * i);
+        }
+        return block;
     }
 
     /**
@@ -290,12 +853,49 @@ public class DES extends CryptoAlgorithm {
      *
      * @param paddedData PKCS5填充后的数据
      * @return 去除填充后的数据
+     * @throws IllegalArgumentException 当数据不足一个分组或填充无效时抛出异常
      */
-    private byte[] pkcs5Unpad(byte[] paddedData) {
-        int paddingSize = paddedData[paddedData.length - 1] & 0xFF; // 获取填充的字节数
+    static byte[] pkcs5Unpad(byte[] paddedData) {
+        if (paddedData.length < 8) {
+            throw new IllegalArgumentException("Data length must be a multiple of 8 bytes.");
+        }
+        int paddingSize = pkcs5PaddingSize(paddedData, paddedData.length - 8); // 获取填充的字节数
         return Arrays.copyOf(paddedData, paddedData.length - paddingSize); // 创建一个新的字节数组，长度为原数组长度减去填充的字节数
     }
 
+    /**
+     * 检查解密后最后一个分组中的PKCS5填充：填充值必须在 1 到 8 之间，且最后填充值个字节都等于填充值。
+     * 密钥错误或密文损坏时填充通常无效，不检查会截掉任意长度的数据或越界。
+     *
+     * @param block  最后一个分组所在的字节数组
+     * @param offset 最后一个分组的起始偏移量
+     * @return 填充的字节数
+     * @throws IllegalArgumentException 当填充无效时抛出异常
+     */
+    static int pkcs5PaddingSize(byte[] block, int offset) {
+        return pkcs5PaddingSize(bytesToLong(block, offset));
+    }
+
+    /**
+     * 检查按 bytesToLong 的方式存为 long 的最后一个分组中的PKCS5填充，第 i 个字节为 long 的第 i 个低位字节
+     *
+     * @param block 解密后的最后一个分组
+     * @return 填充的字节数
+     * @throws IllegalArgumentException 当填充无效时抛出异常
+     */
+    static int pkcs5PaddingSize(long block) {
+        int paddingSize = (int) (block >>> 56);
+        if (paddingSize < 1 || paddingSize > 8) {
+            throw new IllegalArgumentException("Invalid padding.");
+        }
+        for (int i = 8 - paddingSize; i < 7; i++) {
+            if ((int) ((block >>> (8 * i)) & 0xFF) != paddingSize) {
+                throw new IllegalArgumentException("Invalid padding.");
+            }
+        }
+        return paddingSize;
+    }
+
     /**
      * 对一个64位的数据块进行加密
      *
@@ -313,7 +913,7 @@ public class DES extends CryptoAlgorithm {
         // 执行 16 轮的 F 函数运算
         for (int i = 0; i < 16; i++) {
             // F 函数包括扩展置换、与子密钥异或、S盒替代、P置换等步骤
-            int newRight = left ^ fFunction(right, subKeys[i]); // 用 F 函数处理右半部分，然后与左半部分进行异或
+            int newRight = left ^ fFunction(right, roundKeys, i); // 用 F 函数处理右半部分，然后与左半部分进行异或
             left = right; // 在下一轮迭代中，当前的右半部分会成为左半部分
             right = newRight; // 在下一轮迭代中，newRight 会成为右半部分
         }
@@ -324,56 +924,30 @@ public class DES extends CryptoAlgorithm {
         // 逆初始置换
         block = inverseInitialPermutation(block); // 执行逆初始置换，得到密文块
 
+        // 密钥调度不可达后会被 DESKeyScheduleCache 的 Cleaner 清零，用完 roundKeys 之前必须保持可达
+        Reference.reachabilityFence(schedule);
         return block; // 返回加密后的块
     }
 
-    /**
-     * 生成16个子密钥。
-     * 对给定的主密钥应用PC-1置换，将置换后的密钥分为两部分（c 和 d）。
-     * 根据移位表对 c 和 d 进行左移操作，并使用PC-2置换生成每一轮的子密钥。
-     */
-    public void generateSubKeys() {
-        // 对密钥应用 PC-1 置换
-        long permutedChoice1 = permute(key, PC1);
-
-        // 将置换后的密钥分为两半，分别为 c 和 d
-        int c = (int) (permutedChoice1 >>> 28); // 取 permutedChoice1 的高 28 位
-        int d = (int) (permutedChoice1 & 0xFFFFFFF); // 取 permutedChoice1 的低 28 位
-
-        // 进行 16 轮操作，每轮都会生成一个子密钥
-        for (int i = 0; i < 16; i++) {
-            // 根据移位表进行左移操作
-            c = (c << SHIFTS[i]) | (c >>> (28 - SHIFTS[i]));
-            d = (d << SHIFTS[i]) | (d >>> (28 - SHIFTS[i]));
-
-            // 对移位后的 c 和 d 应用 PC-2 置换，生成子密钥
-            long permutedChoice2 = (((long) c) << 28) | d; // 将 c 和 d 重新组合，准备进行 PC-2 置换
-            subKeys[i] = permute(permutedChoice2, PC2); // 生成第 i 轮的子密钥
-        }
-    }
-
     /**
      * 执行 F 函数。
-     * 将右半块进行扩展置换，与子密钥进行异或操作，进行 S 盒替代，最后进行 P 置换。
+     * 扩展置换、与子密钥异或、S 盒替代和 P 置换合并为 8 次 SP 盒查表：
+     * 扩展置换（32位扩展为48位）的第 i 组6位恰好是右半块循环右移 27 - 4i 位后的低6位，
+     * 因此循环右移3位和循环左移1位后即可按字节取出全部8组。
      *
-     * @param right    右半块的值
-     * @param subKey   当前轮的子密钥
+     * @param right 右半块的值
+     * @param keys  按 roundKeys 布局存放的子密钥
+     * @param round 当前轮数
      * @return F 函数的结果
      */
-    private int fFunction(int right, long subKey) {
-        // 扩展置换
-        long expandedRight = expand(right); // 对右半块进行扩展置换，将其从 32 位扩展到 48 位
-
-        // 与子密钥进行异或
-        expandedRight ^= subKey; // 对扩展后的右半块和当前的子密钥进行异或操作
-
-        // S 盒替代
-        int output = sBoxSubstitution(expandedRight); // 对异或后的结果进行 S 盒替代，将其从 48 位压缩回 32 位
-
-        // P 置换
-        output = pBoxPermutation(output); // 对 S 盒替代后的结果进行 P 置换
-
-        return output; // 返回 F 函数的结果
+    static int fFunction(int right, int[] keys, int round) {
+        // 扩展置换并与子密钥异或，t 中是第 0、2、4、6 组，u 中是第 1、3、5、7 组
+        int t = Integer.rotateRight(right, 3) ^ keys[2 * round];
+        int u = Integer.rotateLeft(right, 1) ^ keys[2 * round + 1];
+
+        // S 盒替代与 P 置换
+        return SP[0][(t >>> 24) & 0x3F] | SP[2][(t >>> 16) & 0x3F] | SP[4][(t >>> 8) & 0x3F] | SP[6][t & 0x3F]
+                | SP[1][(u >>> 24) & 0x3F] | SP[3][(u >>> 16) & 0x3F] | SP[5][(u >>> 8) & 0x3F] | SP[7][u & 0x3F];
     }
 
     /**
@@ -395,7 +969,7 @@ public class DES extends CryptoAlgorithm {
         // 16轮DES算法的解密操作
         for (int i = 15; i >= 0; i--) {
             int previousRight = right;
-            right = left ^ fFunction(right, subKeys[i]);
+            right = left ^ fFunction(right, roundKeys, i);
             left = previousRight;
         }
 
@@ -403,84 +977,46 @@ public class DES extends CryptoAlgorithm {
         long preOutput = ((long) right << 32) | (left & 0xFFFFFFFFL);
 
         // 执行逆初始置换并返回解密结果
-        return inverseInitialPermutation(preOutput);
+        long block = inverseInitialPermutation(preOutput);
+        Reference.reachabilityFence(schedule); // 同 encryptBlock
+        return block;
     }
 
 
     /**
      * 执行初始置换操作。
-     * 调用 permute 方法并传入初始置换表 IP 进行置换操作。
+     * 按字节查 IP_TABLE 并将结果异或，等价于调用 permute 方法并传入初始置换表 IP。
      *
      * @param block 要执行初始置换的数据块
      * @return 置换后的结果
      */
-    private long initialPermutation(long block) {
-        // 初始置换是通过调用 permute 函数并传入初始置换表 IP 来实现的
-        return permute(block, IP);
+    static long initialPermutation(long block) {
+        return IP_TABLE[0][(int) block & 0xFF]
+                ^ IP_TABLE[1][(int) (block >>> 8) & 0xFF]
+                ^ IP_TABLE[2][(int) (block >>> 16) & 0xFF]
+                ^ IP_TABLE[3][(int) (block >>> 24) & 0xFF]
+                ^ IP_TABLE[4][(int) (block >>> 32) & 0xFF]
+                ^ IP_TABLE[5][(int) (block >>> 40) & 0xFF]
+                ^ IP_TABLE[6][(int) (block >>> 48) & 0xFF]
+                ^ IP_TABLE[7][(int) (block >>> 56) & 0xFF];
     }
 
     /**
      * 执行逆初始置换操作。
-     * 调用 permute 方法并传入逆初始置换表 IIP 进行置换操作。
+     * 按字节查 FP_TABLE 并将结果异或，等价于调用 permute 方法并传入逆初始置换表 IIP。
      *
      * @param block 要执行逆初始置换的数据块
      * @return 置换后的结果
      */
-    private long inverseInitialPermutation(long block) {
-        // 逆初始置换是通过调用 permute 函数并传入逆初始置换表 IIP 来实现的
-        return permute(block, IIP);
-    }
-
-    /**
-     * 执行扩展置换。
-     * 将给定的32位数据块进行扩展置换，将其从32位扩展到48位。
-     *
-     * @param block 要进行扩展置换的32位数据块
-     * @return 扩展置换后的48位结果
-     */
-    private long expand(int block) {
-        long result = 0;
-
-        // 遍历扩展置换表 E
-        for (int i = 0; i < E.length; i++) {
-            // 将结果左移1位，为下一个位做准备
-            result <<= 1;
-
-            // 取出 block 中的位值，这个位值的位置由扩展置换表 E 给出
-            // (32 - E[i]) 是因为位操作从右向左（也就是从低位向高位）计算，而扩展置换表 E 中的位序是从左向右（也就是从高位向低位）编号的
-            // (block >>> (32 - E[i])) & 1 这部分取出了相应位置的位值，然后与 result 进行或操作
-            result |= (block >>> (32 - E[i])) & 1;
-        }
-
-        // 返回扩展置换后的结果
-        return result;
-    }
-
-    /**
-     * 执行S盒替代。
-     * 对给定的48位数据块进行S盒替代，将其从48位压缩到32位。
-     *
-     * @param block 要进行S盒替代的48位数据块
-     * @return 替代后的32位结果
-     */
-    private int sBoxSubstitution(long block) {
-        int output = 0;
-
-        // 遍历8个S盒
-        for (int i = 0; i < 8; i++) {
-            // 计算S盒中的行号和列号
-            int row = (int) ((block >>> (42 - i * 6 + 4)) & 0x02 | (block >>> (42 - i * 6)) & 0x01);
-            int col = (int) ((block >>> (42 - i * 6 + 1)) & 0x0F);
-
-            // 将输出结果左移4位，为下一个S盒结果的拼接做准备
-            output <<= 4;
-
-            // 通过S盒进行替代，并与输出结果进行拼接
-            output |= S[i][row][col];
-        }
-
-        // 返回替代后的32位结果
-        return output;
+    static long inverseInitialPermutation(long block) {
+        return FP_TABLE[0][(int) block & 0xFF]
+                ^ FP_TABLE[1][(int) (block >>> 8) & 0xFF]
+                ^ FP_TABLE[2][(int) (block >>> 16) & 0xFF]
+                ^ FP_TABLE[3][(int) (block >>> 24) & 0xFF]
+                ^ FP_TABLE[4][(int) (block >>> 32) & 0xFF]
+                ^ FP_TABLE[5][(int) (block >>> 40) & 0xFF]
+                ^ FP_TABLE[6][(int) (block >>> 48) & 0xFF]
+                ^ FP_TABLE[7][(int) (block >>> 56) & 0xFF];
     }
 
     /**
@@ -490,7 +1026,7 @@ public class DES extends CryptoAlgorithm {
      * @param block 要进行P置换的32位数据块
      * @return 置换后的32位结果
      */
-    private int pBoxPermutation(int block) {
+    static int pBoxPermutation(int block) {
         int output = 0;
 
         // 遍历P置换表P
@@ -508,4 +1044,15 @@ public class DES extends CryptoAlgorithm {
         return output;
     }
 
-}
\ No newline at end of file
+    /**
+     * 查询S盒。
+     *
+     * @param box   S盒编号（0-7）
+     * @param input 6位输入，首位和末位组成行号，中间4位组成列号
+     * @return 4位输出
+     */
+    static int sBox(int box, int input) {
+        return S[box][((input >>> 4) & 0x02) | (input & 0x01)][(input >>> 1) & 0x0F];
+    }
+
+}
@@ -0,0 +1,746 @@
+/**
+ * DES 位切片（bitslice）实现
+ * 文件用途:
+ * 该文件实现了 DES 的位切片后端，一次同时加密或解密 64 个分组。
+ * 64 个分组先转置为 64 个 long 位平面（第 b 个位平面的第 j 位是第 j 个分组的第 b 位），
+ * 此时所有置换都只是位平面的重新编号，S 盒则以布尔门电路的形式对 64 个分组并行求值，最后再转置回来。
+ * 整个过程没有依赖数据的查表操作，运行时间与数据无关。
+ * 分组和左右半块的位平面保存在每个线程各自的 Workspace 中，加密、解密时不分配数组。
+ * S 盒门电路 s1-s8 是由 S 盒真值表经 Möbius 变换得到的代数正规型（单项式的异或），
+ * 类加载时会用 sBox 逐一校验，S 盒表被修改而门电路未同步时 SUPPORTED 为 false，DES 将只使用查表引擎。
+ */
+package crypto;
+
+import java.util.Arrays;
+
+final class DESBitslice {
+
+    // 一次并行处理的分组数
+    static final int BLOCKS = 64;
+
+    // 初始置换后第 i 位来自输入的第 IP_SRC[i] 位
+    private static final int[] IP_SRC = new int[64];
+
+    // 逆初始置换后第 i 位来自输入的第 FP_SRC[i] 位
+    private static final int[] FP_SRC = new int[64];
+
+    // 扩展置换后第 i 位来自右半块的第 E_SRC[i] 位
+    private static final int[] E_SRC = new int[48];
+
+    // 第 g 个S盒的第 ob 个输出位经P置换后落在 F 函数结果的第 P_DST[g][ob] 位
+    private static final int[][] P_DST = new int[8][4];
+
+    // 门电路与 S 盒表是否一致
+    static final boolean SUPPORTED;
+
+    static {
+        // 置换只是位的重新排列，用单个位探测即可得到每一位的来源或去向
+        for (int b = 0; b < 64; b++) {
+            IP_SRC[Long.numberOfTrailingZeros(DES.initialPermutation(1L << b))] = b;
+            FP_SRC[Long.numberOfTrailingZeros(DES.inverseInitialPermutation(1L << b))] = b;
+        }
+
+        for (int g = 0; g < 8; g++) {
+            // 扩展置换的第 g 组6位是右半块循环右移 27 - 4g 位后的低6位
+            for (int k = 0; k < 6; k++) {
+                E_SRC[42 - 6 * g + k] = (27 - 4 * g + k) & 31;
+            }
+
+            // S 盒输出在P置换前位于第 28 - 4g + ob 位
+            for (int ob = 0; ob < 4; ob++) {
+                P_DST[g][ob] = Integer.numberOfTrailingZeros(DES.pBoxPermutation(1 << (28 - 4 * g + ob)));
+            }
+        }
+
+        SUPPORTED = verifySBoxes();
+    }
+
+    // 每个线程各自的临时数组，同一线程上的调用依次复用
+    static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
+    /**
+     * 位切片加密、解密所需的临时数组
+     */
+    static final class Workspace {
+        final long[] blocks = new long[BLOCKS]; // 供调用者装入待处理的 64 个分组
+        final long[] left = new long[32];
+        final long[] right = new long[32];
+        final long[] e = new long[48];
+    }
+
+    // 加密用的子密钥位掩码，keyMasks[r][i] 为第 r 轮子密钥第 i 位（0 为最低位）扩展成的全 0 或全 1
+    private final long[][] keyMasks = new long[16][48];
+
+    /**
+     * 构造函数，由 DES 的16个子密钥生成位切片所需的子密钥掩码。
+     *
+     * @param subKeys 16个48位子密钥
+     */
+    DESBitslice(long[] subKeys) {
+        for (int r = 0; r < 16; r++) {
+            for (int i = 0; i < 48; i++) {
+                keyMasks[r][i] = -((subKeys[r] >>> i) & 1);
+            }
+        }
+    }
+
+    /**
+     * 将子密钥掩码清零，只能在不再使用本对象时调用
+     */
+    void wipe() {
+        for (long[] masks : keyMasks) {
+            Arrays.fill(masks, 0);
+        }
+    }
+
+    /**
+     * 原地加密或解密 64 个分组。
+     *
+     * @param blocks    64 个分组，每个分组按 DES.bytesToLong 的方式存为一个 long
+     * @param decrypt   为 true 时按相反顺序使用子密钥
+     * @param workspace 当前线程的临时数组，blocks 可以是其中的 blocks
+     */
+    void crypt(long[] blocks, boolean decrypt, Workspace workspace) {
+        DESKernels.INSTANCE.transpose(blocks);
+
+        // 初始置换：位平面重新编号，左半块为高 32 位，右半块为低 32 位
+        long[] left = workspace.left;
+        long[] right = workspace.right;
+        for (int i = 0; i < 32; i++) {
+            right[i] = blocks[IP_SRC[i]];
+            left[i] = blocks[IP_SRC[i + 32]];
+        }
+
+        long[] e = workspace.e;
+        for (int round = 0; round < 16; round++) {
+            long[] key = keyMasks[decrypt ? 15 - round : round];
+
+            // 扩展置换并与子密钥异或
+            for (int i = 0; i < 48; i++) {
+                e[i] = right[E_SRC[i]] ^ key[i];
+            }
+
+            // S 盒替代与 P 置换，F 函数的结果直接异或进左半块，左半块随后成为新的右半块
+            s1(e[42], e[43], e[44], e[45], e[46], e[47], left, P_DST[0]);
+            s2(e[36], e[37], e[38], e[39], e[40], e[41], left, P_DST[1]);
+            s3(e[30], e[31], e[32], e[33], e[34], e[35], left, P_DST[2]);
+            s4(e[24], e[25], e[26], e[27], e[28], e[29], left, P_DST[3]);
+            s5(e[18], e[19], e[20], e[21], e[22], e[23], left, P_DST[4]);
+            s6(e[12], e[13], e[14], e[15], e[16], e[17], left, P_DST[5]);
+            s7(e[6], e[7], e[8], e[9], e[10], e[11], left, P_DST[6]);
+            s8(e[0], e[1], e[2], e[3], e[4], e[5], left, P_DST[7]);
+
+            long[] previousRight = right;
+            right = left;
+            left = previousRight;
+        }
+
+        // 交换左右两个部分（右半块成为高 32 位）后执行逆初始置换
+        for (int i = 0; i < 64; i++) {
+            int src = FP_SRC[i];
+            blocks[i] = src >= 32 ? right[src - 32] : left[src];
+        }
+
+        DESKernels.INSTANCE.transpose(blocks);
+    }
+
+    /**
+     * 原地转置 64×64 的位矩阵：转置后 a[b] 的第 j 位等于转置前 a[j] 的第 b 位。
+     * 每一步交换右上与左下两个子块，共 6 步。
+     *
+     * @param a 64 个 long 组成的位矩阵
+     */
+    static void transpose(long[] a) {
+        long mask = 0x00000000FFFFFFFFL;
+        for (int j = 32; j != 0; j >>= 1, mask ^= mask << j) {
+            for (int k = 0; k < 64; k = ((k | j) + 1) & ~j) {
+                long t = ((a[k] >>> j) ^ a[k | j]) & mask;
+                a[k | j] ^= t;
+                a[k] ^= t << j;
+            }
+        }
+    }
+
+    /**
+     * 用门电路计算第 g 个S盒，并将经P置换后的输出异或到 out 中。
+     *
+     * @param g   S盒编号（0-7）
+     * @param x   6位输入，x[0] 为最低位
+     * @param out 输出位平面
+     */
+    private static void sBox(int g, long[] x, long[] out) {
+        int[] dst = P_DST[g];
+        switch (g) {
+            case 0: s1(x[0], x[1], x[2], x[3], x[4], x[5], out, dst); break;
+            case 1: s2(x[0], x[1], x[2], x[3], x[4], x[5], out, dst); break;
+            case 2: s3(x[0], x[1], x[2], x[3], x[4], x[5], out, dst); break;
+            case 3: s4(x[0], x[1], x[2], x[3], x[4], x[5], out, dst); break;
+            case 4: s5(x[0], x[1], x[2], x[3], x[4], x[5], out, dst); break;
+            case 5: s6(x[0], x[1], x[2], x[3], x[4], x[5], out, dst); break;
+            case 6: s7(x[0], x[1], x[2], x[3], x[4], x[5], out, dst); break;
+            default: s8(x[0], x[1], x[2], x[3], x[4], x[5], out, dst); break;
+        }
+    }
+
+    /**
+     * 校验门电路与 S 盒表是否一致。
+     * 第 v 个位平面通道输入 v，一次求值即可覆盖全部 64 种输入。
+     *
+     * @return 全部一致时返回 true
+     */
+    private static boolean verifySBoxes() {
+        long[] x = new long[6];
+        for (int p = 0; p < 6; p++) {
+            for (int v = 0; v < 64; v++) {
+                x[p] |= (long) ((v >>> p) & 1) << v;
+            }
+        }
+
+        for (int g = 0; g < 8; g++) {
+            long[] out = new long[32];
+            sBox(g, x, out);
+            for (int v = 0; v < 64; v++) {
+                for (int ob = 0; ob < 4; ob++) {
+                    if (((out[P_DST[g][ob]] >>> v) & 1) != ((DES.sBox(g, v) >>> ob) & 1)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 第 1 个S盒的门电路，x0 为6位输入的最低位，x5 为最高位。
+     *
+     * @param out 输出数组，第 ob 个输出位异或到 out[dst[ob]]
+     * @param dst 4个输出位的目标下标
+     */
+    private static void s1(long x0, long x1, long x2, long x3, long x4, long x5, long[] out, int[] dst) {
+        long m3 = x1 & x0;
+        long m5 = x2 & x0;
+        long m6 = x2 & x1;
+        long m9 = x3 & x0;
+        long m10 = x3 & x1;
+        long m12 = x3 & x2;
+        long m17 = x4 & x0;
+        long m18 = x4 & x1;
+        long m20 = x4 & x2;
+        long m24 = x4 & x3;
+        long m33 = x5 & x0;
+        long m34 = x5 & x1;
+        long m36 = x5 & x2;
+        long m40 = x5 & x3;
+        long m48 = x5 & x4;
+        long m7 = m6 & x0;
+        long m11 = m10 & x0;
+        long m13 = m12 & x0;
+        long m14 = m12 & x1;
+        long m21 = m20 & x0;
+        long m22 = m20 & x1;
+        long m25 = m24 & x0;
+        long m26 = m24 & x1;
+        long m28 = m24 & x2;
+        long m35 = m34 & x0;
+        long m37 = m36 & x0;
+        long m38 = m36 & x1;
+        long m42 = m40 & x1;
+        long m44 = m40 & x2;
+        long m49 = m48 & x0;
+        long m50 = m48 & x1;
+        long m52 = m48 & x2;
+        long m56 = m48 & x3;
+        long m15 = m14 & x0;
+        long m23 = m22 & x0;
+        long m27 = m26 & x0;
+        long m29 = m28 & x0;
+        long m43 = m42 & x0;
+        long m45 = m44 & x0;
+        long m46 = m44 & x1;
+        long m51 = m50 & x0;
+        long m53 = m52 & x0;
+        long m54 = m52 & x1;
+        long m57 = m56 & x0;
+        long m58 = m56 & x1;
+        long m60 = m56 & x2;
+        long m47 = m46 & x0;
+        long m55 = m54 & x0;
+        long m59 = m58 & x0;
+        long m61 = m60 & x0;
+        out[dst[0]] ^= m3 ^ x2 ^ m10 ^ x4 ^ m17 ^ m18 ^ m21 ^ m22 ^ m25 ^ m27 ^ m33 ^ m34 ^ m35 ^ m36 ^ m37 ^ m38
+                ^ m40 ^ m42 ^ m44 ^ m45 ^ m46 ^ m47 ^ m50 ^ m51 ^ m54 ^ m56 ^ m59 ^ m60 ^ m61;
+        out[dst[1]] ^= ~(x0 ^ x1 ^ x2 ^ m6 ^ m7 ^ m9 ^ m10 ^ m12 ^ m13 ^ m17 ^ m18 ^ m20 ^ m21 ^ m23 ^ m24 ^ m25 ^ m26
+                ^ m28 ^ m29 ^ x5 ^ m34 ^ m35 ^ m44 ^ m47 ^ m48 ^ m49 ^ m51 ^ m52 ^ m53 ^ m54 ^ m55 ^ m56 ^ m57 ^ m58
+                ^ m59 ^ m60 ^ m61);
+        out[dst[2]] ^= ~(x0 ^ m3 ^ m5 ^ m6 ^ x3 ^ m10 ^ m11 ^ m13 ^ m15 ^ x4 ^ m17 ^ m20 ^ m21 ^ m22 ^ m25 ^ m33 ^ m34
+                ^ m38 ^ m40 ^ m43 ^ m44 ^ m47 ^ m48 ^ m49 ^ m50 ^ m55 ^ m56 ^ m57 ^ m58 ^ m59 ^ m60 ^ m61);
+        out[dst[3]] ^= ~(x0 ^ x1 ^ m7 ^ x3 ^ m12 ^ m13 ^ m14 ^ x4 ^ m24 ^ m28 ^ x5 ^ m34 ^ m36 ^ m37 ^ m42 ^ m44 ^ m45
+                ^ m46 ^ m51 ^ m52 ^ m53 ^ m54 ^ m56 ^ m59 ^ m60 ^ m61);
+    }
+
+    /**
+     * 第 2 个S盒的门电路，x0 为6位输入的最低位，x5 为最高位。
+     *
+     * @param out 输出数组，第 ob 个输出位异或到 out[dst[ob]]
+     * @param dst 4个输出位的目标下标
+     */
+    private static void s2(long x0, long x1, long x2, long x3, long x4, long x5, long[] out, int[] dst) {
+        long m5 = x2 & x0;
+        long m6 = x2 & x1;
+        long m9 = x3 & x0;
+        long m10 = x3 & x1;
+        long m12 = x3 & x2;
+        long m17 = x4 & x0;
+        long m18 = x4 & x1;
+        long m20 = x4 & x2;
+        long m24 = x4 & x3;
+        long m33 = x5 & x0;
+        long m34 = x5 & x1;
+        long m36 = x5 & x2;
+        long m40 = x5 & x3;
+        long m48 = x5 & x4;
+        long m7 = m6 & x0;
+        long m11 = m10 & x0;
+        long m13 = m12 & x0;
+        long m14 = m12 & x1;
+        long m19 = m18 & x0;
+        long m21 = m20 & x0;
+        long m22 = m20 & x1;
+        long m25 = m24 & x0;
+        long m26 = m24 & x1;
+        long m28 = m24 & x2;
+        long m35 = m34 & x0;
+        long m37 = m36 & x0;
+        long m38 = m36 & x1;
+        long m41 = m40 & x0;
+        long m42 = m40 & x1;
+        long m44 = m40 & x2;
+        long m49 = m48 & x0;
+        long m50 = m48 & x1;
+        long m52 = m48 & x2;
+        long m56 = m48 & x3;
+        long m15 = m14 & x0;
+        long m23 = m22 & x0;
+        long m27 = m26 & x0;
+        long m29 = m28 & x0;
+        long m39 = m38 & x0;
+        long m43 = m42 & x0;
+        long m45 = m44 & x0;
+        long m46 = m44 & x1;
+        long m54 = m52 & x1;
+        long m57 = m56 & x0;
+        long m58 = m56 & x1;
+        long m60 = m56 & x2;
+        long m47 = m46 & x0;
+        long m55 = m54 & x0;
+        long m59 = m58 & x0;
+        long m61 = m60 & x0;
+        out[dst[0]] ^= ~(x2 ^ m7 ^ x3 ^ m9 ^ m10 ^ m15 ^ m17 ^ m19 ^ m21 ^ m22 ^ m26 ^ x5 ^ m33 ^ m34 ^ m36 ^ m37
+                ^ m39 ^ m40 ^ m41 ^ m44 ^ m45 ^ m47 ^ m48 ^ m50 ^ m55 ^ m57 ^ m58 ^ m59);
+        out[dst[1]] ^= ~(x1 ^ x2 ^ m9 ^ m10 ^ m12 ^ m13 ^ m14 ^ x4 ^ m23 ^ m27 ^ m33 ^ m34 ^ m39 ^ m42 ^ m46 ^ m52
+                ^ m55 ^ m56 ^ m57 ^ m58 ^ m60);
+        out[dst[2]] ^= ~(x0 ^ x1 ^ x2 ^ m13 ^ x4 ^ m17 ^ m20 ^ m24 ^ x5 ^ m36 ^ m37 ^ m38 ^ m40 ^ m42 ^ m43 ^ m44
+                ^ m47 ^ m49 ^ m52 ^ m56 ^ m57 ^ m58 ^ m59 ^ m60 ^ m61);
+        out[dst[3]] ^= ~(x0 ^ x1 ^ m5 ^ m6 ^ x3 ^ m9 ^ m11 ^ m13 ^ m15 ^ m20 ^ m21 ^ m22 ^ m24 ^ m25 ^ m27 ^ m29 ^ m33
+                ^ m35 ^ m36 ^ m38 ^ m39 ^ m40 ^ m45 ^ m47 ^ m48 ^ m49 ^ m50 ^ m52 ^ m54 ^ m55 ^ m58 ^ m61);
+    }
+
+    /**
+     * 第 3 个S盒的门电路，x0 为6位输入的最低位，x5 为最高位。
+     *
+     * @param out 输出数组，第 ob 个输出位异或到 out[dst[ob]]
+     * @param dst 4个输出位的目标下标
+     */
+    private static void s3(long x0, long x1, long x2, long x3, long x4, long x5, long[] out, int[] dst) {
+        long m5 = x2 & x0;
+        long m6 = x2 & x1;
+        long m9 = x3 & x0;
+        long m10 = x3 & x1;
+        long m12 = x3 & x2;
+        long m17 = x4 & x0;
+        long m18 = x4 & x1;
+        long m20 = x4 & x2;
+        long m24 = x4 & x3;
+        long m33 = x5 & x0;
+        long m34 = x5 & x1;
+        long m36 = x5 & x2;
+        long m40 = x5 & x3;
+        long m48 = x5 & x4;
+        long m7 = m6 & x0;
+        long m11 = m10 & x0;
+        long m13 = m12 & x0;
+        long m14 = m12 & x1;
+        long m19 = m18 & x0;
+        long m21 = m20 & x0;
+        long m22 = m20 & x1;
+        long m25 = m24 & x0;
+        long m26 = m24 & x1;
+        long m28 = m24 & x2;
+        long m37 = m36 & x0;
+        long m38 = m36 & x1;
+        long m42 = m40 & x1;
+        long m44 = m40 & x2;
+        long m49 = m48 & x0;
+        long m50 = m48 & x1;
+        long m52 = m48 & x2;
+        long m56 = m48 & x3;
+        long m15 = m14 & x0;
+        long m23 = m22 & x0;
+        long m27 = m26 & x0;
+        long m29 = m28 & x0;
+        long m39 = m38 & x0;
+        long m43 = m42 & x0;
+        long m45 = m44 & x0;
+        long m46 = m44 & x1;
+        long m51 = m50 & x0;
+        long m53 = m52 & x0;
+        long m54 = m52 & x1;
+        long m57 = m56 & x0;
+        long m58 = m56 & x1;
+        long m60 = m56 & x2;
+        long m47 = m46 & x0;
+        long m55 = m54 & x0;
+        long m59 = m58 & x0;
+        long m61 = m60 & x0;
+        out[dst[0]] ^= x0 ^ x2 ^ m6 ^ m10 ^ x4 ^ x5 ^ m33 ^ m34 ^ m37 ^ m38 ^ m40 ^ m42 ^ m48 ^ m49 ^ m50 ^ m51 ^ m56
+                ^ m57 ^ m58 ^ m61;
+        out[dst[1]] ^= ~(x0 ^ x1 ^ x2 ^ m5 ^ m7 ^ m9 ^ m10 ^ m11 ^ m12 ^ m13 ^ m14 ^ m15 ^ x4 ^ m18 ^ m19 ^ m20 ^ m22
+                ^ m24 ^ m25 ^ m28 ^ m29 ^ x5 ^ m33 ^ m36 ^ m37 ^ m38 ^ m39 ^ m42 ^ m43 ^ m45 ^ m47 ^ m49 ^ m50 ^ m51
+                ^ m52 ^ m53 ^ m55 ^ m60 ^ m61);
+        out[dst[2]] ^= x0 ^ m5 ^ m6 ^ m7 ^ x3 ^ m10 ^ m17 ^ m18 ^ m19 ^ m20 ^ m21 ^ m24 ^ m25 ^ m26 ^ m27 ^ m28 ^ x5
+                ^ m39 ^ m47 ^ m48 ^ m49 ^ m50 ^ m51 ^ m52 ^ m56 ^ m57 ^ m58 ^ m59 ^ m60;
+        out[dst[3]] ^= ~(x1 ^ m5 ^ m6 ^ m7 ^ x3 ^ m10 ^ m12 ^ m15 ^ x4 ^ m20 ^ m22 ^ m23 ^ m26 ^ m27 ^ m28 ^ m33 ^ m36
+                ^ m37 ^ m38 ^ m39 ^ m40 ^ m43 ^ m44 ^ m47 ^ m48 ^ m52 ^ m54 ^ m55 ^ m56 ^ m60);
+    }
+
+    /**
+     * 第 4 个S盒的门电路，x0 为6位输入的最低位，x5 为最高位。
+     *
+     * @param out 输出数组，第 ob 个输出位异或到 out[dst[ob]]
+     * @param dst 4个输出位的目标下标
+     */
+    private static void s4(long x0, long x1, long x2, long x3, long x4, long x5, long[] out, int[] dst) {
+        long m3 = x1 & x0;
+        long m5 = x2 & x0;
+        long m6 = x2 & x1;
+        long m9 = x3 & x0;
+        long m10 = x3 & x1;
+        long m12 = x3 & x2;
+        long m17 = x4 & x0;
+        long m18 = x4 & x1;
+        long m20 = x4 & x2;
+        long m24 = x4 & x3;
+        long m33 = x5 & x0;
+        long m34 = x5 & x1;
+        long m36 = x5 & x2;
+        long m40 = x5 & x3;
+        long m48 = x5 & x4;
+        long m7 = m6 & x0;
+        long m14 = m12 & x1;
+        long m19 = m18 & x0;
+        long m22 = m20 & x1;
+        long m25 = m24 & x0;
+        long m26 = m24 & x1;
+        long m28 = m24 & x2;
+        long m35 = m34 & x0;
+        long m37 = m36 & x0;
+        long m38 = m36 & x1;
+        long m41 = m40 & x0;
+        long m42 = m40 & x1;
+        long m44 = m40 & x2;
+        long m50 = m48 & x1;
+        long m52 = m48 & x2;
+        long m56 = m48 & x3;
+        long m15 = m14 & x0;
+        long m23 = m22 & x0;
+        long m27 = m26 & x0;
+        long m29 = m28 & x0;
+        long m39 = m38 & x0;
+        long m43 = m42 & x0;
+        long m45 = m44 & x0;
+        long m46 = m44 & x1;
+        long m51 = m50 & x0;
+        long m54 = m52 & x1;
+        long m57 = m56 & x0;
+        long m58 = m56 & x1;
+        long m60 = m56 & x2;
+        long m47 = m46 & x0;
+        long m59 = m58 & x0;
+        out[dst[0]] ^= ~(m3 ^ x2 ^ m5 ^ m6 ^ x3 ^ m15 ^ m17 ^ m18 ^ m19 ^ m22 ^ m23 ^ m24 ^ m25 ^ m29 ^ x5 ^ m33 ^ m35
+                ^ m37 ^ m39 ^ m40 ^ m41 ^ m42 ^ m47 ^ m48 ^ m50 ^ m52 ^ m54 ^ m56 ^ m57 ^ m59 ^ m60);
+        out[dst[1]] ^= ~(x0 ^ x1 ^ m3 ^ m5 ^ m6 ^ x3 ^ m14 ^ m15 ^ x4 ^ m17 ^ m19 ^ m23 ^ m25 ^ m28 ^ m29 ^ m33 ^ m34
+                ^ m35 ^ m36 ^ m37 ^ m38 ^ m39 ^ m41 ^ m42 ^ m46 ^ m47 ^ m48 ^ m50 ^ m52 ^ m54 ^ m57 ^ m58 ^ m59
+                ^ m60);
+        out[dst[2]] ^= ~(m3 ^ m5 ^ m6 ^ m7 ^ x3 ^ m9 ^ m10 ^ x4 ^ m17 ^ m19 ^ m23 ^ m24 ^ m27 ^ m28 ^ m29 ^ x5 ^ m34
+                ^ m35 ^ m37 ^ m42 ^ m43 ^ m45 ^ m47 ^ m51 ^ m52 ^ m54 ^ m59 ^ m60);
+        out[dst[3]] ^= x0 ^ x1 ^ m3 ^ x2 ^ m5 ^ m7 ^ m9 ^ m10 ^ m17 ^ m18 ^ m19 ^ m22 ^ m23 ^ m24 ^ m26 ^ m27 ^ m29
+                ^ x5 ^ m35 ^ m36 ^ m37 ^ m43 ^ m44 ^ m45 ^ m46 ^ m47 ^ m50 ^ m51 ^ m52 ^ m54 ^ m58 ^ m59 ^ m60;
+    }
+
+    /**
+     * 第 5 个S盒的门电路，x0 为6位输入的最低位，x5 为最高位。
+     *
+     * @param out 输出数组，第 ob 个输出位异或到 out[dst[ob]]
+     * @param dst 4个输出位的目标下标
+     */
+    private static void s5(long x0, long x1, long x2, long x3, long x4, long x5, long[] out, int[] dst) {
+        long m3 = x1 & x0;
+        long m5 = x2 & x0;
+        long m6 = x2 & x1;
+        long m9 = x3 & x0;
+        long m10 = x3 & x1;
+        long m12 = x3 & x2;
+        long m17 = x4 & x0;
+        long m18 = x4 & x1;
+        long m20 = x4 & x2;
+        long m24 = x4 & x3;
+        long m33 = x5 & x0;
+        long m34 = x5 & x1;
+        long m36 = x5 & x2;
+        long m40 = x5 & x3;
+        long m48 = x5 & x4;
+        long m11 = m10 & x0;
+        long m13 = m12 & x0;
+        long m14 = m12 & x1;
+        long m19 = m18 & x0;
+        long m21 = m20 & x0;
+        long m22 = m20 & x1;
+        long m25 = m24 & x0;
+        long m26 = m24 & x1;
+        long m28 = m24 & x2;
+        long m35 = m34 & x0;
+        long m37 = m36 & x0;
+        long m38 = m36 & x1;
+        long m41 = m40 & x0;
+        long m42 = m40 & x1;
+        long m44 = m40 & x2;
+        long m49 = m48 & x0;
+        long m50 = m48 & x1;
+        long m52 = m48 & x2;
+        long m56 = m48 & x3;
+        long m15 = m14 & x0;
+        long m23 = m22 & x0;
+        long m27 = m26 & x0;
+        long m29 = m28 & x0;
+        long m39 = m38 & x0;
+        long m43 = m42 & x0;
+        long m45 = m44 & x0;
+        long m46 = m44 & x1;
+        long m51 = m50 & x0;
+        long m53 = m52 & x0;
+        long m54 = m52 & x1;
+        long m57 = m56 & x0;
+        long m58 = m56 & x1;
+        long m60 = m56 & x2;
+        long m47 = m46 & x0;
+        long m55 = m54 & x0;
+        long m59 = m58 & x0;
+        long m61 = m60 & x0;
+        out[dst[0]] ^= m3 ^ m6 ^ x3 ^ m9 ^ m10 ^ m11 ^ m13 ^ m14 ^ m15 ^ m17 ^ m18 ^ m19 ^ m20 ^ m21 ^ m23 ^ m26 ^ m33
+                ^ m36 ^ m38 ^ m40 ^ m41 ^ m45 ^ m46 ^ m47 ^ m48 ^ m49 ^ m50 ^ m51 ^ m52 ^ m54 ^ m56 ^ m57 ^ m58 ^ m59
+                ^ m60;
+        out[dst[1]] ^= ~(x1 ^ m3 ^ x2 ^ m5 ^ m6 ^ m9 ^ m10 ^ m12 ^ m13 ^ m14 ^ m15 ^ x4 ^ m18 ^ m19 ^ m21 ^ m22 ^ m26
+                ^ m27 ^ m28 ^ m29 ^ x5 ^ m33 ^ m35 ^ m36 ^ m38 ^ m40 ^ m41 ^ m42 ^ m44 ^ m45 ^ m46 ^ m47 ^ m49 ^ m50
+                ^ m52 ^ m55 ^ m56 ^ m59 ^ m60 ^ m61);
+        out[dst[2]] ^= x0 ^ x1 ^ x2 ^ x3 ^ m9 ^ m11 ^ m13 ^ m15 ^ m20 ^ m25 ^ m29 ^ x5 ^ m35 ^ m38 ^ m39 ^ m46 ^ m49
+                ^ m53 ^ m56 ^ m57 ^ m60 ^ m61;
+        out[dst[3]] ^= x0 ^ x1 ^ m3 ^ m5 ^ m6 ^ m9 ^ m12 ^ m13 ^ m14 ^ m15 ^ x4 ^ m20 ^ m21 ^ m22 ^ m25 ^ m27 ^ m34
+                ^ m35 ^ m37 ^ m40 ^ m41 ^ m43 ^ m46 ^ m51 ^ m52 ^ m53 ^ m54 ^ m55 ^ m57 ^ m60;
+    }
+
+    /**
+     * 第 6 个S盒的门电路，x0 为6位输入的最低位，x5 为最高位。
+     *
+     * @param out 输出数组，第 ob 个输出位异或到 out[dst[ob]]
+     * @param dst 4个输出位的目标下标
+     */
+    private static void s6(long x0, long x1, long x2, long x3, long x4, long x5, long[] out, int[] dst) {
+        long m3 = x1 & x0;
+        long m5 = x2 & x0;
+        long m6 = x2 & x1;
+        long m9 = x3 & x0;
+        long m10 = x3 & x1;
+        long m12 = x3 & x2;
+        long m18 = x4 & x1;
+        long m20 = x4 & x2;
+        long m24 = x4 & x3;
+        long m33 = x5 & x0;
+        long m34 = x5 & x1;
+        long m36 = x5 & x2;
+        long m40 = x5 & x3;
+        long m48 = x5 & x4;
+        long m7 = m6 & x0;
+        long m11 = m10 & x0;
+        long m13 = m12 & x0;
+        long m14 = m12 & x1;
+        long m19 = m18 & x0;
+        long m22 = m20 & x1;
+        long m26 = m24 & x1;
+        long m28 = m24 & x2;
+        long m35 = m34 & x0;
+        long m37 = m36 & x0;
+        long m38 = m36 & x1;
+        long m41 = m40 & x0;
+        long m42 = m40 & x1;
+        long m44 = m40 & x2;
+        long m49 = m48 & x0;
+        long m52 = m48 & x2;
+        long m56 = m48 & x3;
+        long m15 = m14 & x0;
+        long m23 = m22 & x0;
+        long m29 = m28 & x0;
+        long m39 = m38 & x0;
+        long m43 = m42 & x0;
+        long m45 = m44 & x0;
+        long m46 = m44 & x1;
+        long m53 = m52 & x0;
+        long m54 = m52 & x1;
+        long m57 = m56 & x0;
+        long m58 = m56 & x1;
+        long m60 = m56 & x2;
+        long m47 = m46 & x0;
+        long m55 = m54 & x0;
+        long m59 = m58 & x0;
+        long m62 = m60 & x1;
+        long m63 = m62 & x0;
+        out[dst[0]] ^= x1 ^ m7 ^ x3 ^ m12 ^ m13 ^ m14 ^ m15 ^ m20 ^ m23 ^ m24 ^ m28 ^ m29 ^ x5 ^ m33 ^ m38 ^ m39 ^ m42
+                ^ m44 ^ m45 ^ m46 ^ m47 ^ m49 ^ m53 ^ m55 ^ m57;
+        out[dst[1]] ^= x0 ^ x2 ^ m7 ^ m10 ^ m19 ^ m22 ^ m24 ^ m26 ^ m33 ^ m34 ^ m39 ^ m40 ^ m41 ^ m42 ^ m43 ^ m48
+                ^ m54 ^ m55 ^ m56 ^ m59;
+        out[dst[2]] ^= ~(x0 ^ x1 ^ x2 ^ x3 ^ m10 ^ m14 ^ x4 ^ m20 ^ m23 ^ x5 ^ m38 ^ m39 ^ m40 ^ m41 ^ m43 ^ m46 ^ m54
+                ^ m56 ^ m58 ^ m63);
+        out[dst[3]] ^= ~(x1 ^ m3 ^ m5 ^ m6 ^ m7 ^ m9 ^ m11 ^ m12 ^ m13 ^ m14 ^ m15 ^ x4 ^ m24 ^ m29 ^ m33 ^ m34 ^ m35
+                ^ m37 ^ m39 ^ m40 ^ m41 ^ m42 ^ m43 ^ m53 ^ m55 ^ m63);
+    }
+
+    /**
+     * 第 7 个S盒的门电路，x0 为6位输入的最低位，x5 为最高位。
+     *
+     * @param out 输出数组，第 ob 个输出位异或到 out[dst[ob]]
+     * @param dst 4个输出位的目标下标
+     */
+    private static void s7(long x0, long x1, long x2, long x3, long x4, long x5, long[] out, int[] dst) {
+        long m3 = x1 & x0;
+        long m6 = x2 & x1;
+        long m9 = x3 & x0;
+        long m12 = x3 & x2;
+        long m17 = x4 & x0;
+        long m20 = x4 & x2;
+        long m24 = x4 & x3;
+        long m33 = x5 & x0;
+        long m34 = x5 & x1;
+        long m36 = x5 & x2;
+        long m40 = x5 & x3;
+        long m48 = x5 & x4;
+        long m7 = m6 & x0;
+        long m13 = m12 & x0;
+        long m14 = m12 & x1;
+        long m21 = m20 & x0;
+        long m22 = m20 & x1;
+        long m25 = m24 & x0;
+        long m28 = m24 & x2;
+        long m35 = m34 & x0;
+        long m37 = m36 & x0;
+        long m38 = m36 & x1;
+        long m41 = m40 & x0;
+        long m42 = m40 & x1;
+        long m44 = m40 & x2;
+        long m50 = m48 & x1;
+        long m52 = m48 & x2;
+        long m56 = m48 & x3;
+        long m15 = m14 & x0;
+        long m23 = m22 & x0;
+        long m29 = m28 & x0;
+        long m39 = m38 & x0;
+        long m43 = m42 & x0;
+        long m45 = m44 & x0;
+        long m46 = m44 & x1;
+        long m51 = m50 & x0;
+        long m53 = m52 & x0;
+        long m54 = m52 & x1;
+        long m57 = m56 & x0;
+        long m58 = m56 & x1;
+        long m60 = m56 & x2;
+        long m47 = m46 & x0;
+        long m55 = m54 & x0;
+        long m59 = m58 & x0;
+        long m61 = m60 & x0;
+        out[dst[0]] ^= x0 ^ x1 ^ m6 ^ x3 ^ m12 ^ m14 ^ x4 ^ m21 ^ m23 ^ m24 ^ x5 ^ m37 ^ m39 ^ m45 ^ m47 ^ m51 ^ m53
+                ^ m57;
+        out[dst[1]] ^= x1 ^ m3 ^ x2 ^ m6 ^ m7 ^ x3 ^ m9 ^ m13 ^ m15 ^ x4 ^ m22 ^ m23 ^ m29 ^ m33 ^ m34 ^ m35 ^ m40
+                ^ m42 ^ m43 ^ m45 ^ m47 ^ m52 ^ m54 ^ m56 ^ m57 ^ m58 ^ m59 ^ m61;
+        out[dst[2]] ^= ~(x1 ^ x2 ^ m15 ^ x4 ^ m17 ^ m20 ^ m23 ^ m24 ^ x5 ^ m33 ^ m36 ^ m40 ^ m46 ^ m48 ^ m53 ^ m55
+                ^ m57 ^ m60);
+        out[dst[3]] ^= x0 ^ x1 ^ x3 ^ m14 ^ m15 ^ m20 ^ m24 ^ m25 ^ m28 ^ m29 ^ m33 ^ m34 ^ m35 ^ m36 ^ m39 ^ m41
+                ^ m42 ^ m46 ^ m47 ^ m48 ^ m52 ^ m54 ^ m56 ^ m57 ^ m58 ^ m60 ^ m61;
+    }
+
+    /**
+     * 第 8 个S盒的门电路，x0 为6位输入的最低位，x5 为最高位。
+     *
+     * @param out 输出数组，第 ob 个输出位异或到 out[dst[ob]]
+     * @param dst 4个输出位的目标下标
+     */
+    private static void s8(long x0, long x1, long x2, long x3, long x4, long x5, long[] out, int[] dst) {
+        long m3 = x1 & x0;
+        long m5 = x2 & x0;
+        long m6 = x2 & x1;
+        long m10 = x3 & x1;
+        long m12 = x3 & x2;
+        long m17 = x4 & x0;
+        long m18 = x4 & x1;
+        long m20 = x4 & x2;
+        long m24 = x4 & x3;
+        long m33 = x5 & x0;
+        long m34 = x5 & x1;
+        long m36 = x5 & x2;
+        long m40 = x5 & x3;
+        long m48 = x5 & x4;
+        long m7 = m6 & x0;
+        long m11 = m10 & x0;
+        long m13 = m12 & x0;
+        long m14 = m12 & x1;
+        long m19 = m18 & x0;
+        long m21 = m20 & x0;
+        long m22 = m20 & x1;
+        long m25 = m24 & x0;
+        long m26 = m24 & x1;
+        long m28 = m24 & x2;
+        long m35 = m34 & x0;
+        long m37 = m36 & x0;
+        long m38 = m36 & x1;
+        long m41 = m40 & x0;
+        long m42 = m40 & x1;
+        long m44 = m40 & x2;
+        long m50 = m48 & x1;
+        long m52 = m48 & x2;
+        long m56 = m48 & x3;
+        long m15 = m14 & x0;
+        long m23 = m22 & x0;
+        long m27 = m26 & x0;
+        long m30 = m28 & x1;
+        long m39 = m38 & x0;
+        long m43 = m42 & x0;
+        long m45 = m44 & x0;
+        long m51 = m50 & x0;
+        long m53 = m52 & x0;
+        long m54 = m52 & x1;
+        long m57 = m56 & x0;
+        long m58 = m56 & x1;
+        long m60 = m56 & x2;
+        long m31 = m30 & x0;
+        long m55 = m54 & x0;
+        long m59 = m58 & x0;
+        long m61 = m60 & x0;
+        long m62 = m60 & x1;
+        long m63 = m62 & x0;
+        out[dst[0]] ^= ~(x1 ^ m3 ^ x2 ^ m5 ^ m6 ^ x3 ^ m11 ^ m13 ^ m15 ^ x4 ^ m19 ^ m22 ^ m25 ^ m33 ^ m34 ^ m39 ^ m40
+                ^ m42 ^ m43 ^ m45 ^ m51 ^ m52 ^ m53 ^ m54 ^ m56 ^ m58 ^ m59 ^ m61);
+        out[dst[1]] ^= x1 ^ m6 ^ x3 ^ m10 ^ x4 ^ m17 ^ m19 ^ m21 ^ m23 ^ m27 ^ m31 ^ x5 ^ m34 ^ m35 ^ m36 ^ m37 ^ m38
+                ^ m39 ^ m42 ^ m50 ^ m55 ^ m57 ^ m58 ^ m61 ^ m63;
+        out[dst[2]] ^= ~(x0 ^ x1 ^ x2 ^ m10 ^ x4 ^ m18 ^ m20 ^ m22 ^ m24 ^ m35 ^ m36 ^ m37 ^ m40 ^ m42 ^ m43 ^ m44
+                ^ m45 ^ m50 ^ m52 ^ m54 ^ m56 ^ m60 ^ m61);
+        out[dst[3]] ^= ~(x0 ^ x1 ^ m5 ^ m7 ^ x3 ^ m12 ^ m13 ^ m17 ^ m18 ^ m19 ^ m20 ^ m21 ^ m22 ^ m25 ^ m27 ^ m28
+                ^ m31 ^ x5 ^ m33 ^ m35 ^ m38 ^ m39 ^ m41 ^ m42 ^ m44 ^ m45 ^ m53 ^ m55 ^ m60 ^ m63);
+    }
+}
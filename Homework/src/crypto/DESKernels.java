@@ -0,0 +1,165 @@
+/**
+ * DES 数据并行内核
+ * 文件用途:
+ * 该文件定义了 DES 流水线中轮函数之外的数据并行部分：密钥流、链接值与数据的异或，
+ * 字节与小端序 long 分组之间的批量转换，以及位切片前后 64×64 位矩阵的转置。
+ * 默认使用逐字节、逐分组的标量实现。JVM 加载了 jdk.incubator.vector 模块（--add-modules jdk.incubator.vector）时，
+ * 通过反射加载 src-vector 中基于 Vector API 的 VectorDESKernels，与标量实现逐一比对结果一致后才使用，否则退回标量实现。
+ * 设置系统属性 -Dcrypto.vector=false 可以强制使用标量实现。
+ */
+package crypto;
+
+import java.util.Arrays;
+import java.util.Random;
+
+interface DESKernels {
+
+    // 当前使用的内核，类加载时选定
+    DESKernels INSTANCE = Selector.select();
+
+    /**
+     * 逐字节异或：out[outOff + i] = a[aOff + i] ^ b[bOff + i]，out 可以与 a 或 b 是同一区间
+     *
+     * @param a      第一个输入
+     * @param aOff   第一个输入的起始偏移量
+     * @param b      第二个输入
+     * @param bOff   第二个输入的起始偏移量
+     * @param out    输出
+     * @param outOff 输出起始偏移量
+     * @param len    长度
+     */
+    void xor(byte[] a, int aOff, byte[] b, int bOff, byte[] out, int outOff, int len);
+
+    /**
+     * 将 count 个分组的字节按 DES.bytesToLong 的方式转换为 long
+     *
+     * @param in     输入字节数组
+     * @param inOff  输入起始偏移量
+     * @param blocks 输出的分组
+     * @param count  分组个数
+     */
+    void loadBlocks(byte[] in, int inOff, long[] blocks, int count);
+
+    /**
+     * 将 count 个分组按 DES.longToBytes 的方式写入字节数组
+     *
+     * @param blocks 分组
+     * @param out    输出字节数组
+     * @param outOff 输出起始偏移量
+     * @param count  分组个数
+     */
+    void storeBlocks(long[] blocks, byte[] out, int outOff, int count);
+
+    /**
+     * 原地转置 64×64 的位矩阵，与 DESBitslice.transpose 相同
+     *
+     * @param a 64 个 long 组成的位矩阵
+     */
+    void transpose(long[] a);
+
+    /**
+     * 内核的名称
+     *
+     * @return 名称
+     */
+    String name();
+
+    /**
+     * 标量实现
+     */
+    final class Scalar implements DESKernels {
+        @Override
+        public void xor(byte[] a, int aOff, byte[] b, int bOff, byte[] out, int outOff, int len) {
+            for (int i = 0; i < len; i++) {
+                out[outOff + i] = (byte) (a[aOff + i] ^ b[bOff + i]);
+            }
+        }
+
+        @Override
+        public void loadBlocks(byte[] in, int inOff, long[] blocks, int count) {
+            for (int j = 0; j < count; j++) {
+                blocks[j] = DES.bytesToLong(in, inOff + 8 * j);
+            }
+        }
+
+        @Override
+        public void storeBlocks(long[] blocks, byte[] out, int outOff, int count) {
+            for (int j = 0; j < count; j++) {
+                DES.longToBytes(blocks[j], out, outOff + 8 * j);
+            }
+        }
+
+        @Override
+        public void transpose(long[] a) {
+            DESBitslice.transpose(a);
+        }
+
+        @Override
+        public String name() {
+            return "scalar";
+        }
+    }
+
+    /**
+     * 选择内核
+     */
+    final class Selector {
+        private Selector() {
+        }
+
+        /**
+         * Vector API 可用且结果与标量实现一致时使用 VectorDESKernels，否则使用标量实现
+         *
+         * @return 内核
+         */
+        static DESKernels select() {
+            DESKernels scalar = new Scalar();
+            if (!Boolean.parseBoolean(System.getProperty("crypto.vector", "true"))
+                    || !ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+                return scalar;
+            }
+            try {
+                DESKernels vector = (DESKernels) Class.forName("crypto.VectorDESKernels")
+                        .getDeclaredConstructor().newInstance();
+                return agree(vector, scalar) ? vector : scalar;
+            } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+                // 没有编译 src-vector、JDK 版本的 Vector API 不兼容或硬件向量过短
+                return scalar;
+            }
+        }
+
+        /**
+         * 用随机数据比较两个内核的结果
+         */
+        private static boolean agree(DESKernels vector, DESKernels scalar) {
+            Random random = new Random(2019216864);
+            for (int len = 0; len <= 600; len += 37) {
+                byte[] a = new byte[len + 3], b = new byte[len + 5];
+                random.nextBytes(a);
+                random.nextBytes(b);
+                byte[] expected = new byte[len + 7], actual = new byte[len + 7];
+                scalar.xor(a, 3, b, 5, expected, 7, len);
+                vector.xor(a, 3, b, 5, actual, 7, len);
+                if (!Arrays.equals(expected, actual)) {
+                    return false;
+                }
+
+                int count = len / 8;
+                long[] expectedBlocks = new long[count], actualBlocks = new long[count];
+                scalar.loadBlocks(a, 3, expectedBlocks, count);
+                vector.loadBlocks(a, 3, actualBlocks, count);
+                scalar.storeBlocks(expectedBlocks, expected, 1, count);
+                vector.storeBlocks(actualBlocks, actual, 1, count);
+                if (!Arrays.equals(expectedBlocks, actualBlocks) || !Arrays.equals(expected, actual)) {
+                    return false;
+                }
+            }
+
+            long[] matrix = random.longs(64).toArray();
+            long[] copy = matrix.clone();
+            scalar.transpose(matrix);
+            vector.transpose(copy);
+            return Arrays.equals(matrix, copy);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * DES 密钥调度
+ * 文件用途:
+ * 该文件实现了不可变的 DES 密钥调度：由 64 位密钥经 PC-1、循环左移和 PC-2 生成 16 个子密钥，
+ * 并预先排列成查表引擎和位切片后端使用的布局。
+ * 构造完成后所有字段都不再修改，可以被任意多个线程和多个 DES、TripleDES 对象共用，同一个密钥只需计算一次密钥调度。
+ */
+package crypto;
+
+import java.util.Arrays;
+
+public final class DESKeySchedule {
+
+    // PC-1置换表（密钥调度）
+    //静态常量，PC-1置换表用于初始密钥的置换。
+    private static final int[] PC1 = {
+            57, 49, 41, 33, 25, 17, 9,
+            1, 58, 50, 42, 34, 26, 18,
+            10, 2, 59, 51, 43, 35, 27,
+            19, 11, 3, 60, 52, 44, 36,
+            63, 55, 47, 39, 31, 23, 15,
+            7, 62, 54, 46, 38, 30, 22,
+            14, 6, 61, 53, 45, 37, 29,
+            21, 13, 5, 28, 20, 12, 4
+    };
+
+    // PC-2置换表（密钥调度）
+    //静态常量，PC-2置换表用于生成子密钥。
+    private static final int[] PC2 = {
+            14, 17, 11, 24, 1, 5,
+            3, 28, 15, 6, 21, 10,
+            23, 19, 12, 4, 26, 8,
+            16, 7, 27, 20, 13, 2,
+            41, 52, 31, 37, 47, 55,
+            30, 40, 51, 45, 33, 48,
+            44, 49, 39, 56, 34, 53,
+            46, 42, 50, 36, 29, 32
+    };
+
+    // 移位表
+    //静态常量，移位表定义了每个轮次密钥左移的位数。
+    private static final int[] SHIFTS = {
+            1, 1, 2, 2, 2, 2, 2, 2, 1, 2, 2, 2, 2, 2, 2, 1
+    };
+
+    // 密钥
+    private final long key;
+
+    // 16个子密钥
+    private final long[] subKeys;
+
+    // 按查表引擎重新排列的子密钥，每轮两个 int：
+    // roundKeys[2i] 依次存放第 0、2、4、6 组6位子密钥，roundKeys[2i+1] 依次存放第 1、3、5、7 组，每组占一个字节的低6位。
+    private final int[] roundKeys = new int[32];
+
+    // 位切片后端使用的子密钥掩码
+    private final DESBitslice bitslice;
+
+    /**
+     * 构造函数，计算密钥调度
+     *
+     * @param key 一个long类型的密钥
+     */
+    public DESKeySchedule(long key) {
+        this(key, generateSubKeys(key));
+    }
+
+    /**
+     * 用保存好的子密钥构造密钥调度，不再重新计算
+     *
+     * @param key     一个long类型的密钥
+     * @param subKeys 16个子密钥，构造后归本对象所有，调用者不应再修改
+     */
+    DESKeySchedule(long key, long[] subKeys) {
+        this.key = key;
+        this.subKeys = subKeys;
+
+        for (int i = 0; i < 16; i++) {
+            // 将48位子密钥拆成8组6位，按查表引擎需要的布局存放
+            int even = 0, odd = 0;
+            for (int j = 0; j < 8; j += 2) {
+                even = (even << 8) | (int) ((subKeys[i] >>> (42 - j * 6)) & 0x3F);
+                odd = (odd << 8) | (int) ((subKeys[i] >>> (36 - j * 6)) & 0x3F);
+            }
+            roundKeys[2 * i] = even;
+            roundKeys[2 * i + 1] = odd;
+        }
+
+        bitslice = new DESBitslice(subKeys);
+    }
+
+    /**
+     * 生成16个子密钥。
+     * 对给定的主密钥应用PC-1置换，将置换后的密钥分为两部分（c 和 d）。
+     * 根据移位表对 c 和 d 进行左移操作，并使用PC-2置换生成每一轮的子密钥。
+     *
+     * @param key 主密钥
+     * @return 16个子密钥
+     */
+    private static long[] generateSubKeys(long key) {
+        long[] subKeys = new long[16];
+
+        // 对密钥应用 PC-1 置换
+        long permutedChoice1 = DES.permute(key, PC1);
+
+        // 将置换后的密钥分为两半，分别为 c 和 d
+        int c = (int) (permutedChoice1 >>> 28); // 取 permutedChoice1 的高 28 位
+        int d = (int) (permutedChoice1 & 0xFFFFFFF); // 取 permutedChoice1 的低 28 位
+
+        // 进行 16 轮操作，每轮都会生成一个子密钥
+        for (int i = 0; i < 16; i++) {
+            // 根据移位表进行左移操作
+            c = (c << SHIFTS[i]) | (c >>> (28 - SHIFTS[i]));
+            d = (d << SHIFTS[i]) | (d >>> (28 - SHIFTS[i]));
+
+            // 对移位后的 c 和 d 应用 PC-2 置换，生成子密钥
+            long permutedChoice2 = (((long) c) << 28) | d; // 将 c 和 d 重新组合，准备进行 PC-2 置换
+            subKeys[i] = DES.permute(permutedChoice2, PC2); // 生成第 i 轮的子密钥
+        }
+
+        return subKeys;
+    }
+
+    /**
+     * 获取密钥
+     *
+     * @return 密钥
+     */
+    public long key() {
+        return key;
+    }
+
+    /**
+     * 获取16个子密钥的副本
+     *
+     * @return 子密钥数组
+     */
+    public long[] subKeys() {
+        return Arrays.copyOf(subKeys, 16);
+    }
+
+    /**
+     * 获取按查表引擎布局存放的子密钥，调用者不能修改
+     *
+     * @return 16轮子密钥，每轮两个 int
+     */
+    int[] roundKeys() {
+        return roundKeys;
+    }
+
+    /**
+     * 获取位切片后端
+     *
+     * @return 位切片后端
+     */
+    DESBitslice bitslice() {
+        return bitslice;
+    }
+
+    /**
+     * 创建将子密钥清零的任务。任务只引用各个子密钥数组而不引用本对象，
+     * 因此可以注册到 Cleaner 上，在本对象不再被任何 DES 对象引用后执行。
+     *
+     * @return 清零任务
+     */
+    Runnable wiper() {
+        long[] subKeys = this.subKeys;
+        int[] roundKeys = this.roundKeys;
+        DESBitslice bitslice = this.bitslice;
+        return () -> {
+            Arrays.fill(subKeys, 0);
+            Arrays.fill(roundKeys, 0);
+            bitslice.wipe();
+        };
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * DES 密钥调度缓存
+ * 文件用途:
+ * 该文件实现了按 64 位密钥缓存 DESKeySchedule 的有界 LRU 缓存，适用于同一进程中反复使用大量不同密钥的场景。
+ * 缓存按密钥的哈希值分成若干段，每段是一个按访问顺序排列的 LinkedHashMap，由各自的锁保护，不同段之间互不阻塞；
+ * 每段超过容量时淘汰最久未使用的密钥调度。未命中时在锁外计算密钥调度，不会阻塞同一段中其他密钥的查询。
+ * 被淘汰的密钥调度可能仍被正在进行的加密、解密使用，因此不立即清零，而是注册到 Cleaner 上，
+ * 在不再被任何 DES 对象引用后将子密钥、查表子密钥和位切片掩码全部清零；DES 在每次使用子密钥的操作结束前
+ * 用 Reference.reachabilityFence 保持密钥调度可达，JIT 提前判定对象不可达时也不会在运算途中被清零。
+ */
+package crypto;
+
+import java.lang.ref.Cleaner;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public class DESKeyScheduleCache {
+
+    // 清零被淘汰的密钥调度，所有缓存共用一个后台线程
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    // 默认的段数
+    private static final int DEFAULT_SEGMENTS = 16;
+
+    /**
+     * 缓存的一段
+     */
+    private final class Segment extends LinkedHashMap<Long, DESKeySchedule> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity; // 本段最多保存的密钥调度个数
+
+        Segment(int capacity) {
+            super(16, 0.75f, true); // 按访问顺序排列，最久未使用的在最前面
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, DESKeySchedule> eldest) {
+            if (size() <= capacity) {
+                return false;
+            }
+            evict(eldest.getValue());
+            return true;
+        }
+    }
+
+    // 各段，段数为 2 的幂
+    private final Segment[] segments;
+
+    // 命中、未命中和淘汰次数
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * 构造函数
+     *
+     * @param maximumSize 最多缓存的密钥调度个数
+     */
+    public DESKeyScheduleCache(int maximumSize) {
+        this(maximumSize, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param maximumSize 最多缓存的密钥调度个数，平均分配到各段
+     * @param concurrency 预计同时访问缓存的线程数，决定段数
+     */
+    public DESKeyScheduleCache(int maximumSize, int concurrency) {
+        if (maximumSize <= 0 || concurrency <= 0) {
+            throw new IllegalArgumentException("Cache size and concurrency must be positive.");
+        }
+
+        // 段数取不超过 concurrency 和 maximumSize 的 2 的幂
+        int count = Integer.highestOneBit(Math.min(concurrency, maximumSize));
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            // 容量的余数分给前几段，各段容量之和等于 maximumSize
+            segments[i] = new Segment(maximumSize / count + (i < maximumSize % count ? 1 : 0));
+        }
+    }
+
+    /**
+     * 获取密钥的密钥调度，未缓存时计算并放入缓存
+     *
+     * @param key 一个long类型的密钥
+     * @return 密钥调度
+     */
+    public DESKeySchedule get(long key) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            DESKeySchedule schedule = segment.get(key);
+            if (schedule != null) {
+                hits.increment();
+                return schedule;
+            }
+        }
+
+        misses.increment();
+        DESKeySchedule schedule = new DESKeySchedule(key);
+        synchronized (segment) {
+            // 另一个线程可能已经放入了同一个密钥，此时使用先放入的那个，丢弃的这个同样在不再被使用后清零
+            DESKeySchedule existing = segment.putIfAbsent(key, schedule);
+            if (existing == null) {
+                return schedule;
+            }
+            CLEANER.register(schedule, schedule.wiper());
+            return existing;
+        }
+    }
+
+    /**
+     * 使用缓存的密钥调度创建 DES 对象
+     *
+     * @param key 一个long类型的密钥
+     * @return DES对象
+     */
+    public DES des(long key) {
+        return new DES(get(key));
+    }
+
+    /**
+     * 当前缓存的密钥调度个数
+     *
+     * @return 密钥调度个数
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 命中次数
+     *
+     * @return 命中次数
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * 未命中次数，即计算密钥调度的次数
+     *
+     * @return 未命中次数
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * 因超出容量被淘汰的次数
+     *
+     * @return 淘汰次数
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * 清空缓存，移除的密钥调度同样在不再被使用后清零
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (DESKeySchedule schedule : segment.values()) {
+                    CLEANER.register(schedule, schedule.wiper());
+                }
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * 淘汰一个密钥调度，在它不再被任何 DES 对象引用后清零
+     *
+     * @param schedule 被淘汰的密钥调度
+     */
+    private void evict(DESKeySchedule schedule) {
+        evictions.increment();
+        CLEANER.register(schedule, schedule.wiper());
+    }
+
+    /**
+     * 计算密钥所在的段
+     *
+     * @param key 一个long类型的密钥
+     * @return 段
+     */
+    private Segment segmentFor(long key) {
+        // 混合高低位，避免只有高位不同的密钥落在同一段
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return segments[(int) (hash >>> 32) & (segments.length - 1)];
+    }
+}
@@ -0,0 +1,277 @@
+/**
+ * 分块文件处理流水线
+ * 文件用途:
+ * 该文件实现了加密、解密文件时使用的分块流水线。
+ * 读取线程通过 FileChannel 将文件按块读入缓冲区，调用线程对数据块进行加密或解密，写入线程再将结果写回文件，三者交替进行。
+ * 输入和输出各使用两块可复用的缓冲区，因此内存占用与文件大小无关，也可以处理超过 2 GB 的文件。
+ * 输入和输出是同一个文件时先写入同目录下的临时文件，完成后替换原文件。
+ * 打开 CryptoMetrics 时记录每块读、写文件的耗时，与加密、解密的耗时对照。
+ */
+package crypto;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+final class FilePipeline {
+
+    // 每块数据的目标大小（字节），实际大小会向下取整为分组大小的整数倍
+    static final int CHUNK_SIZE = 1 << 20;
+
+    // 输入、输出各自的缓冲区个数
+    private static final int BUFFERS = 2;
+
+    /**
+     * 数据块处理函数，对应 CryptoAlgorithm 的 encryptChunk 和 decryptChunk。
+     */
+    interface ChunkProcessor {
+        /**
+         * 处理一块数据
+         *
+         * @param in     输入字节数组
+         * @param inOff  输入起始偏移量
+         * @param len    输入长度
+         * @param out    输出字节数组
+         * @param outOff 输出起始偏移量
+         * @param last   是否为最后一块
+         * @return 写入 out 的字节数
+         */
+        int process(byte[] in, int inOff, int len, byte[] out, int outOff, boolean last);
+    }
+
+    /**
+     * 可复用的数据块缓冲区
+     */
+    private static final class Chunk {
+        final byte[] data; // 缓冲区
+        int length; // 有效数据长度
+        boolean last; // 是否为最后一块
+
+        Chunk(int capacity) {
+            this.data = new byte[capacity];
+        }
+    }
+
+    // 读取或写入线程出错时放入队列的标记，用于唤醒等待中的调用线程
+    private static final Chunk FAILED = new Chunk(0);
+
+    private FilePipeline() {
+    }
+
+    /**
+     * 计算每块数据的大小
+     *
+     * @param blockSize 分组大小
+     * @return 不超过 CHUNK_SIZE 的分组大小的最大整数倍，至少为一个分组
+     */
+    static int chunkSize(int blockSize) {
+        return Math.max(1, CHUNK_SIZE / blockSize) * blockSize;
+    }
+
+    /**
+     * 按块处理文件
+     *
+     * @param algorithm  算法名称，用于记录指标
+     * @param inputFile  输入文件
+     * @param outputFile 输出文件，已存在时会被覆盖，可以与输入文件相同
+     * @param chunkSize  每块输入数据的大小，除最后一块外每块都是这个大小
+     * @param outputSize 每块输出数据的最大长度
+     * @param processor  数据块处理函数
+     * @throws IOException 文件读写错误
+     */
+    static void process(String algorithm, Path inputFile, Path outputFile, int chunkSize, int outputSize, ChunkProcessor processor) throws IOException {
+        Path temp = sameFileTemp(inputFile, outputFile);
+        try {
+            pipe(algorithm, inputFile, temp != null ? temp : outputFile, chunkSize, outputSize, processor);
+            if (temp != null) {
+                replace(temp, outputFile);
+            }
+        } finally {
+            if (temp != null) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * 输出文件与输入文件是同一个文件时，在输出文件所在目录中创建临时文件。
+     * 以截断方式打开输出文件会清空尚未读取的输入，此时应先写入临时文件，完成后再用 replace 替换原文件。
+     *
+     * @param inputFile  输入文件
+     * @param outputFile 输出文件
+     * @return 临时文件，两者不是同一个文件时返回 null
+     * @throws IOException 文件读写错误
+     */
+    static Path sameFileTemp(Path inputFile, Path outputFile) throws IOException {
+        if (!Files.exists(outputFile) || !Files.isSameFile(inputFile, outputFile)) {
+            return null;
+        }
+        Path directory = outputFile.toAbsolutePath().getParent();
+        return Files.createTempFile(directory, "." + outputFile.getFileName(), ".tmp");
+    }
+
+    /**
+     * 用写好的临时文件原子地替换输出文件
+     *
+     * @param temp       sameFileTemp 创建的临时文件
+     * @param outputFile 输出文件
+     * @throws IOException 文件读写错误
+     */
+    static void replace(Path temp, Path outputFile) throws IOException {
+        Files.move(temp, outputFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 按块处理文件，输入和输出不能是同一个文件
+     */
+    private static void pipe(String algorithm, Path inputFile, Path outputFile, int chunkSize, int outputSize, ChunkProcessor processor) throws IOException {
+        // 队列容量比缓冲区个数多一个，保证出错标记总能放入
+        BlockingQueue<Chunk> freeInputs = new ArrayBlockingQueue<>(BUFFERS + 1);
+        BlockingQueue<Chunk> readInputs = new ArrayBlockingQueue<>(BUFFERS + 1);
+        BlockingQueue<Chunk> freeOutputs = new ArrayBlockingQueue<>(BUFFERS + 1);
+        BlockingQueue<Chunk> filledOutputs = new ArrayBlockingQueue<>(BUFFERS + 1);
+        for (int i = 0; i < BUFFERS; i++) {
+            freeInputs.add(new Chunk(chunkSize));
+            freeOutputs.add(new Chunk(outputSize));
+        }
+
+        CryptoMetrics.Stats readStats = CryptoMetrics.statsIfEnabled(algorithm, CryptoMetrics.Operation.FILE_READ);
+        CryptoMetrics.Stats writeStats = CryptoMetrics.statsIfEnabled(algorithm, CryptoMetrics.Operation.FILE_WRITE);
+
+        try (FileChannel in = FileChannel.open(inputFile, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(outputFile, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ExecutorService io = Executors.newFixedThreadPool(2, runnable -> {
+                Thread thread = new Thread(runnable, "crypto-file-io");
+                thread.setDaemon(true);
+                return thread;
+            });
+            Future<?> reader = io.submit(() -> {
+                read(in, freeInputs, readInputs, readStats);
+                return null;
+            });
+            Future<?> writer = io.submit(() -> {
+                write(out, filledOutputs, freeOutputs, writeStats);
+                return null;
+            });
+
+            try {
+                Future<?> failed = null;
+                boolean last = false;
+                while (!last) {
+                    Chunk input = readInputs.take();
+                    if (input == FAILED) {
+                        failed = reader;
+                        break;
+                    }
+                    Chunk output = freeOutputs.take();
+                    if (output == FAILED) {
+                        failed = writer;
+                        break;
+                    }
+
+                    // 在调用线程上加密或解密，同时读取线程读取下一块、写入线程写出上一块
+                    output.length = processor.process(input.data, 0, input.length, output.data, 0, input.last);
+                    output.last = last = input.last;
+                    freeInputs.put(input);
+                    filledOutputs.put(output);
+                }
+
+                // 出错时 get 会抛出对应线程中的异常
+                if (failed != null) {
+                    failed.get();
+                }
+                reader.get();
+                writer.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("File processing was interrupted.");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException(cause);
+            } finally {
+                reader.cancel(true);
+                writer.cancel(true);
+                io.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * 读取线程：依次将文件读入空闲缓冲区。
+     * 空文件也会产生一个长度为 0 的最后一块，以便输出填充等内容。
+     * stats 不为 null 时记录每块的读取耗时，不含等待空闲缓冲区的时间。
+     */
+    private static void read(FileChannel in, BlockingQueue<Chunk> free, BlockingQueue<Chunk> filled, CryptoMetrics.Stats stats)
+            throws IOException, InterruptedException {
+        try {
+            long remaining = in.size();
+            boolean last;
+            do {
+                Chunk chunk = free.take();
+                long start = stats != null ? System.nanoTime() : 0;
+                ByteBuffer buffer = ByteBuffer.wrap(chunk.data);
+                while (buffer.hasRemaining() && remaining > buffer.position()) {
+                    if (in.read(buffer) < 0) {
+                        remaining = buffer.position(); // 文件在处理过程中变短
+                        break;
+                    }
+                }
+                chunk.length = buffer.position();
+                if (stats != null) {
+                    stats.record(chunk.length, 0, System.nanoTime() - start);
+                }
+                remaining -= chunk.length;
+                chunk.last = last = remaining <= 0;
+                filled.put(chunk);
+            } while (!last);
+        } catch (IOException | RuntimeException e) {
+            filled.put(FAILED);
+            throw e;
+        }
+    }
+
+    /**
+     * 写入线程：依次将处理好的数据块写入文件，并归还缓冲区。
+     * stats 不为 null 时记录每块的写入耗时，不含等待数据块的时间。
+     */
+    private static void write(FileChannel out, BlockingQueue<Chunk> filled, BlockingQueue<Chunk> free, CryptoMetrics.Stats stats)
+            throws IOException, InterruptedException {
+        try {
+            boolean last;
+            do {
+                Chunk chunk = filled.take();
+                long start = stats != null ? System.nanoTime() : 0;
+                ByteBuffer buffer = ByteBuffer.wrap(chunk.data, 0, chunk.length);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                if (stats != null) {
+                    stats.record(chunk.length, 0, System.nanoTime() - start);
+                }
+                last = chunk.last;
+                free.put(chunk);
+            } while (!last);
+        } catch (IOException | RuntimeException e) {
+            free.put(FAILED);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ * 记录指标的加密算法包装
+ * 文件用途:
+ * 该文件实现了 CryptoAlgorithm 的装饰器，将调用转发给被包装的算法，并在 CryptoMetrics 中记录每次调用的字节数、分组数和耗时。
+ * 加密、解密按调用记录为 ENCRYPT、DECRYPT，CipherContext 的每次 update 和映射文件的每个窗口也各记一次；
+ * 文件加密、解密整体记录为 ENCRYPT_FILE、DECRYPT_FILE。
+ * 转发期间被包装算法内部记录的指标（RSA 每块的模幂、文件流水线的读写）也记录在构造时指定的名称下。
+ * 指标关闭时直接转发，不读取时钟；不需要指标的代码可以继续使用未包装的算法，完全没有额外开销。
+ */
+package crypto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+public class InstrumentedCryptoAlgorithm extends CryptoAlgorithm {
+
+    // 被包装的算法
+    private final CryptoAlgorithm delegate;
+
+    // 指标中使用的算法名称
+    private final String name;
+
+    /**
+     * 构造函数，以被包装算法的类名作为指标中的算法名称
+     *
+     * @param delegate 被包装的算法
+     */
+    public InstrumentedCryptoAlgorithm(CryptoAlgorithm delegate) {
+        this(delegate, delegate.getClass().getSimpleName());
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param delegate 被包装的算法
+     * @param name     指标中使用的算法名称，可以用来区分同一算法的不同用途
+     */
+    public InstrumentedCryptoAlgorithm(CryptoAlgorithm delegate, String name) {
+        this.delegate = delegate;
+        this.name = name;
+    }
+
+    @Override
+    public byte[] encrypt(byte[] data) {
+        if (!CryptoMetrics.isEnabled()) {
+            return delegate.encrypt(data);
+        }
+        long start = System.nanoTime();
+        byte[] encryptedData;
+        String previous = CryptoMetrics.enterScope(name);
+        try {
+            encryptedData = delegate.encrypt(data);
+        } finally {
+            CryptoMetrics.exitScope(previous);
+        }
+        record(CryptoMetrics.Operation.ENCRYPT, data.length, encryptedData.length, start);
+        return encryptedData;
+    }
+
+    @Override
+    public byte[] decrypt(byte[] data) {
+        if (!CryptoMetrics.isEnabled()) {
+            return delegate.decrypt(data);
+        }
+        long start = System.nanoTime();
+        byte[] decryptedData;
+        String previous = CryptoMetrics.enterScope(name);
+        try {
+            decryptedData = delegate.decrypt(data);
+        } finally {
+            CryptoMetrics.exitScope(previous);
+        }
+        record(CryptoMetrics.Operation.DECRYPT, data.length, data.length, start);
+        return decryptedData;
+    }
+
+    @Override
+    public int encryptOutputSize(int len) {
+        return delegate.encryptOutputSize(len);
+    }
+
+    @Override
+    public int decryptOutputSize(int len) {
+        return delegate.decryptOutputSize(len);
+    }
+
+    @Override
+    protected int plainBlockSize() {
+        return delegate.plainBlockSize();
+    }
+
+    @Override
+    protected int cipherBlockSize() {
+        return delegate.cipherBlockSize();
+    }
+
+    @Override
+    boolean stripsLeadingZeros() {
+        return delegate.stripsLeadingZeros();
+    }
+
+    @Override
+    protected int encryptChunk(byte[] in, int inOff, int len, byte[] out, int outOff, boolean last) {
+        if (!CryptoMetrics.isEnabled()) {
+            return delegate.encryptChunk(in, inOff, len, out, outOff, last);
+        }
+        long start = System.nanoTime();
+        int written;
+        String previous = CryptoMetrics.enterScope(name);
+        try {
+            written = delegate.encryptChunk(in, inOff, len, out, outOff, last);
+        } finally {
+            CryptoMetrics.exitScope(previous);
+        }
+        record(CryptoMetrics.Operation.ENCRYPT, len, written, start);
+        return written;
+    }
+
+    @Override
+    protected int decryptChunk(byte[] in, int inOff, int len, byte[] out, int outOff, boolean last) {
+        if (!CryptoMetrics.isEnabled()) {
+            return delegate.decryptChunk(in, inOff, len, out, outOff, last);
+        }
+        long start = System.nanoTime();
+        int written;
+        String previous = CryptoMetrics.enterScope(name);
+        try {
+            written = delegate.decryptChunk(in, inOff, len, out, outOff, last);
+        } finally {
+            CryptoMetrics.exitScope(previous);
+        }
+        record(CryptoMetrics.Operation.DECRYPT, len, len, start);
+        return written;
+    }
+
+    @Override
+    protected void encryptChunk(ByteBuffer in, ByteBuffer out, boolean last) {
+        if (!CryptoMetrics.isEnabled()) {
+            delegate.encryptChunk(in, out, last);
+            return;
+        }
+        long start = System.nanoTime();
+        int len = in.remaining();
+        int outStart = out.position();
+        String previous = CryptoMetrics.enterScope(name);
+        try {
+            delegate.encryptChunk(in, out, last);
+        } finally {
+            CryptoMetrics.exitScope(previous);
+        }
+        record(CryptoMetrics.Operation.ENCRYPT, len, out.position() - outStart, start);
+    }
+
+    @Override
+    protected void decryptChunk(ByteBuffer in, ByteBuffer out, boolean last) {
+        if (!CryptoMetrics.isEnabled()) {
+            delegate.decryptChunk(in, out, last);
+            return;
+        }
+        long start = System.nanoTime();
+        int len = in.remaining();
+        String previous = CryptoMetrics.enterScope(name);
+        try {
+            delegate.decryptChunk(in, out, last);
+        } finally {
+            CryptoMetrics.exitScope(previous);
+        }
+        record(CryptoMetrics.Operation.DECRYPT, len, len, start);
+    }
+
+    @Override
+    public void encryptFile(String inputFilePath, String outputFilePath) throws IOException {
+        if (!CryptoMetrics.isEnabled()) {
+            delegate.encryptFile(inputFilePath, outputFilePath);
+            return;
+        }
+        long start = System.nanoTime();
+        String previous = CryptoMetrics.enterScope(name);
+        try {
+            delegate.encryptFile(inputFilePath, outputFilePath);
+        } finally {
+            CryptoMetrics.exitScope(previous);
+        }
+        record(CryptoMetrics.Operation.ENCRYPT_FILE, Files.size(Paths.get(inputFilePath)),
+                Files.size(Paths.get(outputFilePath)), start);
+    }
+
+    @Override
+    public void decryptFile(String inputFilePath, String outputFilePath) throws IOException {
+        if (!CryptoMetrics.isEnabled()) {
+            delegate.decryptFile(inputFilePath, outputFilePath);
+            return;
+        }
+        long start = System.nanoTime();
+        String previous = CryptoMetrics.enterScope(name);
+        try {
+            delegate.decryptFile(inputFilePath, outputFilePath);
+        } finally {
+            CryptoMetrics.exitScope(previous);
+        }
+        long size = Files.size(Paths.get(inputFilePath));
+        record(CryptoMetrics.Operation.DECRYPT_FILE, size, size, start);
+    }
+
+    /**
+     * 记录一次调用，分组数按密文长度计算
+     *
+     * @param operation    操作
+     * @param bytes        输入的字节数
+     * @param cipherLength 密文的字节数
+     * @param start        开始时间（纳秒）
+     */
+    private void record(CryptoMetrics.Operation operation, long bytes, long cipherLength, long start) {
+        long nanos = System.nanoTime() - start;
+        int blockSize = delegate.cipherBlockSize();
+        long blocks = blockSize > 0 ? cipherLength / blockSize : 0;
+        CryptoMetrics.stats(name, operation).record(bytes, blocks, nanos);
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * 延迟直方图
+ * 文件用途:
+ * 该文件实现了 HDR 风格的对数线性直方图，用于统计调用耗时的分布。
+ * 每个 2 的幂区间再等分为 16 个子区间，相对误差不超过 1/16，覆盖 1 纳秒到数百年的范围，占用的内存固定。
+ * 记录一个值只需对一个桶做原子加法，可以被多个线程同时记录；读取分位数时按桶累加，不需要加锁。
+ */
+package crypto;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class LatencyHistogram {
+
+    // 每个 2 的幂区间等分的子区间个数为 2^SUB_BUCKET_BITS
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // 小于 SUB_BUCKETS 的值各占一个桶，之后每个 2 的幂区间占 SUB_BUCKETS 个桶
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    // 各个桶中的记录数
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    // 记录总数
+    private final LongAdder count = new LongAdder();
+
+    // 记录值之和
+    private final LongAdder sum = new LongAdder();
+
+    // 最大记录值
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 记录一个值，负数按 0 记录
+     *
+     * @param value 记录值，通常为纳秒
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        counts.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * 记录总数
+     *
+     * @return 记录总数
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * 记录值的平均值
+     *
+     * @return 平均值，没有记录时为 0
+     */
+    public double mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * 最大记录值
+     *
+     * @return 最大记录值，没有记录时为 0
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * 计算分位数，返回所在桶的上界，即与该分位数处于同一个桶的最大值
+     *
+     * @param percentile 百分位，范围为 0 到 100
+     * @return 分位数，没有记录时为 0
+     */
+    public long percentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+        }
+
+        // 记录的同时读取时，各桶之和可能与 count 略有出入，以各桶之和为准
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestEquivalentValue(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * 清空全部记录
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * 计算值所在的桶
+     *
+     * @param value 非负的记录值
+     * @return 桶号
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * 计算桶中的最大值
+     *
+     * @param bucket 桶号
+     * @return 桶的上界（含）
+     */
+    static long highestEquivalentValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return ((SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS)) + width - 1;
+    }
+}
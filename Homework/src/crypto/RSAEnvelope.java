@@ -0,0 +1,203 @@
+/**
+ * RSA + DES 数字信封
+ * 文件用途:
+ * 该文件实现了混合加密：每次加密生成一个随机的 DES 会话密钥，用 RSA 加密会话密钥后写入头部，数据本身用 DES 加密。
+ * 这样只需一次 RSA 模幂，大文件的加密、解密速度与 DES 相同。
+ * 密文格式：[4 字节大端序的 RSA 密文长度][RSA 加密的会话密钥][补 0 至 8 的倍数][DES 密文]。
+ * 头部长度是 8 的倍数，因此加密、解密文件时 DES 密文在各个数据块中都按分组对齐，可以按块流式处理。
+ */
+package crypto;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
+
+public class RSAEnvelope extends CryptoAlgorithm {
+
+    // 用于加密、解密会话密钥的 RSA
+    private final RSA rsa;
+
+    // 会话密钥随机数生成器
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * 构造函数
+     *
+     * @param rsa 用于加密、解密会话密钥的 RSA，明文块大小至少为 8 字节
+     */
+    public RSAEnvelope(RSA rsa) {
+        if (rsa.plainBlockSize() < 8) {
+            throw new IllegalArgumentException("RSA block size must be at least 8 bytes.");
+        }
+        this.rsa = rsa;
+    }
+
+    /**
+     * 加密 len 字节数据后的长度：头部加上 DES 密文
+     *
+     * @param len 明文长度
+     * @return 密文长度（字节）
+     */
+    @Override
+    public int encryptOutputSize(int len) {
+        return (4 + rsa.encryptOutputSize(8) + 7) / 8 * 8 + (len / 8 + 1) * 8;
+    }
+
+    /**
+     * 使用随机会话密钥加密数据
+     *
+     * @param data 待加密的数据
+     * @return 头部和 DES 密文
+     */
+    public byte[] encrypt(byte[] data) {
+        long sessionKey = random.nextLong();
+        byte[] header = header(sessionKey);
+        byte[] payload = new DES(sessionKey).encrypt(data);
+
+        byte[] encryptedData = new byte[header.length + payload.length];
+        System.arraycopy(header, 0, encryptedData, 0, header.length);
+        System.arraycopy(payload, 0, encryptedData, header.length, payload.length);
+        return encryptedData;
+    }
+
+    /**
+     * 从头部解出会话密钥后解密数据
+     *
+     * @param data 头部和 DES 密文
+     * @return 解密后的数据
+     * @throws IllegalArgumentException 当头部不完整或 DES 密文长度不是8的倍数时抛出异常
+     */
+    public byte[] decrypt(byte[] data) {
+        int headerLength = headerLength(data, 0, data.length);
+        DES des = new DES(unwrapKey(data, 0));
+
+        byte[] payload = new byte[data.length - headerLength];
+        System.arraycopy(data, headerLength, payload, 0, payload.length);
+        return des.decrypt(payload);
+    }
+
+    /**
+     * 加密文件：第一块输出前写入头部，之后按块流式进行 DES 加密
+     *
+     * @param inputFilePath  待加密的文件路径
+     * @param outputFilePath 加密后的文件路径
+     * @throws IOException 文件读写错误
+     */
+    @Override
+    public void encryptFile(String inputFilePath, String outputFilePath) throws IOException {
+        long sessionKey = random.nextLong();
+        byte[] header = header(sessionKey);
+        DES des = new DES(sessionKey);
+
+        int chunkSize = FilePipeline.chunkSize(8);
+        boolean[] first = {true};
+        FilePipeline.process(getClass().getSimpleName(), Paths.get(inputFilePath), Paths.get(outputFilePath), chunkSize, header.length + chunkSize + 8,
+                (in, inOff, len, out, outOff, last) -> {
+                    int headerLength = 0;
+                    if (first[0]) {
+                        System.arraycopy(header, 0, out, outOff, header.length);
+                        headerLength = header.length;
+                        first[0] = false;
+                    }
+                    return headerLength + des.encryptChunk(in, inOff, len, out, outOff + headerLength, last);
+                });
+    }
+
+    /**
+     * 解密文件：从第一块中解出会话密钥，之后按块流式进行 DES 解密
+     *
+     * @param inputFilePath  待解密的文件路径
+     * @param outputFilePath 解密后的文件路径
+     * @throws IOException 文件读写错误
+     */
+    @Override
+    public void decryptFile(String inputFilePath, String outputFilePath) throws IOException {
+        int chunkSize = FilePipeline.chunkSize(8);
+        DES[] des = {null};
+        FilePipeline.process(getClass().getSimpleName(), Paths.get(inputFilePath), Paths.get(outputFilePath), chunkSize, chunkSize,
+                (in, inOff, len, out, outOff, last) -> {
+                    int headerLength = 0;
+                    if (des[0] == null) {
+                        // 头部不超过一块，且长度是 8 的倍数，剩余的 DES 密文仍按分组对齐
+                        headerLength = headerLength(in, inOff, len);
+                        des[0] = new DES(unwrapKey(in, inOff));
+                    }
+                    return des[0].decryptChunk(in, inOff + headerLength, len - headerLength, out, outOff, last);
+                });
+    }
+
+    /**
+     * 生成头部：RSA 加密的会话密钥，补 0 至 8 的倍数
+     *
+     * @param sessionKey 会话密钥
+     * @return 头部
+     */
+    private byte[] header(long sessionKey) {
+        byte[] key = new byte[8];
+        for (int i = 0; i < 8; i++) {
+            key[i] = (byte) (sessionKey >>> (56 - 8 * i));
+        }
+        byte[] wrappedKey = rsa.encrypt(key);
+
+        byte[] header = new byte[(4 + wrappedKey.length + 7) / 8 * 8];
+        writeInt(header, 0, wrappedKey.length);
+        System.arraycopy(wrappedKey, 0, header, 4, wrappedKey.length);
+        return header;
+    }
+
+    /**
+     * 检查并计算头部长度
+     *
+     * @param data 密文字节数组
+     * @param off  头部起始偏移量
+     * @param len  可用的数据长度
+     * @return 头部长度
+     * @throws IllegalArgumentException 当头部不完整时抛出异常
+     */
+    private static int headerLength(byte[] data, int off, int len) {
+        int wrappedLength = len >= 4 ? readInt(data, off) : -1;
+        if (wrappedLength <= 0 || wrappedLength > len - 4) {
+            throw new IllegalArgumentException("Invalid envelope header.");
+        }
+        int headerLength = (4 + wrappedLength + 7) / 8 * 8;
+        if (headerLength > len) {
+            throw new IllegalArgumentException("Invalid envelope header.");
+        }
+        return headerLength;
+    }
+
+    /**
+     * 用 RSA 解密头部中的会话密钥
+     *
+     * @param data 密文字节数组
+     * @param off  头部起始偏移量
+     * @return 会话密钥
+     */
+    private long unwrapKey(byte[] data, int off) {
+        int wrappedLength = readInt(data, off);
+        byte[] wrappedKey = new byte[wrappedLength];
+        System.arraycopy(data, off + 4, wrappedKey, 0, wrappedLength);
+
+        // RSA 解密会去掉前导 0，按大端序数值还原会话密钥
+        return new BigInteger(1, rsa.decrypt(wrappedKey)).longValue();
+    }
+
+    /**
+     * 按大端序写入一个 int
+     */
+    private static void writeInt(byte[] data, int off, int value) {
+        data[off] = (byte) (value >>> 24);
+        data[off + 1] = (byte) (value >>> 16);
+        data[off + 2] = (byte) (value >>> 8);
+        data[off + 3] = (byte) value;
+    }
+
+    /**
+     * 按大端序读取一个 int
+     */
+    private static int readInt(byte[] data, int off) {
+        return ((data[off] & 0xFF) << 24) | ((data[off + 1] & 0xFF) << 16)
+                | ((data[off + 2] & 0xFF) << 8) | (data[off + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * RSA 密钥
+ * 文件用途:
+ * 该文件定义了不可变的 RSA 密钥：模数 n、公钥指数 e、私钥指数 d 以及中国剩余定理所需的 p、q、dP、dQ、qInv。
+ * 构造完成后所有字段都不再修改，可以被任意多个线程和多个 RSA 对象（例如块大小不同的对象）共用。
+ */
+package crypto;
+
+import java.math.BigInteger;
+
+public final class RSAKey {
+
+    // RSA密钥的位数
+    final int bits;
+
+    // 模数、公钥指数和私钥指数
+    final BigInteger n, e, d;
+
+    // 中国剩余定理所需的参数：两个素数 p、q，dP = d mod (p-1)，dQ = d mod (q-1)，qInv = q^(-1) mod p
+    final BigInteger p, q, dP, dQ, qInv;
+
+    /**
+     * 构造函数
+     *
+     * @param key  密钥参数 {n, e, d, p, q, dP, dQ, qInv}
+     * @param bits RSA密钥的位数
+     */
+    RSAKey(BigInteger[] key, int bits) {
+        this.bits = bits;
+        this.n = key[0];
+        this.e = key[1];
+        this.d = key[2];
+        this.p = key[3];
+        this.q = key[4];
+        this.dP = key[5];
+        this.dQ = key[6];
+        this.qInv = key[7];
+    }
+
+    /**
+     * 获取密钥的位数
+     *
+     * @return RSA密钥的位数
+     */
+    public int bits() {
+        return bits;
+    }
+
+    /**
+     * 获取模数 n
+     *
+     * @return 模数
+     */
+    public BigInteger modulus() {
+        return n;
+    }
+
+    /**
+     * 获取公钥指数 e
+     *
+     * @return 公钥指数
+     */
+    public BigInteger publicExponent() {
+        return e;
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * RSA 密钥池
+ * 文件用途:
+ * 该文件实现了在后台预先生成 RSA 密钥的密钥池。
+ * 若干个后台线程不断生成密钥（素数 p、q 及 n、d 等参数）并放入有界队列，队列满时等待；
+ * 取出密钥时只需创建 RSA 对象，不必在调用线程上搜索素数。
+ * 队列为空时在调用线程上直接生成，因此取出密钥的耗时不会超过直接创建 RSA 对象。
+ */
+package crypto;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+public class RSAKeyPool implements AutoCloseable {
+
+    // RSA密钥的位数
+    private final int bits;
+
+    // 预先生成的密钥
+    private final BlockingQueue<RSAKey> keys;
+
+    // 后台生成密钥的线程
+    private final Thread[] workers;
+
+    /**
+     * 构造函数，创建后立即开始在后台生成密钥
+     *
+     * @param bits     RSA密钥的位数
+     * @param capacity 队列中最多保存的密钥个数
+     * @param workers  后台线程数
+     */
+    public RSAKeyPool(int bits, int capacity, int workers) {
+        this.bits = bits;
+        this.keys = new ArrayBlockingQueue<>(capacity);
+        this.workers = new Thread[workers];
+        for (int i = 0; i < workers; i++) {
+            Thread worker = new Thread(this::refill, "rsa-key-pool");
+            worker.setDaemon(true);
+            this.workers[i] = worker;
+            worker.start();
+        }
+    }
+
+    /**
+     * 后台线程：不断生成密钥并放入队列，直到被中断
+     */
+    private void refill() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                keys.put(RSA.generateKey(bits));
+            }
+        } catch (InterruptedException e) {
+            // 密钥池已关闭
+        }
+    }
+
+    /**
+     * 取出一个密钥并创建 RSA 对象
+     *
+     * @param blockSize 加密和解密时的块大小
+     * @return 使用预先生成的密钥的 RSA 对象
+     */
+    public RSA take(int blockSize) {
+        return new RSA(takeKey(), blockSize);
+    }
+
+    /**
+     * 取出一个密钥，可以用来创建多个 RSA 对象
+     *
+     * @return 预先生成的密钥
+     */
+    public RSAKey takeKey() {
+        RSAKey key = keys.poll();
+        if (key == null) {
+            key = RSA.generateKey(bits); // 后台线程来不及生成时在当前线程生成
+        }
+        return key;
+    }
+
+    /**
+     * 当前队列中的密钥个数
+     *
+     * @return 密钥个数
+     */
+    public int available() {
+        return keys.size();
+    }
+
+    /**
+     * 停止后台线程，并丢弃尚未取出的密钥
+     */
+    @Override
+    public void close() {
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        keys.clear();
+    }
+}
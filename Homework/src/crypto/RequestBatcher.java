@@ -0,0 +1,146 @@
+/**
+ * 请求合批
+ * 文件用途:
+ * 该文件实现了 CryptoServer 中同一密钥、同一操作的请求队列。请求到达时放入队列，队列空闲时由提交请求的线程直接处理一批，
+ * 正在处理时新到达的请求在队列中等待，上一批处理完后一起交给 DES、RSA 引擎，由一次调用分摊创建对象、分配数组和调度的开销，
+ * 并让位切片后端、并行分段等只在数据较多时生效的快速路径也能用于大量短小的请求。
+ * 负载较低时每批只有一个请求，不额外等待；同一时刻每个队列最多只有一个线程在处理。
+ */
+package crypto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+final class RequestBatcher {
+
+    /**
+     * 一个请求
+     */
+    static final class Request {
+        final byte[] data; // 请求的数据
+        final CompletableFuture<byte[]> result = new CompletableFuture<>(); // 处理结果
+
+        Request(byte[] data) {
+            this.data = data;
+        }
+    }
+
+    /**
+     * 处理一批请求，负责完成其中每个请求的 result
+     */
+    interface Processor {
+        void process(List<Request> batch);
+    }
+
+    // 处理请求的方法
+    private final Processor processor;
+
+    // 提交请求的线程处理完一批后，队列中剩余的请求交给该执行器继续处理
+    private final Executor executor;
+
+    // 每批最多包含的数据字节数，单个请求超过时单独成批
+    private final int maxBatchBytes;
+
+    // 队列处理完毕、空闲时调用，用于从 CryptoServer 中移除本对象
+    private final Consumer<RequestBatcher> onIdle;
+
+    // 等待处理的请求
+    private final ConcurrentLinkedQueue<Request> queue = new ConcurrentLinkedQueue<>();
+
+    // 是否有线程正在处理本队列
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    /**
+     * 构造函数
+     *
+     * @param processor     处理一批请求的方法
+     * @param executor      继续处理剩余请求的执行器
+     * @param maxBatchBytes 每批最多包含的数据字节数
+     * @param onIdle        队列空闲时以本对象为参数调用
+     */
+    RequestBatcher(Processor processor, Executor executor, int maxBatchBytes, Consumer<RequestBatcher> onIdle) {
+        this.processor = processor;
+        this.executor = executor;
+        this.maxBatchBytes = maxBatchBytes;
+        this.onIdle = onIdle;
+    }
+
+    /**
+     * 提交一个请求。队列空闲时在当前线程处理，否则只放入队列
+     *
+     * @param data 请求的数据
+     * @return 处理结果
+     */
+    CompletableFuture<byte[]> submit(byte[] data) {
+        Request request = new Request(data);
+        queue.add(request);
+        if (draining.compareAndSet(false, true)) {
+            processBatch();
+            release();
+        }
+        return request.result;
+    }
+
+    /**
+     * 取出不超过 maxBatchBytes 字节的一批请求并处理，只能由持有 draining 的线程调用
+     */
+    private void processBatch() {
+        List<Request> batch = new ArrayList<>();
+        int bytes = 0;
+        Request request;
+        while ((request = queue.peek()) != null && (batch.isEmpty() || bytes + request.data.length <= maxBatchBytes)) {
+            queue.poll();
+            batch.add(request);
+            bytes += request.data.length;
+        }
+
+        try {
+            processor.process(batch);
+        } catch (RuntimeException e) {
+            // 处理方法本身出错时，这一批中尚未完成的请求全部失败，已经完成的不受影响
+            for (Request r : batch) {
+                r.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 处理完一批后调用：队列中还有请求时交给执行器继续处理，否则释放 draining。
+     * 释放后再检查一次队列，避免在检查和释放之间放入的请求无人处理
+     */
+    private void release() {
+        while (true) {
+            if (!queue.isEmpty()) {
+                try {
+                    executor.execute(() -> {
+                        processBatch();
+                        release();
+                    });
+                } catch (RejectedExecutionException e) {
+                    // 服务已关闭，剩余的请求全部失败
+                    Request request;
+                    while ((request = queue.poll()) != null) {
+                        request.result.completeExceptionally(e);
+                    }
+                    draining.set(false);
+                }
+                return;
+            }
+
+            draining.set(false);
+            if (queue.isEmpty()) {
+                onIdle.accept(this);
+                return;
+            }
+            if (!draining.compareAndSet(false, true)) {
+                return; // 另一个线程已经开始处理
+            }
+        }
+    }
+}
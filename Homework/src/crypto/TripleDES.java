@@ -0,0 +1,201 @@
+/**
+ * 三重 DES（EDE）加密算法实现
+ * 文件用途:
+ * 该文件实现了三重 DES 加密算法：C = E_K3(D_K2(E_K1(P)))，解密时反向进行。
+ * 三组子密钥均由 DES 的密钥调度生成，加密时在左右两半上连续执行 48 轮运算，
+ * 各次单重 DES 之间的逆初始置换与初始置换互相抵消，只需交换左右两半，因此每个分组只做一次初始置换和一次逆初始置换。
+ * 与 DES 一样使用 PKCS5 填充，能够加密任意长度的数据。
+ */
+package crypto;
+
+public class TripleDES extends CryptoAlgorithm {
+
+    // 加密时依次使用的 48 轮子密钥：K1 正序、K2 逆序、K3 正序，布局与 DES.roundKeys 相同
+    private final int[] encryptKeys = new int[96];
+
+    // 解密时依次使用的 48 轮子密钥：K3 逆序、K2 正序、K1 逆序
+    private final int[] decryptKeys = new int[96];
+
+    /**
+     * 三密钥三重 DES 的构造函数
+     *
+     * @param key1 第一个密钥
+     * @param key2 第二个密钥
+     * @param key3 第三个密钥
+     */
+    public TripleDES(long key1, long key2, long key3) {
+        int[] k1 = new DESKeySchedule(key1).roundKeys();
+        int[] k2 = new DESKeySchedule(key2).roundKeys();
+        int[] k3 = new DESKeySchedule(key3).roundKeys();
+
+        for (int i = 0; i < 16; i++) {
+            copyRoundKey(k1, i, encryptKeys, i);
+            copyRoundKey(k2, 15 - i, encryptKeys, 16 + i);
+            copyRoundKey(k3, i, encryptKeys, 32 + i);
+
+            copyRoundKey(k3, 15 - i, decryptKeys, i);
+            copyRoundKey(k2, i, decryptKeys, 16 + i);
+            copyRoundKey(k1, 15 - i, decryptKeys, 32 + i);
+        }
+    }
+
+    /**
+     * 双密钥三重 DES 的构造函数，第三个密钥与第一个相同
+     *
+     * @param key1 第一个密钥，同时用作第三个密钥
+     * @param key2 第二个密钥
+     */
+    public TripleDES(long key1, long key2) {
+        this(key1, key2, key1);
+    }
+
+    /**
+     * 复制一轮子密钥
+     *
+     * @param source    源子密钥数组
+     * @param fromRound 源轮数
+     * @param target    目标子密钥数组
+     * @param toRound   目标轮数
+     */
+    private static void copyRoundKey(int[] source, int fromRound, int[] target, int toRound) {
+        target[2 * toRound] = source[2 * fromRound];
+        target[2 * toRound + 1] = source[2 * fromRound + 1];
+    }
+
+    /**
+     * 对数据进行三重 DES 加密
+     *
+     * @param data 待加密的数据
+     * @return 加密后的数据
+     */
+    public byte[] encrypt(byte[] data) {
+        byte[] encryptedData = new byte[encryptOutputSize(data.length)];
+        encryptChunk(data, 0, data.length, encryptedData, 0, true); // 只对最后一个分组进行PKCS5填充
+        return encryptedData;
+    }
+
+    /**
+     * 对数据进行三重 DES 解密
+     *
+     * @param encryptedData 待解密的数据
+     * @return 解密后的数据
+     * @throws IllegalArgumentException 当数据长度不是8的倍数时抛出异常
+     */
+    public byte[] decrypt(byte[] encryptedData) throws IllegalArgumentException {
+        if (encryptedData.length % 8 != 0) {
+            throw new IllegalArgumentException("Data length must be a multiple of 8 bytes.");
+        }
+
+        byte[] decryptedData = new byte[encryptedData.length];
+        cryptBlocks(encryptedData, 0, encryptedData.length, decryptedData, 0, decryptKeys);
+        return DES.pkcs5Unpad(decryptedData); // 对解密后的数据进行PKCS5去填充
+    }
+
+    @Override
+    protected int plainBlockSize() {
+        return 8;
+    }
+
+    @Override
+    protected int cipherBlockSize() {
+        return 8;
+    }
+
+    /**
+     * 分块加密，只对最后一块进行PKCS5填充
+     *
+     * @param in     明文字节数组
+     * @param inOff  明文起始偏移量
+     * @param len    明文长度，除最后一块外必须是8的倍数
+     * @param out    密文字节数组
+     * @param outOff 密文起始偏移量
+     * @param last   是否为最后一块
+     * @return 写入 out 的字节数
+     */
+    @Override
+    protected int encryptChunk(byte[] in, int inOff, int len, byte[] out, int outOff, boolean last) {
+        int fullLength = len - len % 8; // 完整分组的总长度
+        if (!last && fullLength != len) {
+            throw new IllegalArgumentException("Data length must be a multiple of 8 bytes.");
+        }
+        cryptBlocks(in, inOff, fullLength, out, outOff, encryptKeys);
+        if (!last) {
+            return len;
+        }
+
+        // 对剩余不足一个分组的数据进行PKCS5填充后加密
+        long block = DES.pkcs5PadBlock(in, inOff + fullLength, len - fullLength);
+        DES.longToBytes(cryptBlock(block, encryptKeys), out, outOff + fullLength);
+        return fullLength + 8;
+    }
+
+    /**
+     * 分块解密，只对最后一块去除PKCS5填充
+     *
+     * @param in     密文字节数组
+     * @param inOff  密文起始偏移量
+     * @param len    密文长度，必须是8的倍数
+     * @param out    明文字节数组
+     * @param outOff 明文起始偏移量
+     * @param last   是否为最后一块
+     * @return 写入 out 的字节数
+     */
+    @Override
+    protected int decryptChunk(byte[] in, int inOff, int len, byte[] out, int outOff, boolean last) {
+        if (len % 8 != 0 || (last && len == 0)) {
+            throw new IllegalArgumentException("Data length must be a multiple of 8 bytes.");
+        }
+        cryptBlocks(in, inOff, len, out, outOff, decryptKeys);
+        if (!last) {
+            return len;
+        }
+        return len - DES.pkcs5PaddingSize(out, outOff + len - 8); // 去除最后一个分组中的填充
+    }
+
+    /**
+     * 逐个分组加密或解密数据
+     *
+     * @param in     输入字节数组
+     * @param inOff  输入起始偏移量
+     * @param len    输入长度，必须是8的倍数
+     * @param out    输出字节数组
+     * @param outOff 输出起始偏移量
+     * @param keys   48 轮子密钥
+     */
+    private static void cryptBlocks(byte[] in, int inOff, int len, byte[] out, int outOff, int[] keys) {
+        for (int i = 0; i < len; i += 8) {
+            long block = cryptBlock(DES.bytesToLong(in, inOff + i), keys);
+            DES.longToBytes(block, out, outOff + i);
+        }
+    }
+
+    /**
+     * 对一个64位的数据块执行 48 轮运算
+     *
+     * @param block 64位的数据块
+     * @param keys  48 轮子密钥
+     * @return 处理后的数据块
+     */
+    private static long cryptBlock(long block, int[] keys) {
+        // 初始置换，将块拆分成左右两个部分
+        block = DES.initialPermutation(block);
+        int left = (int) (block >>> 32);
+        int right = (int) block;
+
+        for (int i = 0; i < 48; i++) {
+            // 每16轮结束一次单重 DES：其末尾的逆初始置换与下一次的初始置换抵消，只剩左右交换
+            if (i == 16 || i == 32) {
+                int previousLeft = left;
+                left = right;
+                right = previousLeft;
+            }
+
+            int newRight = left ^ DES.fFunction(right, keys, i);
+            left = right;
+            right = newRight;
+        }
+
+        // 交换左右两个部分后执行逆初始置换
+        return DES.inverseInitialPermutation((((long) right) << 32) | (left & 0xFFFFFFFFL));
+    }
+}
@@ -0,0 +1,285 @@
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 异步接口的测试：Flow 接口的顺序、错误传递和在途数量上限，CompletableFuture 接口的拒绝策略
+ */
+class AsyncCipherTest {
+
+    private static final DES DES = new DES(0x133457799BBCDFF1L);
+
+    private static ExecutorService pool;
+
+    @BeforeAll
+    static void setUp() {
+        pool = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        pool.shutdown();
+    }
+
+    private static byte[] message(int i) {
+        byte[] data = new byte[8 + i % 50];
+        new Random(i).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * 在请求时同步发布 messages 的 Publisher，记录下游请求的总数
+     */
+    private static final class ListPublisher implements Flow.Publisher<byte[]> {
+        private final List<byte[]> messages;
+        private long requested;
+        private int next;
+        private boolean emitting;
+        private volatile boolean cancelled;
+
+        ListPublisher(List<byte[]> messages) {
+            this.messages = messages;
+        }
+
+        synchronized long requested() {
+            return requested;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super byte[]> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    synchronized (ListPublisher.this) {
+                        requested += n;
+                        if (emitting) {
+                            return;
+                        }
+                        emitting = true;
+                        while (!cancelled && next < Math.min(requested, messages.size())) {
+                            subscriber.onNext(messages.get(next++));
+                        }
+                        if (!cancelled && next == messages.size()) {
+                            cancelled = true;
+                            subscriber.onComplete();
+                        }
+                        emitting = false;
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    synchronized (ListPublisher.this) {
+                        cancelled = true;
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * 收集结果的订阅者，初始请求 initial 条
+     */
+    private static final class Collector implements Flow.Subscriber<byte[]> {
+        final List<byte[]> items = new ArrayList<>();
+        final CountDownLatch finished = new CountDownLatch(1);
+        final long initial;
+        volatile Flow.Subscription subscription;
+        volatile Throwable error;
+
+        Collector(long initial) {
+            this.initial = initial;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initial > 0) {
+                subscription.request(initial);
+            }
+        }
+
+        @Override
+        public synchronized void onNext(byte[] item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            finished.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            finished.countDown();
+        }
+
+        synchronized int size() {
+            return items.size();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(finished.await(30, TimeUnit.SECONDS), "Subscriber did not terminate.");
+        }
+    }
+
+    @Test
+    void flowKeepsOrder() throws InterruptedException {
+        // 越靠前的消息执行得越慢，结果完成的顺序与上游顺序相反
+        CryptoAlgorithm slow = new CryptoAlgorithm() {
+            @Override
+            public byte[] encrypt(byte[] data) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(Math.max(0, 3000 - 50L * data.length)));
+                return DES.encrypt(data);
+            }
+
+            @Override
+            public byte[] decrypt(byte[] data) {
+                return DES.decrypt(data);
+            }
+        };
+        List<byte[]> messages = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            messages.add(message(i));
+        }
+
+        Collector collector = new Collector(Long.MAX_VALUE);
+        new AsyncCipher(slow, pool, 8).encrypt(new ListPublisher(messages)).subscribe(collector);
+        collector.await();
+        assertNull(collector.error);
+        assertEquals(messages.size(), collector.items.size());
+        for (int i = 0; i < messages.size(); i++) {
+            assertArrayEquals(DES.encrypt(messages.get(i)), collector.items.get(i), "message " + i);
+        }
+    }
+
+    @Test
+    void flowRoundTrip() throws InterruptedException {
+        List<byte[]> messages = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            messages.add(DES.encrypt(message(i)));
+        }
+        Collector collector = new Collector(Long.MAX_VALUE);
+        new AsyncCipher(DES, pool, 4).decrypt(new ListPublisher(messages)).subscribe(collector);
+        collector.await();
+        assertNull(collector.error);
+        for (int i = 0; i < messages.size(); i++) {
+            assertArrayEquals(message(i), collector.items.get(i), "message " + i);
+        }
+    }
+
+    @Test
+    void flowErrorAfterEarlierMessages() throws InterruptedException {
+        List<byte[]> messages = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            messages.add(DES.encrypt(message(i)));
+        }
+        messages.set(5, new byte[7]); // 长度不是 8 的整数倍，解密失败
+
+        ListPublisher source = new ListPublisher(messages);
+        Collector collector = new Collector(Long.MAX_VALUE);
+        new AsyncCipher(DES, pool, 4).decrypt(source).subscribe(collector);
+        collector.await();
+        assertInstanceOf(IllegalArgumentException.class, collector.error);
+        assertEquals(5, collector.items.size());
+        for (int i = 0; i < 5; i++) {
+            assertArrayEquals(message(i), collector.items.get(i), "message " + i);
+        }
+        assertTrue(source.cancelled);
+    }
+
+    @Test
+    void flowBoundsMessagesInFlight() throws InterruptedException {
+        List<byte[]> messages = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            messages.add(message(i));
+        }
+        ListPublisher source = new ListPublisher(messages);
+        Collector collector = new Collector(0);
+        new AsyncCipher(DES, pool, 6).encrypt(source).subscribe(collector);
+
+        // 下游不请求时只向上游请求 maxQueued 条
+        Thread.sleep(100);
+        assertEquals(6, source.requested());
+        assertEquals(0, collector.size());
+
+        // 每交给下游一条，再向上游请求一条
+        collector.subscription.request(3);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (collector.size() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(50);
+        assertEquals(3, collector.size());
+        assertEquals(9, source.requested());
+
+        collector.subscription.request(Long.MAX_VALUE);
+        collector.await();
+        assertEquals(messages.size(), collector.items.size());
+    }
+
+    @Test
+    void futureRejectsWhenQueueIsFull() {
+        // 暂不执行任务的线程池，提交的操作一直处于排队状态
+        Queue<Runnable> held = new ArrayDeque<>();
+        AsyncCipher cipher = new AsyncCipher(DES, held::add, 3);
+
+        List<CompletableFuture<byte[]>> accepted = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            accepted.add(cipher.encryptAsync(message(i)));
+        }
+        assertEquals(3, cipher.queued());
+
+        // 队列已满时立即以 RejectedExecutionException 完成，不阻塞调用线程
+        CompletableFuture<byte[]> rejected = cipher.decryptAsync(new byte[8]);
+        assertTrue(rejected.isCompletedExceptionally());
+        CompletionException e = assertThrows(CompletionException.class, rejected::join);
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        assertEquals(3, cipher.queued());
+
+        // 完成一个操作后归还额度
+        held.poll().run();
+        assertArrayEquals(DES.encrypt(message(0)), accepted.get(0).join());
+        assertEquals(2, cipher.queued());
+        CompletableFuture<byte[]> next = cipher.encryptAsync(message(3));
+        assertEquals(3, cipher.queued());
+
+        while (!held.isEmpty()) {
+            held.poll().run();
+        }
+        assertArrayEquals(DES.encrypt(message(3)), next.join());
+        assertEquals(0, cipher.queued());
+    }
+
+    @Test
+    void futureReportsAlgorithmFailure() {
+        AsyncCipher cipher = new AsyncCipher(DES, pool, 2);
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> cipher.decryptAsync(new byte[7]).join());
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+    }
+}
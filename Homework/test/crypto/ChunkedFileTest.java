@@ -0,0 +1,109 @@
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * 分块加密文件随机读取的测试，重点覆盖块边界附近的区间
+ */
+class ChunkedFileTest {
+
+    private static final int CHUNK_SIZE = 64;
+
+    // 3 个完整块加上 13 字节的尾块
+    private static final byte[] PLAIN = new byte[3 * CHUNK_SIZE + 13];
+
+    @TempDir
+    static Path dir;
+
+    private static String desFile;
+    private static String rsaFile;
+    private static ChunkedFile des;
+    private static ChunkedFile rsa;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        new Random(21).nextBytes(PLAIN);
+        Path plain = Files.write(dir.resolve("plain.bin"), PLAIN);
+
+        des = new ChunkedFile(0x133457799BBCDFF1L, CHUNK_SIZE);
+        desFile = dir.resolve("des.bin").toString();
+        des.encryptFile(plain.toString(), desFile);
+
+        rsa = new ChunkedFile(new RSA(RSA.generateKey(512), 16, true, null), CHUNK_SIZE);
+        rsaFile = dir.resolve("rsa.bin").toString();
+        rsa.encryptFile(plain.toString(), rsaFile);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "0, 0", "0, 1", "0, 64", "0, 65",
+            "63, 1", "63, 2", "64, 1", "64, 64", "65, 63",
+            "60, 72", "1, 190", "127, 2", "128, 64", "191, 1",
+            "192, 13", "200, 5", "205, 0", "0, 205"
+    })
+    void decryptRangeMatchesPlain(long offset, int length) throws IOException {
+        byte[] expected = Arrays.copyOfRange(PLAIN, (int) offset, (int) offset + length);
+        assertArrayEquals(expected, des.decryptRange(desFile, offset, length));
+        assertArrayEquals(expected, rsa.decryptRange(rsaFile, offset, length));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"-1, 1", "0, -1", "205, 1", "200, 6", "206, 0", "0, 206"})
+    void decryptRangeRejectsOutOfRange(long offset, int length) {
+        assertThrows(IllegalArgumentException.class, () -> des.decryptRange(desFile, offset, length));
+        assertThrows(IllegalArgumentException.class, () -> rsa.decryptRange(rsaFile, offset, length));
+    }
+
+    @Test
+    void lengthAndFullDecrypt() throws IOException {
+        assertEquals(PLAIN.length, des.length(desFile));
+        assertEquals(PLAIN.length, rsa.length(rsaFile));
+
+        Path out = dir.resolve("des.out");
+        des.decryptFile(desFile, out.toString());
+        assertArrayEquals(PLAIN, Files.readAllBytes(out));
+        out = dir.resolve("rsa.out");
+        rsa.decryptFile(rsaFile, out.toString());
+        assertArrayEquals(PLAIN, Files.readAllBytes(out));
+    }
+
+    @Test
+    void sameFileRoundTrips() throws IOException {
+        Path file = Files.write(dir.resolve("same.bin"), PLAIN);
+        for (ChunkedFile chunked : new ChunkedFile[]{des, rsa}) {
+            chunked.encryptFile(file.toString(), file.toString());
+            assertEquals(PLAIN.length, chunked.length(file.toString()));
+            chunked.decryptFile(file.toString(), file.toString());
+            assertArrayEquals(PLAIN, Files.readAllBytes(file));
+        }
+    }
+
+    @Test
+    void emptyFile() throws IOException {
+        Path plain = Files.write(dir.resolve("empty.bin"), new byte[0]);
+        String encrypted = dir.resolve("empty.enc").toString();
+        des.encryptFile(plain.toString(), encrypted);
+        assertEquals(0, des.length(encrypted));
+        assertArrayEquals(new byte[0], des.decryptRange(encrypted, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> des.decryptRange(encrypted, 0, 1));
+    }
+
+    @Test
+    void wrongKeyModeIsRejected() {
+        // 用 DES 密钥模式打开每块使用 RSA 加密密钥的文件
+        assertThrows(IOException.class, () -> des.decryptRange(rsaFile, 0, 1));
+    }
+}
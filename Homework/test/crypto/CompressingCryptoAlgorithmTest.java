@@ -0,0 +1,161 @@
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * 先压缩再加密的测试：DES、RSA 两种被包装算法，空数据、单字节、帧边界附近和无法压缩的数据，
+ * 以及损坏、截断的帧
+ */
+class CompressingCryptoAlgorithmTest {
+
+    private static final int FRAME_SIZE = 64;
+
+    private static final DES DES = new DES(0x133457799BBCDFF1L);
+
+    private static RSA rsa;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void setUp() {
+        rsa = new RSA(RSA.generateKey(512), 16, false, null);
+    }
+
+    /**
+     * 被包装算法与数据的组合：数据为易压缩的文本或随机字节，长度覆盖帧边界附近
+     */
+    static Stream<Arguments> cases() {
+        int[] sizes = {0, 1, FRAME_SIZE - 1, FRAME_SIZE, FRAME_SIZE + 1, 3 * FRAME_SIZE, 10_000};
+        return Stream.of("DES", "RSA").flatMap(name -> IntStream.of(sizes).boxed()
+                .flatMap(size -> Stream.of(Arguments.of(name, size, true), Arguments.of(name, size, false))));
+    }
+
+    private static CryptoAlgorithm delegate(String name) {
+        return name.equals("DES") ? DES : rsa;
+    }
+
+    private static byte[] data(int size, boolean compressible) {
+        byte[] data = new byte[size];
+        if (compressible) {
+            byte[] text = "the quick brown fox jumps over the lazy dog\n".getBytes(StandardCharsets.US_ASCII);
+            for (int i = 0; i < size; i++) {
+                data[i] = text[i % text.length];
+            }
+        } else {
+            new Random(size).nextBytes(data);
+        }
+        return data;
+    }
+
+    @ParameterizedTest
+    @MethodSource("cases")
+    void roundTrips(String name, int size, boolean compressible) {
+        byte[] plain = data(size, compressible);
+        for (CompressingCryptoAlgorithm algorithm : new CompressingCryptoAlgorithm[]{
+                new CompressingCryptoAlgorithm(delegate(name), Deflater.BEST_SPEED, FRAME_SIZE),
+                new CompressingCryptoAlgorithm(delegate(name))}) {
+            byte[] cipher = algorithm.encrypt(plain);
+            assertTrue(cipher.length <= algorithm.encryptOutputSize(size));
+            assertArrayEquals(plain, algorithm.decrypt(cipher));
+
+            byte[] out = new byte[size + 3];
+            int written = algorithm.decrypt(cipher, 0, cipher.length, out, 3);
+            assertArrayEquals(plain, Arrays.copyOfRange(out, 3, 3 + written));
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("cases")
+    void encryptFileMatchesEncrypt(String name, int size, boolean compressible) throws IOException {
+        byte[] plain = data(size, compressible);
+        CompressingCryptoAlgorithm algorithm = new CompressingCryptoAlgorithm(delegate(name), Deflater.BEST_SPEED, FRAME_SIZE);
+        Path input = Files.write(dir.resolve("plain.bin"), plain);
+        Path encrypted = dir.resolve("encrypted.bin");
+        Path decrypted = dir.resolve("decrypted.bin");
+
+        algorithm.encryptFile(input.toString(), encrypted.toString());
+        assertArrayEquals(algorithm.encrypt(plain), Files.readAllBytes(encrypted));
+        algorithm.decryptFile(encrypted.toString(), decrypted.toString());
+        assertArrayEquals(plain, Files.readAllBytes(decrypted));
+    }
+
+    /**
+     * 直接交给 DES 加密的帧序列，每一项的帧头或帧数据都有问题
+     */
+    static Stream<byte[]> corruptedFrames() {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        deflater.setInput(new byte[100]);
+        deflater.finish();
+        byte[] deflated = new byte[100];
+        int n = deflater.deflate(deflated);
+        deflater.end();
+        byte[] wrongLength = new byte[9 + n]; // 压缩数据完整，但帧头中的原始长度与解压结果不符
+        wrongLength[0] = 1;
+        wrongLength[4] = 99;
+        wrongLength[8] = (byte) n;
+        System.arraycopy(deflated, 0, wrongLength, 9, n);
+
+        return Stream.of(
+                new byte[]{2, 0, 0, 0, 1, 0, 0, 0, 1, 'x'}, // 未知的帧标志
+                new byte[]{0, 0, 0, 0, 10, 0, 0, 0, 10, 1, 2, 3, 4, 5}, // 帧数据被截断
+                new byte[]{0, 0, 0, 0, 2, 0, 0, 0, 1, 1}, // 原样保存但长度不一致
+                new byte[]{0, (byte) 0xFF, 0, 0, 0, 0, 0, 0, 0}, // 原始长度为负
+                new byte[]{1, 0, 0, 0, 10, 0, 0, 0, 4, -1, -1, -1, -1}, // 无效的压缩数据
+                new byte[]{1, 0x7F, 0, 0, 0, 0, 0, 0, 1, 0}, // 压缩比超过上限
+                new byte[]{0, 0, 0}, // 帧头被截断
+                wrongLength);
+    }
+
+    @ParameterizedTest
+    @MethodSource("corruptedFrames")
+    void corruptedFramesAreRejected(byte[] frames) throws IOException {
+        CompressingCryptoAlgorithm algorithm = new CompressingCryptoAlgorithm(DES, Deflater.BEST_SPEED, FRAME_SIZE);
+        byte[] cipher = DES.encrypt(frames);
+        assertThrows(IllegalArgumentException.class, () -> algorithm.decrypt(cipher));
+
+        Path encrypted = Files.write(dir.resolve("encrypted.bin"), cipher);
+        String decrypted = dir.resolve("decrypted.bin").toString();
+        assertThrows(IllegalArgumentException.class, () -> algorithm.decryptFile(encrypted.toString(), decrypted));
+    }
+
+    @ParameterizedTest
+    @MethodSource("cases")
+    void truncatedOrModifiedCiphertextIsRejected(String name, int size, boolean compressible) {
+        if (size == 0) {
+            return; // 没有帧可以损坏
+        }
+        CompressingCryptoAlgorithm algorithm = new CompressingCryptoAlgorithm(delegate(name), Deflater.BEST_SPEED, FRAME_SIZE);
+        byte[] cipher = algorithm.encrypt(data(size, compressible));
+        int block = delegate(name).cipherBlockSize();
+
+        // 去掉最后一个密文分组：DES 的填充或帧长度不再完整。
+        // RSA 没有填充，只有一个分组时去掉后是空数据的合法密文，不属于截断的帧
+        if (cipher.length > block) {
+            byte[] truncated = Arrays.copyOf(cipher, cipher.length - block);
+            assertThrows(IllegalArgumentException.class, () -> algorithm.decrypt(truncated));
+        }
+
+        // 修改第一个分组：帧头或 RSA 的保护字节被破坏
+        byte[] modified = cipher.clone();
+        modified[block / 2] ^= 0x5A;
+        assertThrows(IllegalArgumentException.class, () -> algorithm.decrypt(modified));
+    }
+}
@@ -0,0 +1,121 @@
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * 目录树批量加密、解密的测试：打包的小文件、单独处理的文件和切分的大文件混在同一棵目录树中
+ */
+class CryptoBatchTest {
+
+    private static final DES DES = new DES(0x133457799BBCDFF1L);
+
+    @TempDir
+    Path dir;
+
+    private static void write(Path file, int size) throws IOException {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        Files.createDirectories(file.getParent());
+        Files.write(file, data);
+    }
+
+    /**
+     * source 下所有普通文件的相对路径
+     */
+    private static List<Path> files(Path source) throws IOException {
+        try (Stream<Path> walk = Files.walk(source)) {
+            return walk.filter(Files::isRegularFile).map(source::relativize).sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void mixedTreeMatchesSingleFileAndRoundTrips() throws IOException {
+        Path source = dir.resolve("source");
+        write(source.resolve("empty.bin"), 0);
+        write(source.resolve("one.bin"), 1);
+        write(source.resolve("a/small.bin"), 1000);
+        write(source.resolve("a/b/c/deep.bin"), 8);
+        write(source.resolve("a/pack-edge.bin"), CryptoBatch.PACK_BYTES - 1);
+        write(source.resolve("a/pipeline.bin"), CryptoBatch.PACK_BYTES);
+        write(source.resolve("mid.bin"), 3 * CryptoBatch.PACK_BYTES + 5);
+        write(source.resolve("segment.bin"), CryptoBatch.SEGMENT_SIZE);
+        write(source.resolve("b/split.bin"), CryptoBatch.SEGMENT_SIZE + 1);
+        write(source.resolve("b/split3.bin"), 2 * CryptoBatch.SEGMENT_SIZE + 13);
+        Files.createDirectories(source.resolve("emptydir/nested"));
+
+        CryptoBatch batch = new CryptoBatch(DES, 4, 4, 32L << 20);
+        Path encrypted = dir.resolve("encrypted");
+        CryptoBatch.Summary summary = batch.encryptTree(source, encrypted);
+        List<Path> files = files(source);
+        assertEquals(files.size(), summary.files());
+        assertEquals(files, files(encrypted));
+        assertTrue(Files.isDirectory(encrypted.resolve("emptydir/nested")));
+
+        Path single = dir.resolve("single.bin");
+        for (Path file : files) {
+            DES.encryptFile(source.resolve(file).toString(), single.toString());
+            assertArrayEquals(Files.readAllBytes(single), Files.readAllBytes(encrypted.resolve(file)), file.toString());
+        }
+
+        Path decrypted = dir.resolve("decrypted");
+        summary = batch.decryptTree(encrypted, decrypted);
+        assertEquals(files.size(), summary.files());
+        for (Path file : files) {
+            assertArrayEquals(Files.readAllBytes(source.resolve(file)), Files.readAllBytes(decrypted.resolve(file)),
+                    file.toString());
+        }
+        assertTrue(Files.isDirectory(decrypted.resolve("emptydir/nested")));
+    }
+
+    @Test
+    void rsaTreeRoundTrips() throws IOException {
+        Path source = dir.resolve("source");
+        write(source.resolve("empty.bin"), 0);
+        write(source.resolve("a/small.bin"), 100);
+        write(source.resolve("a/b/larger.bin"), 5000);
+
+        RSA rsa = new RSA(RSA.generateKey(512), 16, true, null);
+        CryptoBatch batch = new CryptoBatch(rsa, 2, 2, 1L << 20);
+        Path encrypted = dir.resolve("encrypted");
+        Path decrypted = dir.resolve("decrypted");
+        batch.encryptTree(source, encrypted);
+        batch.decryptTree(encrypted, decrypted);
+        for (Path file : files(source)) {
+            byte[] plain = Files.readAllBytes(source.resolve(file));
+            assertArrayEquals(rsa.decrypt(rsa.encrypt(plain)), Files.readAllBytes(decrypted.resolve(file)),
+                    file.toString());
+        }
+    }
+
+    @Test
+    void failureNamesTheFile() throws IOException {
+        Path source = dir.resolve("source");
+        write(source.resolve("good.bin"), 16);
+        write(source.resolve("sub/bad.bin"), 7); // 不是 8 的整数倍，无法解密
+
+        CryptoBatch batch = new CryptoBatch(DES, 2, 2, 1L << 20);
+        IOException e = assertThrows(IOException.class, () -> batch.decryptTree(source, dir.resolve("out")));
+        assertTrue(e.getMessage().contains("bad.bin"), e.getMessage());
+    }
+
+    @Test
+    void targetInsideSourceIsRejected() throws IOException {
+        Path source = dir.resolve("source");
+        write(source.resolve("file.bin"), 8);
+        CryptoBatch batch = new CryptoBatch(DES);
+        assertThrows(IllegalArgumentException.class, () -> batch.encryptTree(source, source.resolve("out")));
+    }
+}
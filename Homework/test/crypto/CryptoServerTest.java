@@ -0,0 +1,177 @@
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * 本地加密服务的测试：多个客户端并发请求时结果与直接调用引擎相同，错误的请求只得到错误响应
+ */
+class CryptoServerTest {
+
+    private static final long DES_KEY = 0x133457799BBCDFF1L;
+    private static final DES DES = new DES(DES_KEY);
+
+    private static final long RSA_KEY = 7;
+    private static final long FAILING_RSA_KEY = 8;
+
+    private static RSA rsa;
+    private static CryptoServer server;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        rsa = new RSA(RSA.generateKey(512), 16, false, null);
+        server = new CryptoServer(0);
+        server.registerRSA(RSA_KEY, rsa);
+        // 解密时抛出非 IllegalArgumentException 的运行时异常
+        server.registerRSA(FAILING_RSA_KEY, new RSA(RSA.generateKey(512), 16) {
+            @Override
+            public byte[] decrypt(byte[] encryptedMessage) {
+                throw new UnsupportedOperationException("decrypt is disabled");
+            }
+        });
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        server.close();
+    }
+
+    private static CryptoClient client() throws IOException {
+        return new CryptoClient(InetAddress.getLoopbackAddress().getHostAddress(), server.port());
+    }
+
+    private static byte[] random(Random random, int size) {
+        byte[] data = new byte[size];
+        random.nextBytes(data);
+        return data;
+    }
+
+    @Test
+    void concurrentClientsMatchDirectCalls() throws Exception {
+        int clients = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                int seed = c;
+                tasks.add(pool.submit((Callable<Void>) () -> {
+                    Random random = new Random(seed);
+                    try (CryptoClient client = client()) {
+                        for (int i = 0; i < 100; i++) {
+                            // 以小请求为主，偶尔超过 BATCH_LIMIT 单独处理
+                            int size = i % 25 == 0 ? CryptoServer.BATCH_LIMIT + random.nextInt(100) : random.nextInt(200);
+                            byte[] plain = random(random, size);
+
+                            byte[] desCipher = client.encryptDES(DES_KEY, plain);
+                            assertArrayEquals(DES.encrypt(plain), desCipher);
+                            assertArrayEquals(plain, client.decryptDES(DES_KEY, desCipher));
+
+                            byte[] rsaCipher = client.encryptRSA(RSA_KEY, plain);
+                            assertArrayEquals(rsa.encrypt(plain), rsaCipher);
+                            assertArrayEquals(rsa.decrypt(rsaCipher), client.decryptRSA(RSA_KEY, rsaCipher));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(server.batchedRequestCount() >= server.batchCount());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {8, 16, CryptoServer.BATCH_LIMIT + 8})
+    void badPaddingIsAnErrorResponse(int size) throws IOException {
+        // 不加填充直接加密，最后一个分组以 0 结尾，解密后填充无效
+        byte[] plain = new byte[size];
+        byte[] cipher = new byte[size];
+        DES.encryptChunk(plain, 0, size, cipher, 0, false);
+        try (CryptoClient client = client()) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> client.decryptDES(DES_KEY, cipher));
+            assertEquals("Invalid padding.", e.getMessage());
+
+            // 连接仍然可用
+            assertArrayEquals(DES.encrypt(plain), client.encryptDES(DES_KEY, plain));
+        }
+    }
+
+    @Test
+    void invalidRequestsAreErrorResponses() throws IOException {
+        try (CryptoClient client = client()) {
+            assertThrows(IllegalArgumentException.class, () -> client.decryptDES(DES_KEY, new byte[7]));
+            assertThrows(IllegalArgumentException.class, () -> client.decryptDES(DES_KEY, new byte[0]));
+            assertThrows(IllegalArgumentException.class, () -> client.encryptRSA(42, new byte[1]));
+            assertThrows(IllegalArgumentException.class,
+                    () -> client.call((byte) 9, CryptoServer.ALG_DES, DES_KEY, new byte[8]));
+            assertThrows(IllegalArgumentException.class,
+                    () -> client.call(CryptoServer.OP_ENCRYPT, (byte) 9, DES_KEY, new byte[8]));
+
+            // 引擎抛出的其他运行时异常同样返回错误响应，不断开连接
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> client.decryptRSA(FAILING_RSA_KEY, new byte[33]));
+            assertEquals("decrypt is disabled", e.getMessage());
+
+            byte[] plain = {1, 2, 3};
+            assertArrayEquals(DES.encrypt(plain), client.encryptDES(DES_KEY, plain));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {-1, 0, CryptoServer.REQUEST_HEADER - 1, CryptoServer.MAX_FRAME + 1})
+    void invalidFrameLengthClosesConnection(int length) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            out.writeInt(length);
+            out.write(new byte[CryptoServer.REQUEST_HEADER]);
+            out.flush();
+            assertThrows(EOFException.class, in::readInt);
+        }
+    }
+
+    @Test
+    void rawErrorFrame() throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            out.writeInt(CryptoServer.REQUEST_HEADER);
+            out.writeByte(CryptoServer.OP_DECRYPT);
+            out.writeByte(CryptoServer.ALG_DES);
+            out.writeLong(DES_KEY);
+            out.flush();
+
+            int length = in.readInt();
+            assertEquals(CryptoServer.STATUS_ERROR, in.readByte());
+            byte[] message = new byte[length - 1];
+            in.readFully(message);
+            assertTrue(new String(message, StandardCharsets.UTF_8).contains("multiple of 8"));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 密钥调度缓存的测试：命中与淘汰计数，以及被淘汰后仍在使用的密钥调度不会被清零
+ */
+class DESKeyScheduleCacheTest {
+
+    @Test
+    void leastRecentlyUsedIsEvicted() {
+        DESKeyScheduleCache cache = new DESKeyScheduleCache(2, 1);
+        DESKeySchedule first = cache.get(1);
+        cache.get(2);
+        assertSame(first, cache.get(1)); // 1 成为最近使用的
+        cache.get(3); // 淘汰 2
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertSame(first, cache.get(1));
+        cache.get(2);
+        assertEquals(2, cache.hitCount());
+        assertEquals(4, cache.missCount());
+    }
+
+    @Test
+    void clearRemovesAllSchedules() {
+        DESKeyScheduleCache cache = new DESKeyScheduleCache(8);
+        DESKeySchedule schedule = cache.get(42);
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNotSame(schedule, cache.get(42));
+    }
+
+    @Test
+    void evictedScheduleInUseStaysIntact() throws InterruptedException {
+        byte[] plain = new byte[4096]; // 超过位切片的阈值
+        new Random(19).nextBytes(plain);
+        byte[] expected = new DES(0x133457799BBCDFF1L).encrypt(plain);
+
+        DESKeyScheduleCache cache = new DESKeyScheduleCache(1, 1);
+        DES des = cache.des(0x133457799BBCDFF1L);
+        for (int round = 0; round < 20; round++) {
+            cache.get(round + 1); // 淘汰正在使用的密钥调度
+            System.gc();
+            assertArrayEquals(expected, des.encrypt(plain));
+            assertArrayEquals(plain, des.decrypt(expected));
+            Thread.sleep(1);
+        }
+    }
+}
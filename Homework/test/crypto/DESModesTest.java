@@ -0,0 +1,181 @@
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * CBC、CTR 模式的测试。本项目的 DES 与标准 DES 的 S 盒不完全相同，参考结果由单个分组的 ECB 调用逐块构造，
+ * 已知答案则由当前实现生成
+ */
+class DESModesTest {
+
+    private static final DES DES = new DES(0x133457799BBCDFF1L);
+
+    private static final byte[] IV = {1, 2, 3, 4, 5, 6, 7, 8};
+
+    private static final byte[] PLAIN = "Now is the time for all ".getBytes(StandardCharsets.US_ASCII);
+
+    private static byte[] hex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+
+    private static byte[] random(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * 单个分组的 ECB 加密，8 个字节不会进入位切片后端
+     */
+    private static byte[] encryptBlock(byte[] block, int offset) {
+        byte[] out = new byte[8];
+        DES.encryptChunk(block, offset, 8, out, 0, false);
+        return out;
+    }
+
+    /**
+     * PKCS5 填充到 8 的整数倍
+     */
+    private static byte[] pad(byte[] data) {
+        int padding = 8 - data.length % 8;
+        byte[] padded = Arrays.copyOf(data, data.length + padding);
+        Arrays.fill(padded, data.length, padded.length, (byte) padding);
+        return padded;
+    }
+
+    /**
+     * 逐个分组构造的 CBC 加密结果
+     */
+    private static byte[] referenceCBC(byte[] data, byte[] iv) {
+        byte[] padded = pad(data);
+        byte[] previous = iv.clone();
+        byte[] out = new byte[padded.length];
+        for (int i = 0; i < padded.length; i += 8) {
+            byte[] block = new byte[8];
+            for (int j = 0; j < 8; j++) {
+                block[j] = (byte) (padded[i + j] ^ previous[j]);
+            }
+            previous = encryptBlock(block, 0);
+            System.arraycopy(previous, 0, out, i, 8);
+        }
+        return out;
+    }
+
+    /**
+     * 逐个分组构造的 CTR 密钥流，计数器按大端序递增
+     */
+    private static byte[] referenceKeystream(long counter, int length) {
+        byte[] keystream = new byte[(length + 7) & ~7];
+        for (int i = 0; i < keystream.length; i += 8) {
+            byte[] block = new byte[8];
+            long value = counter + i / 8;
+            for (int j = 0; j < 8; j++) {
+                block[j] = (byte) (value >>> (56 - 8 * j));
+            }
+            System.arraycopy(encryptBlock(block, 0), 0, keystream, i, 8);
+        }
+        return Arrays.copyOf(keystream, length);
+    }
+
+    private static byte[] referenceCTR(byte[] data, long counter) {
+        byte[] out = referenceKeystream(counter, data.length);
+        for (int i = 0; i < data.length; i++) {
+            out[i] ^= data[i];
+        }
+        return out;
+    }
+
+    private static long counter(byte[] iv) {
+        long counter = 0;
+        for (byte b : iv) {
+            counter = counter << 8 | (b & 0xFF);
+        }
+        return counter;
+    }
+
+    @Test
+    void knownAnswers() {
+        byte[] cbc = hex("c97ac4ad17c99daed9daff166885d58ce376ed1b636150efcfeb540e2f3cb7b4");
+        assertArrayEquals(cbc, DES.encryptCBC(PLAIN, IV));
+        assertArrayEquals(PLAIN, DES.decryptCBC(cbc, IV));
+
+        byte[] ctr = hex("3b7ca2ace7207219c8cb507346d60372aa1729de7551ae1e");
+        assertArrayEquals(ctr, DES.encryptCTR(PLAIN, IV));
+        assertArrayEquals(PLAIN, DES.decryptCTR(ctr, IV));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 7, 8, 9, 511, 512, 520, 4096, 5000})
+    void cbcMatchesBlockByBlock(int size) {
+        byte[] plain = random(size);
+        byte[] cipher = DES.encryptCBC(plain, IV);
+        assertArrayEquals(referenceCBC(plain, IV), cipher);
+        assertArrayEquals(plain, DES.decryptCBC(cipher, IV));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 7, 8, 9, 511, 512, 520, 4095, 4096, 4097, 10_000})
+    void ctrMatchesBlockByBlock(int size) {
+        byte[] plain = random(size);
+        byte[] cipher = DES.encryptCTR(plain, IV);
+        assertArrayEquals(referenceCTR(plain, counter(IV)), cipher);
+        assertArrayEquals(plain, DES.decryptCTR(cipher, IV));
+    }
+
+    @Test
+    void ctrCounterWrapsAround() {
+        byte[] iv = {-1, -1, -1, -1, -1, -1, -1, -2}; // 第三个分组的计数器回绕为 0
+        byte[] plain = random(40);
+        assertArrayEquals(referenceCTR(plain, counter(iv)), DES.encryptCTR(plain, iv));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "0, 0", "0, 1", "0, 8", "1, 7", "3, 13", "7, 1", "7, 2", "8, 8",
+            "5, 600", "4090, 20", "4096, 4096", "4093, 4100", "12345, 7", "1, 9998"
+    })
+    void cryptCTRWindowMatchesWholeStream(long position, int length) {
+        byte[] plain = random(20_000);
+        byte[] whole = DES.encryptCTR(plain, IV);
+        byte[] expected = Arrays.copyOfRange(whole, (int) position, (int) position + length);
+
+        byte[] out = new byte[length + 5];
+        DES.cryptCTR(counter(IV), position, plain, (int) position, length, out, 5);
+        assertArrayEquals(expected, Arrays.copyOfRange(out, 5, 5 + length));
+
+        // 输入和输出为同一数组时原地处理
+        byte[] inPlace = plain.clone();
+        DES.cryptCTR(counter(IV), position, inPlace, (int) position, length, inPlace, (int) position);
+        assertArrayEquals(expected, Arrays.copyOfRange(inPlace, (int) position, (int) position + length));
+    }
+
+    @Test
+    void invalidArgumentsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> DES.encryptCBC(PLAIN, new byte[7]));
+        assertThrows(IllegalArgumentException.class, () -> DES.encryptCTR(PLAIN, null));
+        assertThrows(IllegalArgumentException.class, () -> DES.decryptCBC(new byte[12], IV));
+        assertThrows(IllegalArgumentException.class, () -> DES.decryptCBC(new byte[0], IV));
+
+        // IV 错误时只有第一个分组解密错误，填充仍然有效
+        byte[] cipher = DES.encryptCBC(PLAIN, IV);
+        byte[] wrongIV = IV.clone();
+        wrongIV[0] ^= 1;
+        byte[] decrypted = DES.decryptCBC(cipher, wrongIV);
+        assertEquals(PLAIN[0] ^ 1, decrypted[0]);
+        assertArrayEquals(Arrays.copyOfRange(PLAIN, 1, PLAIN.length), Arrays.copyOfRange(decrypted, 1, decrypted.length));
+    }
+}
@@ -0,0 +1,104 @@
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * 解密时PKCS5填充检查的测试
+ */
+class DESPaddingTest {
+
+    private static final DES DES = new DES(0x133457799BBCDFF1L);
+    private static final TripleDES TRIPLE_DES = new TripleDES(0x133457799BBCDFF1L, 0x0E329232EA6D0D73L);
+
+    /**
+     * 最后一个分组的填充无效的明文：填充值为 0、大于 8，或填充字节不一致
+     */
+    static byte[][] invalidPadding() {
+        return new byte[][]{
+                {1, 2, 3, 4, 5, 6, 7, 0},
+                {1, 2, 3, 4, 5, 6, 7, 9},
+                {1, 2, 3, 4, 5, 6, 7, (byte) 0xFF},
+                {1, 2, 3, 4, 5, 6, 7, 2},
+                {1, 2, 3, 4, 5, 3, 4, 3},
+                {8, 8, 8, 8, 8, 8, 8, 8, 8, 8, 8, 8, 8, 8, 7, 8},
+        };
+    }
+
+    /**
+     * 不加填充直接加密，得到解密后填充无效的密文
+     */
+    private static byte[] encryptRaw(CryptoAlgorithm algorithm, byte[] plain) {
+        byte[] cipher = new byte[plain.length];
+        algorithm.encryptChunk(plain, 0, plain.length, cipher, 0, false);
+        return cipher;
+    }
+
+    @ParameterizedTest
+    @MethodSource("invalidPadding")
+    void invalidPaddingIsRejected(byte[] plain) {
+        byte[] cipher = encryptRaw(DES, plain);
+        assertThrows(IllegalArgumentException.class, () -> DES.decrypt(cipher));
+        assertThrows(IllegalArgumentException.class,
+                () -> DES.decryptChunk(cipher, 0, cipher.length, new byte[cipher.length], 0, true));
+        assertThrows(IllegalArgumentException.class,
+                () -> DES.decryptChunk(ByteBuffer.wrap(cipher), ByteBuffer.allocate(cipher.length), true));
+        assertThrows(IllegalArgumentException.class,
+                () -> DES.decryptChunk(ByteBuffer.wrap(cipher), ByteBuffer.allocateDirect(cipher.length), true));
+
+        byte[] tripleCipher = encryptRaw(TRIPLE_DES, plain);
+        assertThrows(IllegalArgumentException.class, () -> TRIPLE_DES.decrypt(tripleCipher));
+        assertThrows(IllegalArgumentException.class,
+                () -> TRIPLE_DES.decryptChunk(tripleCipher, 0, tripleCipher.length, new byte[tripleCipher.length], 0, true));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 7, 8, 9, 15, 16, 600})
+    void validPaddingRoundTrips(int length) {
+        byte[] plain = new byte[length];
+        Arrays.fill(plain, (byte) 8); // 与填充值相同的明文字节不影响去填充
+        byte[] cipher = DES.encrypt(plain);
+        assertArrayEquals(plain, DES.decrypt(cipher));
+
+        ByteBuffer out = ByteBuffer.allocateDirect(cipher.length);
+        DES.decryptChunk(ByteBuffer.wrap(cipher), out, true);
+        assertEquals(length, out.position());
+        assertArrayEquals(plain, TRIPLE_DES.decrypt(TRIPLE_DES.encrypt(plain)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("invalidPadding")
+    void fileInPlaceWithInvalidPaddingIsLeftUnchanged(byte[] plain, @TempDir Path dir) throws IOException {
+        byte[] cipher = encryptRaw(DES, plain);
+        Path file = Files.write(dir.resolve("file.bin"), cipher);
+        assertThrows(IllegalArgumentException.class, () -> DES.decryptFileInPlace(file.toString()));
+        assertArrayEquals(cipher, Files.readAllBytes(file));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 7, 8, 9, 600})
+    void fileInPlaceRoundTrips(int length, @TempDir Path dir) throws IOException {
+        byte[] plain = new byte[length];
+        Arrays.fill(plain, (byte) 1);
+        Path file = Files.write(dir.resolve("file.bin"), DES.encrypt(plain));
+        DES.decryptFileInPlace(file.toString());
+        assertArrayEquals(plain, Files.readAllBytes(file));
+    }
+
+    @Test
+    void emptyCiphertextIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> DES.decrypt(new byte[0]));
+    }
+}
@@ -0,0 +1,100 @@
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * 分块文件流水线的测试：输出与一次性加密相同，输入和输出是同一个文件时不丢失数据
+ */
+class FilePipelineTest {
+
+    private static final DES DES = new DES(0x133457799BBCDFF1L);
+
+    private static RSA rsa;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void setUp() {
+        rsa = new RSA(RSA.generateKey(512), 16, false, null);
+    }
+
+    private static byte[] random(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * 目录中除 file 外没有遗留的临时文件
+     */
+    private void assertNoTempFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            assertArrayEquals(new Object[]{dir.resolve("file.bin")}, files.toArray());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 7, 100_000, FilePipeline.CHUNK_SIZE + 3})
+    void desSameFileRoundTrips(int size) throws IOException {
+        byte[] plain = random(size);
+        Path file = Files.write(dir.resolve("file.bin"), plain);
+        DES.encryptFile(file.toString(), file.toString());
+        assertArrayEquals(DES.encrypt(plain), Files.readAllBytes(file));
+        DES.decryptFile(file.toString(), file.toString());
+        assertArrayEquals(plain, Files.readAllBytes(file));
+        assertNoTempFiles();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 100, 100_000})
+    void rsaSameFileRoundTrips(int size) throws IOException {
+        byte[] plain = random(size);
+        for (int i = 0; i < plain.length; i += 16) {
+            plain[i] |= 1; // RSA 解密会去掉每块的前导 0
+        }
+        Path file = Files.write(dir.resolve("file.bin"), plain);
+        rsa.encryptFile(file.toString(), file.toString());
+        assertArrayEquals(rsa.encrypt(plain), Files.readAllBytes(file));
+        rsa.decryptFile(file.toString(), file.toString());
+        assertArrayEquals(plain, Files.readAllBytes(file));
+        assertNoTempFiles();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 100_000})
+    void envelopeAndChunkedFileSameFileRoundTrip(int size) throws IOException {
+        byte[] plain = random(size);
+        Path file = Files.write(dir.resolve("file.bin"), plain);
+
+        RSAEnvelope envelope = new RSAEnvelope(rsa);
+        envelope.encryptFile(file.toString(), file.toString());
+        envelope.decryptFile(file.toString(), file.toString());
+        assertArrayEquals(plain, Files.readAllBytes(file));
+
+        ChunkedFile chunked = new ChunkedFile(0x0E329232EA6D0D73L, 4096);
+        chunked.encryptFile(file.toString(), file.toString());
+        assertArrayEquals(plain, chunked.decryptRange(file.toString(), 0, size));
+        assertNoTempFiles();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 100_000})
+    void sameFileThroughDifferentPath(int size) throws IOException {
+        byte[] plain = random(size);
+        Path file = Files.write(dir.resolve("file.bin"), plain);
+        Path alias = dir.resolve(".").resolve("file.bin");
+        DES.encryptFile(file.toString(), alias.toString());
+        assertArrayEquals(DES.encrypt(plain), Files.readAllBytes(file));
+    }
+}
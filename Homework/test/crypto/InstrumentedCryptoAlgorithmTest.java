@@ -0,0 +1,117 @@
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * 记录指标的算法包装的测试：只在指标打开时记录，被包装算法内部的指标也记录在包装时指定的名称下
+ */
+class InstrumentedCryptoAlgorithmTest {
+
+    private static final DES DES = new DES(0x133457799BBCDFF1L);
+
+    private boolean wasEnabled;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void saveEnabled() {
+        wasEnabled = CryptoMetrics.isEnabled();
+    }
+
+    @AfterEach
+    void restoreEnabled() {
+        CryptoMetrics.setEnabled(wasEnabled);
+    }
+
+    private static long calls(String algorithm, CryptoMetrics.Operation operation) {
+        CryptoMetrics.Stats stats = CryptoMetrics.get(algorithm, operation);
+        return stats == null ? 0 : stats.getCalls();
+    }
+
+    @Test
+    void recordsOnlyWhenEnabled() {
+        byte[] plain = new byte[100];
+        InstrumentedCryptoAlgorithm des = new InstrumentedCryptoAlgorithm(DES, "instrumented-des");
+
+        CryptoMetrics.setEnabled(false);
+        assertArrayEquals(plain, des.decrypt(des.encrypt(plain)));
+        assertNull(CryptoMetrics.get("instrumented-des", CryptoMetrics.Operation.ENCRYPT));
+        assertNull(CryptoMetrics.get("instrumented-des", CryptoMetrics.Operation.DECRYPT));
+
+        CryptoMetrics.setEnabled(true);
+        byte[] cipher = des.encrypt(plain);
+        assertArrayEquals(plain, des.decrypt(cipher));
+        CryptoMetrics.Stats encrypt = CryptoMetrics.get("instrumented-des", CryptoMetrics.Operation.ENCRYPT);
+        assertEquals(1, encrypt.getCalls());
+        assertEquals(plain.length, encrypt.getBytes());
+        assertEquals(cipher.length / 8, encrypt.getBlocks());
+        assertEquals(1, calls("instrumented-des", CryptoMetrics.Operation.DECRYPT));
+
+        // 关闭后不再增加
+        CryptoMetrics.setEnabled(false);
+        des.encrypt(plain);
+        assertEquals(1, calls("instrumented-des", CryptoMetrics.Operation.ENCRYPT));
+    }
+
+    @Test
+    void blockStatsUseTheGivenName() {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            RSAKey key = RSA.generateKey(512);
+            byte[] plain = new byte[20 * 16]; // 20 块，超过一段，按段并行
+            new Random(17).nextBytes(plain);
+            for (int i = 0; i < plain.length; i += 16) {
+                plain[i] |= 1;
+            }
+
+            CryptoMetrics.setEnabled(true);
+            long rsaBlocks = calls("RSA", CryptoMetrics.Operation.ENCRYPT_BLOCK);
+            RSA[] engines = {new RSA(key, 16, false, null), new RSA(key, 16, true, pool)};
+            for (int i = 0; i < engines.length; i++) {
+                String name = "instrumented-rsa-" + i;
+                InstrumentedCryptoAlgorithm signing = new InstrumentedCryptoAlgorithm(engines[i], name);
+                assertArrayEquals(plain, signing.decrypt(signing.encrypt(plain)));
+                assertEquals(20, calls(name, CryptoMetrics.Operation.ENCRYPT_BLOCK));
+                assertEquals(20, calls(name, CryptoMetrics.Operation.DECRYPT_BLOCK));
+            }
+            assertEquals(rsaBlocks, calls("RSA", CryptoMetrics.Operation.ENCRYPT_BLOCK));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void fileStatsUseTheGivenName() throws IOException {
+        Path plain = Files.write(dir.resolve("plain.bin"), new byte[3 * FilePipeline.CHUNK_SIZE + 5]);
+        String encrypted = dir.resolve("encrypted.bin").toString();
+        String decrypted = dir.resolve("decrypted.bin").toString();
+
+        CryptoMetrics.setEnabled(true);
+        long desReads = calls("DES", CryptoMetrics.Operation.FILE_READ);
+        InstrumentedCryptoAlgorithm des = new InstrumentedCryptoAlgorithm(DES, "instrumented-des-file");
+        des.encryptFile(plain.toString(), encrypted);
+        des.decryptFile(encrypted, decrypted);
+        assertArrayEquals(Files.readAllBytes(plain), Files.readAllBytes(Path.of(decrypted)));
+
+        assertEquals(1, calls("instrumented-des-file", CryptoMetrics.Operation.ENCRYPT_FILE));
+        assertEquals(1, calls("instrumented-des-file", CryptoMetrics.Operation.DECRYPT_FILE));
+        assertEquals(8, calls("instrumented-des-file", CryptoMetrics.Operation.FILE_READ));
+        assertNotNull(CryptoMetrics.get("instrumented-des-file", CryptoMetrics.Operation.FILE_WRITE));
+        assertEquals(desReads, calls("DES", CryptoMetrics.Operation.FILE_READ));
+    }
+}
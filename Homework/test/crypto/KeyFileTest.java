@@ -0,0 +1,74 @@
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * 密钥文件的测试：保存后加载得到相同的密钥，支持 POSIX 权限时文件只有所有者可以读写
+ */
+class KeyFileTest {
+
+    @TempDir
+    Path dir;
+
+    private void assumePosix() {
+        assumeTrue(dir.getFileSystem().supportedFileAttributeViews().contains("posix"));
+    }
+
+    private static String permissions(Path file) throws IOException {
+        return PosixFilePermissions.toString(Files.getPosixFilePermissions(file));
+    }
+
+    @Test
+    void rsaKeyRoundTrips() throws IOException {
+        RSA rsa = new RSA(RSA.generateKey(512), 16);
+        Path file = dir.resolve("rsa.key");
+        rsa.saveKey(file.toString());
+        RSA loaded = RSA.loadKey(file.toString(), 16);
+
+        byte[] plain = {1, 2, 3, 4, 5};
+        assertArrayEquals(rsa.encrypt(plain), loaded.encrypt(plain));
+        assertArrayEquals(plain, loaded.decrypt(rsa.encrypt(plain)));
+    }
+
+    @Test
+    void desKeyRoundTrips() throws IOException {
+        DES des = new DES(0x133457799BBCDFF1L);
+        byte[] plain = {1, 2, 3, 4, 5};
+        for (boolean withSubKeys : new boolean[]{false, true}) {
+            Path file = dir.resolve("des-" + withSubKeys + ".key");
+            des.saveKey(file.toString(), withSubKeys);
+            assertArrayEquals(des.encrypt(plain), DES.loadKey(file.toString()).encrypt(plain));
+        }
+    }
+
+    @Test
+    void newKeyFilesAreOwnerOnly() throws IOException {
+        assumePosix();
+        Path rsaFile = dir.resolve("rsa.key");
+        new RSA(RSA.generateKey(512), 16).saveKey(rsaFile.toString());
+        assertEquals("rw-------", permissions(rsaFile));
+
+        Path desFile = dir.resolve("des.key");
+        new DES(0x133457799BBCDFF1L).saveKey(desFile.toString(), true);
+        assertEquals("rw-------", permissions(desFile));
+    }
+
+    @Test
+    void existingKeyFileIsTightened() throws IOException {
+        assumePosix();
+        Path file = Files.createFile(dir.resolve("rsa.key"),
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-r--r--")));
+        Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-rw-rw-")); // 不受 umask 影响
+        new RSA(RSA.generateKey(512), 16).saveKey(file.toString());
+        assertEquals("rw-------", permissions(file));
+    }
+}
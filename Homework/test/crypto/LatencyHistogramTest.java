@@ -0,0 +1,96 @@
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * 延迟直方图的测试：桶号与桶上界互相对应，覆盖 0、子区间边界、各个 2 的幂附近和 Long.MAX_VALUE
+ */
+class LatencyHistogramTest {
+
+    /**
+     * 0、15、16，以及 2^k - 1 和 2^k（k = 5 到 62），最后是 Long.MAX_VALUE
+     */
+    static Stream<Long> values() {
+        LongStream powers = LongStream.rangeClosed(5, 62).flatMap(k -> LongStream.of((1L << k) - 1, 1L << k));
+        return LongStream.concat(LongStream.concat(LongStream.of(0, 15, 16), powers), LongStream.of(Long.MAX_VALUE))
+                .boxed();
+    }
+
+    @ParameterizedTest
+    @MethodSource("values")
+    void bucketRoundTrips(long value) {
+        int bucket = LatencyHistogram.bucket(value);
+        long highest = LatencyHistogram.highestEquivalentValue(bucket);
+        assertTrue(bucket >= 0 && bucket <= 959, "bucket " + bucket);
+        assertTrue(highest >= value, "highest " + highest);
+        assertEquals(bucket, LatencyHistogram.bucket(highest));
+        assertTrue(highest - value <= value / 16, "relative error"); // 相对误差不超过 1/16
+
+        // 桶的下界是上一个桶的上界加 1
+        if (bucket > 0) {
+            long previous = LatencyHistogram.highestEquivalentValue(bucket - 1);
+            assertTrue(previous < value);
+            assertEquals(bucket, LatencyHistogram.bucket(previous + 1));
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("values")
+    void percentileReturnsBucketUpperBound(long value) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(value);
+        histogram.record(Long.MAX_VALUE); // 让最大值不截断分位数
+        long expected = LatencyHistogram.highestEquivalentValue(LatencyHistogram.bucket(value));
+        assertEquals(expected, histogram.percentile(50));
+        assertEquals(Long.MAX_VALUE, histogram.percentile(100));
+        assertEquals(2, histogram.count());
+        assertEquals(Long.MAX_VALUE, histogram.max());
+
+        // 只有一个记录时分位数不超过最大记录值
+        histogram.reset();
+        histogram.record(value);
+        assertEquals(value, histogram.percentile(50));
+    }
+
+    @Test
+    void knownBuckets() {
+        assertEquals(0, LatencyHistogram.bucket(0));
+        assertEquals(15, LatencyHistogram.bucket(15));
+        assertEquals(16, LatencyHistogram.bucket(16));
+        assertEquals(16, LatencyHistogram.highestEquivalentValue(16));
+        assertEquals(31, LatencyHistogram.bucket(31));
+        assertEquals(32, LatencyHistogram.bucket(32));
+        assertEquals(33, LatencyHistogram.highestEquivalentValue(32)); // 32 和 33 同在一个宽度为 2 的桶中
+        for (int k = 5; k <= 62; k++) {
+            assertEquals((1L << k) - 1, LatencyHistogram.highestEquivalentValue(LatencyHistogram.bucket((1L << k) - 1)));
+            assertEquals((1L << k) + (1L << (k - 4)) - 1,
+                    LatencyHistogram.highestEquivalentValue(LatencyHistogram.bucket(1L << k)));
+        }
+
+        // 最后一个桶的上界计算时有符号溢出，结果恰好回绕为 Long.MAX_VALUE
+        assertEquals(959, LatencyHistogram.bucket(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestEquivalentValue(959));
+    }
+
+    @Test
+    void emptyNegativeAndInvalidPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(99));
+        assertEquals(0, histogram.mean());
+
+        histogram.record(-5); // 按 0 记录
+        assertEquals(0, histogram.percentile(100));
+        assertEquals(1, histogram.count());
+
+        assertThrows(IllegalArgumentException.class, () -> histogram.percentile(-1));
+        assertThrows(IllegalArgumentException.class, () -> histogram.percentile(100.5));
+    }
+}
@@ -0,0 +1,69 @@
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * 内存映射和原地加密文件的测试
+ */
+class MappedFileTest {
+
+    private static final DES DES = new DES(0x133457799BBCDFF1L);
+
+    @TempDir
+    Path dir;
+
+    private static byte[] random(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 7, 8, 100_000})
+    void mappedMatchesEncrypt(int size) throws IOException {
+        byte[] plain = random(size);
+        Path input = Files.write(dir.resolve("plain.bin"), plain);
+        Path encrypted = dir.resolve("encrypted.bin");
+        Path decrypted = dir.resolve("decrypted.bin");
+        DES.encryptFileMapped(input.toString(), encrypted.toString());
+        assertArrayEquals(DES.encrypt(plain), Files.readAllBytes(encrypted));
+        DES.decryptFileMapped(encrypted.toString(), decrypted.toString());
+        assertArrayEquals(plain, Files.readAllBytes(decrypted));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 7, 100_000})
+    void mappedSameFileRoundTrips(int size) throws IOException {
+        byte[] plain = random(size);
+        Path file = Files.write(dir.resolve("file.bin"), plain);
+        DES.encryptFileMapped(file.toString(), file.toString());
+        assertArrayEquals(DES.encrypt(plain), Files.readAllBytes(file));
+        DES.decryptFileMapped(file.toString(), file.toString());
+        assertArrayEquals(plain, Files.readAllBytes(file));
+
+        // 临时文件已被移走
+        try (Stream<Path> files = Files.list(dir)) {
+            assertArrayEquals(new Object[]{file}, files.toArray());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 7, 8, 100_000})
+    void inPlaceMatchesEncrypt(int size) throws IOException {
+        byte[] plain = random(size);
+        Path file = Files.write(dir.resolve("file.bin"), plain);
+        DES.encryptFileInPlace(file.toString());
+        assertArrayEquals(DES.encrypt(plain), Files.readAllBytes(file));
+        DES.decryptFileInPlace(file.toString());
+        assertArrayEquals(plain, Files.readAllBytes(file));
+    }
+}
@@ -0,0 +1,112 @@
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * RSA 按段并行加密、解密与单线程处理的一致性测试
+ */
+class RSAParallelTest {
+
+    private static final int BLOCK_SIZE = 16;
+
+    private static ExecutorService pool;
+    private static RSAKey key;
+    private static RSA sequential;
+    private static RSA parallel;
+    private static RSA parallelCRT;
+
+    @BeforeAll
+    static void setUp() {
+        pool = Executors.newFixedThreadPool(4);
+        key = RSA.generateKey(512);
+        sequential = new RSA(key, BLOCK_SIZE, false, null);
+        parallel = new RSA(key, BLOCK_SIZE, false, pool);
+        parallelCRT = new RSA(key, BLOCK_SIZE, true, pool);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * 生成 blocks 个完整分组加上 tail 字节的数据，每隔两个分组让一个分组以 0 字节开头，
+     * 解密后这些分组变短，并行解密时各段需要正确拼接
+     */
+    private static byte[] data(int blocks, int tail) {
+        byte[] data = new byte[blocks * BLOCK_SIZE + tail];
+        new Random(blocks * 31L + tail).nextBytes(data);
+        for (int i = 0; i < data.length; i += BLOCK_SIZE) {
+            data[i] = i % (3 * BLOCK_SIZE) == 0 ? 0 : (byte) (data[i] | 1);
+        }
+        return data;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 8, 9, 15, 16, 17, 24, 25, 64})
+    void parallelEncryptMatchesSequential(int blocks) {
+        for (int tail : new int[]{0, 5}) {
+            byte[] plain = data(blocks, tail);
+            byte[] expected = sequential.encrypt(plain);
+            assertArrayEquals(expected, parallel.encrypt(plain));
+            assertArrayEquals(expected, parallelCRT.encrypt(plain));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 8, 9, 15, 16, 17, 24, 25, 64})
+    void parallelDecryptMatchesSequential(int blocks) {
+        for (int tail : new int[]{0, 5}) {
+            byte[] cipher = sequential.encrypt(data(blocks, tail));
+            byte[] expected = sequential.decrypt(cipher);
+            assertArrayEquals(expected, parallel.decrypt(cipher));
+            assertArrayEquals(expected, parallelCRT.decrypt(cipher));
+
+            // 写入调用者缓冲区的重载走同一条并行路径
+            byte[] out = new byte[parallel.decryptOutputSize(cipher.length) + 3];
+            int written = parallel.decrypt(cipher, 0, cipher.length, out, 3);
+            byte[] actual = new byte[written];
+            System.arraycopy(out, 3, actual, 0, written);
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 8, 9, 17})
+    void roundTripWithoutLeadingZeros(int blocks) {
+        byte[] plain = data(blocks, 3);
+        for (int i = 0; i < plain.length; i += BLOCK_SIZE) {
+            plain[i] |= 1;
+        }
+        assertArrayEquals(plain, parallel.decrypt(parallel.encrypt(plain)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4, 5, 6, 7, 8})
+    void crtDecryptMatchesModPow(int seed) {
+        // 任取 c < n，中国剩余定理的结果应与直接计算 c^d mod n 相同
+        int cipherSize = key.n.bitLength() / 8 + 1;
+        BigInteger c = new BigInteger(key.n.bitLength() + 8, new Random(seed)).mod(key.n);
+        byte[] cipher = new byte[cipherSize];
+        byte[] bytes = c.toByteArray();
+        int length = Math.min(bytes.length, cipherSize);
+        System.arraycopy(bytes, bytes.length - length, cipher, cipherSize - length, length);
+
+        byte[] expected = c.modPow(key.d, key.n).toByteArray();
+        if (expected[0] == 0) {
+            expected = Arrays.copyOfRange(expected, 1, expected.length);
+        }
+        assertArrayEquals(expected, sequential.decrypt(cipher));
+        assertArrayEquals(expected, parallelCRT.decrypt(cipher));
+    }
+}
@@ -0,0 +1,135 @@
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * 三重 DES 与三次单重 DES 分组调用（EDE）的一致性测试，已知答案由当前实现生成
+ */
+class TripleDESTest {
+
+    private static final long K1 = 0x133457799BBCDFF1L;
+    private static final long K2 = 0x0E329232EA6D0D73L;
+    private static final long K3 = 0x0123456789ABCDEFL;
+
+    private static final DES DES1 = new DES(K1);
+    private static final DES DES2 = new DES(K2);
+    private static final DES DES3 = new DES(K3);
+
+    private static final TripleDES TRIPLE_DES = new TripleDES(K1, K2, K3);
+
+    private static byte[] hex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+
+    private static byte[] random(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * 逐个分组计算 E_K3(D_K2(E_K1(P)))，每次调用只有 8 个字节，不会进入位切片后端
+     */
+    private static byte[] referenceEncrypt(byte[] data, DES first, DES second, DES third) {
+        byte[] out = new byte[data.length];
+        byte[] a = new byte[8];
+        byte[] b = new byte[8];
+        for (int i = 0; i < data.length; i += 8) {
+            first.encryptChunk(data, i, 8, a, 0, false);
+            second.decryptChunk(a, 0, 8, b, 0, false);
+            third.encryptChunk(b, 0, 8, out, i, false);
+        }
+        return out;
+    }
+
+    /**
+     * 逐个分组计算 D_K1(E_K2(D_K3(C)))
+     */
+    private static byte[] referenceDecrypt(byte[] data) {
+        byte[] out = new byte[data.length];
+        byte[] a = new byte[8];
+        byte[] b = new byte[8];
+        for (int i = 0; i < data.length; i += 8) {
+            DES3.decryptChunk(data, i, 8, a, 0, false);
+            DES2.encryptChunk(a, 0, 8, b, 0, false);
+            DES1.decryptChunk(b, 0, 8, out, i, false);
+        }
+        return out;
+    }
+
+    /**
+     * PKCS5 填充到 8 的整数倍
+     */
+    private static byte[] pad(byte[] data) {
+        int padding = 8 - data.length % 8;
+        byte[] padded = Arrays.copyOf(data, data.length + padding);
+        Arrays.fill(padded, data.length, padded.length, (byte) padding);
+        return padded;
+    }
+
+    @Test
+    void knownAnswer() {
+        byte[] plain = "Now is the time for all ".getBytes(StandardCharsets.US_ASCII);
+        byte[] cipher = hex("4549540e7646ec966522c340cb4e948f3a45974c169956aecc52101ed8eb4343");
+        assertArrayEquals(cipher, TRIPLE_DES.encrypt(plain));
+        assertArrayEquals(plain, TRIPLE_DES.decrypt(cipher));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 7, 8, 9, 15, 16, 511, 512, 600})
+    void encryptMatchesEde(int size) {
+        byte[] plain = random(size);
+        byte[] cipher = TRIPLE_DES.encrypt(plain);
+        assertArrayEquals(referenceEncrypt(pad(plain), DES1, DES2, DES3), cipher);
+        assertArrayEquals(plain, TRIPLE_DES.decrypt(cipher));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {8, 16, 512, 600})
+    void chunksMatchEde(int size) {
+        byte[] data = random(size);
+        byte[] out = new byte[size + 3];
+        TRIPLE_DES.encryptChunk(data, 0, size, out, 3, false);
+        assertArrayEquals(referenceEncrypt(data, DES1, DES2, DES3), Arrays.copyOfRange(out, 3, 3 + size));
+
+        TRIPLE_DES.decryptChunk(data, 0, size, out, 3, false);
+        assertArrayEquals(referenceDecrypt(data), Arrays.copyOfRange(out, 3, 3 + size));
+    }
+
+    @Test
+    void twoKeyUsesFirstKeyTwice() {
+        byte[] plain = random(100);
+        byte[] expected = referenceEncrypt(pad(plain), DES1, DES2, DES1);
+        assertArrayEquals(expected, new TripleDES(K1, K2).encrypt(plain));
+        assertArrayEquals(expected, new TripleDES(K1, K2, K1).encrypt(plain));
+    }
+
+    @Test
+    void equalKeysReduceToSingleDes() {
+        // E_K(D_K(E_K(P))) = E_K(P)
+        byte[] plain = random(100);
+        assertArrayEquals(DES1.encrypt(plain), new TripleDES(K1, K1).encrypt(plain));
+        assertArrayEquals(plain, new TripleDES(K1, K1, K1).decrypt(DES1.encrypt(plain)));
+    }
+
+    @Test
+    void invalidLengthIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> TRIPLE_DES.decrypt(new byte[7]));
+        assertThrows(IllegalArgumentException.class,
+                () -> TRIPLE_DES.encryptChunk(new byte[7], 0, 7, new byte[8], 0, false));
+        assertThrows(IllegalArgumentException.class,
+                () -> TRIPLE_DES.decryptChunk(new byte[0], 0, 0, new byte[8], 0, true));
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * 基准测试入口
+ * 文件用途:
+ * 该文件是 benchmarks.jar 的入口，接受与 JMH 相同的命令行参数。
+ * 默认附加 GC 分析器（相当于 -prof gc），在吞吐量和延迟之外同时报告每次操作的内存分配量和分配速率；
+ * 未指定 -rf 时把结果保存为 JSON，便于与上一个版本的结果比较，在发布前发现性能回退。
+ */
+package crypto;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class BenchmarkMain {
+
+    /**
+     * 运行基准测试
+     *
+     * @param args JMH 命令行参数，例如 "DESBulkBenchmark -p size=65536"
+     * @throws Exception 参数错误或运行失败时抛出异常
+     */
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (commandLine.getProfilers().isEmpty()) {
+            options.addProfiler(GCProfiler.class);
+        }
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON).result("jmh-result.json");
+        }
+        new Runner(options.build()).run();
+    }
+}
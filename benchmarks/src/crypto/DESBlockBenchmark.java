@@ -0,0 +1,73 @@
+/**
+ * DES 单个分组和子密钥生成的基准测试
+ * 文件用途:
+ * 该文件测量 DES 加密、解密单个 8 字节分组的吞吐量和延迟，以及计算密钥调度（DESKeySchedule）和从缓存中取出密钥调度的耗时。
+ * 单个分组通过分块加密接口处理（last 为 false，不填充），与 encrypt 中每个分组的处理路径相同。
+ */
+package crypto;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DESBlockBenchmark {
+
+    private long key;
+
+    private DES des;
+
+    private final DESKeyScheduleCache cache = new DESKeyScheduleCache(1024);
+
+    private final byte[] plainBlock = new byte[8];
+
+    private final byte[] cipherBlock = new byte[8];
+
+    private final byte[] out = new byte[8];
+
+    @Setup
+    public void setup() {
+        Random random = new Random(2019216864);
+        key = random.nextLong();
+        des = new DES(key);
+        random.nextBytes(plainBlock);
+        des.encryptChunk(plainBlock, 0, 8, cipherBlock, 0, false);
+    }
+
+    @Benchmark
+    public byte[] encryptBlock() {
+        des.encryptChunk(plainBlock, 0, 8, out, 0, false);
+        return out;
+    }
+
+    @Benchmark
+    public byte[] decryptBlock() {
+        des.decryptChunk(cipherBlock, 0, 8, out, 0, false);
+        return out;
+    }
+
+    @Benchmark
+    public DESKeySchedule keySchedule() {
+        return new DESKeySchedule(key);
+    }
+
+    @Benchmark
+    public DESKeySchedule cachedKeySchedule() {
+        return cache.get(key);
+    }
+}
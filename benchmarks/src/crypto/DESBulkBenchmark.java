@@ -0,0 +1,60 @@
+/**
+ * DES 整段数据加密、解密的基准测试
+ * 文件用途:
+ * 该文件测量 DES.encrypt 和 DES.decrypt 在 64 B 到 64 MB 数据上的吞吐量和平均耗时。
+ * 小数据主要反映填充和数组分配的开销，大数据会走位切片和多线程分段的路径。
+ */
+package crypto;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DESBulkBenchmark {
+
+    // 64 B、4 KB、64 KB、1 MB、64 MB
+    @Param({"64", "4096", "65536", "1048576", "67108864"})
+    public int size;
+
+    private DES des;
+
+    private byte[] data;
+
+    private byte[] encryptedData;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(2019216864);
+        des = new DES(random.nextLong());
+        data = new byte[size];
+        random.nextBytes(data);
+        encryptedData = des.encrypt(data);
+    }
+
+    @Benchmark
+    public byte[] encrypt() {
+        return des.encrypt(data);
+    }
+
+    @Benchmark
+    public byte[] decrypt() {
+        return des.decrypt(encryptedData);
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * 文件加密的基准测试
+ * 文件用途:
+ * 该文件测量 CryptoAlgorithm.encryptFile 和 decryptFile 的平均耗时，包括读文件、加密和写文件的整条流水线。
+ * 输入文件在每组参数开始前写入临时目录，结束后删除；测量结果受磁盘和页缓存影响，比较时应在同一台机器上运行。
+ */
+package crypto;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncryptFileBenchmark {
+
+    @Param({"DES", "TripleDES", "RSAEnvelope"})
+    public String algorithm;
+
+    // 1 MB、64 MB
+    @Param({"1048576", "67108864"})
+    public int size;
+
+    private CryptoAlgorithm cipher;
+
+    private Path directory;
+
+    private String plainFile;
+
+    private String encryptedFile;
+
+    private String decryptedFile;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(2019216864);
+        switch (algorithm) {
+            case "DES":
+                cipher = new DES(random.nextLong());
+                break;
+            case "TripleDES":
+                cipher = new TripleDES(random.nextLong(), random.nextLong(), random.nextLong());
+                break;
+            case "RSAEnvelope":
+                cipher = new RSAEnvelope(new RSA(1024, Integer.MAX_VALUE));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+        }
+
+        directory = Files.createTempDirectory("crypto-bench");
+        byte[] data = new byte[size];
+        random.nextBytes(data);
+        plainFile = Files.write(directory.resolve("plain"), data).toString();
+        encryptedFile = directory.resolve("encrypted").toString();
+        decryptedFile = directory.resolve("decrypted").toString();
+        cipher.encryptFile(plainFile, encryptedFile);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(Path.of(plainFile));
+        Files.deleteIfExists(Path.of(encryptedFile));
+        Files.deleteIfExists(Path.of(decryptedFile));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void encryptFile() throws IOException {
+        cipher.encryptFile(plainFile, encryptedFile);
+    }
+
+    @Benchmark
+    public void decryptFile() throws IOException {
+        cipher.decryptFile(encryptedFile, decryptedFile);
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * RSA 单块加密、解密的基准测试
+ * 文件用途:
+ * 该文件测量 1024、2048、4096 位密钥下 RSA 加密、解密一个完整块的吞吐量和延迟。
+ * 密钥在每组参数开始前生成一次，不计入测量时间；不使用线程池，只测单块本身的模幂。
+ */
+package crypto;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RSABlockBenchmark {
+
+    @Param({"1024", "2048", "4096"})
+    public int bits;
+
+    private RSA rsa;
+
+    private byte[] block;
+
+    private byte[] encryptedBlock;
+
+    @Setup
+    public void setup() {
+        // 块大小取密钥允许的最大值
+        rsa = new RSA(bits, Integer.MAX_VALUE, false, null);
+        block = new byte[rsa.plainBlockSize()];
+        new Random(2019216864).nextBytes(block);
+        block[0] |= 1; // 避免前导 0，使解密结果与明文等长
+        encryptedBlock = rsa.encrypt(block);
+    }
+
+    @Benchmark
+    public byte[] encrypt() {
+        return rsa.encrypt(block);
+    }
+
+    @Benchmark
+    public byte[] decrypt() {
+        return rsa.decrypt(encryptedBlock);
+    }
+}
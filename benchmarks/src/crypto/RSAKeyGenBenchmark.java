@@ -0,0 +1,37 @@
+/**
+ * RSA 密钥生成的基准测试
+ * 文件用途:
+ * 该文件测量生成一对 RSA 密钥（搜索素数 p、q 并计算 n、d 及 CRT 参数）的平均耗时。
+ * 素数搜索的耗时波动很大，因此测量时间较长；4096 位密钥耗时数秒，默认不测，需要时用 -p bits=4096 指定。
+ */
+package crypto;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RSAKeyGenBenchmark {
+
+    @Param({"1024", "2048"})
+    public int bits;
+
+    @Benchmark
+    public RSAKey generateKey() {
+        return RSA.generateKey(bits);
+    }
+}